@@ -0,0 +1,77 @@
+package software.leonov.progress;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the throughput of a {@link ProgressMonitor} shared by several threads, comparing the documented
+ * {@code synchronized} pattern with {@link ProgressMonitor#concurrent()} and {@link LocalCounter}s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ContendedProgressMonitorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        ProgressMonitor synchronizedProgress;
+        ProgressMonitor concurrentProgress;
+
+        @Setup
+        public void setUp(final Blackhole blackhole) {
+            synchronizedProgress = new ProgressMonitor().addProgressListener(event -> blackhole.consume(event.getProgress()));
+            concurrentProgress   = ProgressMonitor.concurrent().addProgressListener(event -> blackhole.consume(event.getProgress()));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Local {
+        LocalCounter counter;
+
+        @Setup
+        public void setUp(final Shared shared) {
+            counter = shared.concurrentProgress.newLocalCounter(1000);
+        }
+
+        @TearDown
+        public void tearDown() {
+            counter.close();
+        }
+    }
+
+    @Benchmark
+    public long synchronizedIncrement(final Shared shared) {
+        final ProgressMonitor progress = shared.synchronizedProgress;
+
+        synchronized (progress) {
+            return progress.increment();
+        }
+    }
+
+    @Benchmark
+    public long concurrentIncrement(final Shared shared) {
+        return shared.concurrentProgress.increment();
+    }
+
+    @Benchmark
+    public void localCounterIncrement(final Local local) {
+        local.counter.increment();
+    }
+
+}
@@ -0,0 +1,57 @@
+package software.leonov.progress;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost of a single {@link PercentListener} invocation, including formatting, for a range of format
+ * patterns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PercentListenerBenchmark {
+
+    @Param({ "#", "#.##" })
+    private String pattern;
+
+    @Param({ "1000000" })
+    private long maximum;
+
+    private PercentListener listener;
+    private long            count;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        listener = new PercentListener(Locale.US, pattern) {
+
+            @Override
+            public void progressChanged(final String pct) {
+                blackhole.consume(pct);
+            }
+        };
+    }
+
+    @Benchmark
+    public void progressChanged() {
+        count = count == maximum ? 1 : count + 1;
+        listener.progressChanged(count, maximum);
+    }
+
+}
@@ -0,0 +1,70 @@
+package software.leonov.progress;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the single-threaded cost of {@link ProgressMonitor#increment()} and {@link ProgressMonitor#setProgress(long)}
+ * with a varying number of plain or {@link LongProgressListener}s and a constant or dynamic step size. Run with
+ * {@code -prof gc} to compare the allocation rate of plain listeners, which receive a {@code ProgressEvent}, with that of
+ * {@code LongProgressListener}s, which should be zero.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProgressMonitorBenchmark {
+
+    @Param({ "0", "1", "4" })
+    private int listeners;
+
+    @Param({ "constant", "dynamic" })
+    private String step;
+
+    @Param({ "event", "long" })
+    private String listener;
+
+    private ProgressMonitor progress;
+    private long            count;
+
+    @Setup(Level.Iteration)
+    public void setUp(final Blackhole blackhole) {
+        progress = new ProgressMonitor();
+        count    = 0;
+
+        if (step.equals("constant"))
+            progress.setStepSize(ProgressMonitor.DEFAULT_MIN_STEP_SIZE);
+
+        for (int i = 0; i < listeners; i++)
+            if (listener.equals("event"))
+                progress.addProgressListener(event -> blackhole.consume(event.getProgress()));
+            else
+                progress.addProgressListener((LongProgressListener) (count, maximum) -> blackhole.consume(count));
+    }
+
+    @Benchmark
+    public long increment() {
+        return progress.increment();
+    }
+
+    @Benchmark
+    public ProgressMonitor setProgress() {
+        return progress.setProgress(++count);
+    }
+
+}
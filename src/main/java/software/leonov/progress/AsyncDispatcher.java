@@ -0,0 +1,75 @@
+package software.leonov.progress;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers {@code ProgressEvent}s to listeners on an {@code Executor}, coalescing events which arrive faster than they
+ * can be delivered so that only the latest one is seen by the listeners.
+ * <p>
+ * At most one delivery task per instance is active at any given time, therefore events are delivered one at a time and
+ * in the order they were published.
+ *
+ * @author Zhenya Leonov
+ */
+final class AsyncDispatcher implements Runnable {
+
+    private final Executor        executor;
+    private final ProgressMonitor monitor;
+
+    /*
+     * Holds the latest undelivered event. The slot remains non-null while a delivery task is scheduled or running, so the
+     * publishing thread only needs to schedule a new task when it replaces a null value.
+     */
+    private final AtomicReference<ProgressEvent> pending = new AtomicReference<>();
+
+    AsyncDispatcher(final Executor executor, final ProgressMonitor monitor) {
+        this.executor = executor;
+        this.monitor  = monitor;
+    }
+
+    void dispatch(final ProgressEvent event) {
+        if (pending.getAndSet(event) == null)
+            try {
+                executor.execute(this);
+            } catch (final RuntimeException e) {
+                pending.set(null);
+                throw e;
+            }
+    }
+
+    @Override
+    public void run() {
+        ProgressEvent event = pending.get();
+
+        do
+            monitor.deliver(event);
+        while (!pending.compareAndSet(event, null) && (event = pending.get()) != null);
+    }
+
+    /*
+     * A single non-daemon dispatcher thread which is shared by all monitors. The thread terminates after a short idle
+     * period, but not before all pending events have been delivered.
+     */
+    static Executor shared() {
+        return SharedExecutorHolder.EXECUTOR;
+    }
+
+    private static class SharedExecutorHolder {
+        private static final Executor EXECUTOR;
+
+        static {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                final Thread thread = new Thread(runnable, "progress-monitor-dispatcher");
+                thread.setDaemon(false);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTOR = executor;
+        }
+    }
+
+}
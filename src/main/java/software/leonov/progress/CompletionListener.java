@@ -0,0 +1,26 @@
+package software.leonov.progress;
+
+/**
+ * Implemented by internal listeners which must observe the completion of a {@link ProgressMonitor}, even when
+ * {@link ProgressMonitor#complete()} publishes no new event because the final progress count has already been
+ * published.
+ * <p>
+ * A {@link LongProgressListener} which implements this interface receives the final event through
+ * {@link #completed(long, long)} rather than {@link LongProgressListener#progressChanged(long, long)}, so it must not
+ * consult {@link ProgressMonitor#isDone()} when a primitive event arrives: the monitor is marked as completed before
+ * the final event is published, while an earlier event may still be being delivered.
+ *
+ * @author Zhenya Leonov
+ */
+interface CompletionListener {
+
+    /**
+     * Invoked by {@link ProgressMonitor#complete()} in place of an event when the final progress count has already been
+     * published, and in place of {@link LongProgressListener#progressChanged(long, long)} for the final event.
+     * 
+     * @param progress the final progress count
+     * @param maximum  the maximum value or {@code -1} if the maximum value is not defined
+     */
+    void completed(long progress, long maximum);
+
+}
@@ -0,0 +1,426 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Draws a progress bar for each of any number of {@link ProgressMonitor}s on a terminal, from a dedicated thread.
+ * <p>
+ * Unlike a {@link ProgressListener} which prints each event, a {@code ConsoleRenderer} never runs on the threads which
+ * update the progress count. Its thread wakes up once per {@link #setRefreshInterval(Duration) refresh interval},
+ * {@link #DEFAULT_REFRESH_INTERVAL 10 times per second} by default, reads the latest progress count and maximum value of
+ * each {@link #add(ProgressMonitor) added} monitor, and redraws all the bars together in a single write. The rate and
+ * the estimated time remaining are computed by the renderer from the progress it observes between redraws. Each frame
+ * is assembled in a preallocated {@code char} buffer, so redrawing allocates no strings.
+ * <p>
+ * If ANSI escape sequences are enabled, each monitor is drawn on its own line and the cursor is moved back up to redraw
+ * the lines in place. Otherwise all monitors are drawn on a single line which is redrawn after a carriage return, which
+ * works on any terminal:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * try (final ConsoleRenderer renderer = ConsoleRenderer.open()) {
+ *     renderer.add(scan).add(copy);
+ *     ...
+ * }
+ * </code></pre>
+ * <p>
+ * A final frame is drawn when the renderer is {@link #close() closed}. I/O errors encountered by the renderer's thread
+ * are passed to its uncaught exception handler, after which the renderer stops drawing.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ConsoleRenderer implements Closeable {
+
+    /**
+     * The default amount of time between redraws.
+     */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMillis(100);
+
+    /**
+     * The default width of a progress bar in characters.
+     */
+    public static final int DEFAULT_BAR_WIDTH = 30;
+
+    private static final char   ESCAPE    = '\u001B';
+    private static final double SMOOTHING = RateEstimate.SMOOTHING_TIME_CONSTANT.toNanos();
+    private static final int    MAX_LINE  = 128; // the maximum length of a line, excluding the name and the bar
+
+    private final Writer     out;
+    private final boolean    ansi;
+    private final List<Line> lines  = new CopyOnWriteArrayList<>();
+    private final Thread     thread;
+    private final char[]     digits = new char[20];
+
+    private volatile long    interval = DEFAULT_REFRESH_INTERVAL.toNanos();
+    private volatile int     width    = DEFAULT_BAR_WIDTH;
+    private volatile boolean closed   = false; // set while holding this, read by the renderer's thread without it
+
+    // guarded by this
+    private char[]  buffer  = new char[1024];
+    private int     length  = 0;
+    private int     drawn   = 0; // the number of lines drawn by the previous frame, or its length if ansi is disabled
+    private boolean stopped = false;
+
+    private ConsoleRenderer(final Writer out, final boolean ansi) {
+        this.out    = out;
+        this.ansi   = ansi;
+        this.thread = new Thread(this::run, "progress-console-renderer");
+
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Creates a new {@code ConsoleRenderer} which draws on the standard output. ANSI escape sequences are enabled if the
+     * JVM is attached to an interactive {@link System#console() console}. The standard output is flushed but never
+     * closed.
+     *
+     * @return a new {@code ConsoleRenderer}
+     */
+    public static ConsoleRenderer open() {
+        return open(new OutputStreamWriter(System.out, Charset.defaultCharset()), System.console() != null);
+    }
+
+    /**
+     * Creates a new {@code ConsoleRenderer} which draws on the specified {@code Writer}. The writer is flushed after each
+     * frame but is not closed when the renderer is closed.
+     *
+     * @param out  the writer to draw on
+     * @param ansi whether to use ANSI escape sequences to draw each monitor on its own line
+     * @return a new {@code ConsoleRenderer}
+     */
+    public static ConsoleRenderer open(final Writer out, final boolean ansi) {
+        requireNonNull(out, "out == null");
+
+        final ConsoleRenderer renderer = new ConsoleRenderer(out, ansi);
+        renderer.thread.start();
+        return renderer;
+    }
+
+    /**
+     * Adds a progress bar for the specified {@code ProgressMonitor}, labeled with its {@link ProgressMonitor#getName()
+     * name}. Bars are drawn in the order in which they were added.
+     *
+     * @param monitor the {@code ProgressMonitor} to draw
+     * @return this {@code ConsoleRenderer} instance
+     */
+    public ConsoleRenderer add(final ProgressMonitor monitor) {
+        requireNonNull(monitor, "monitor == null");
+        lines.add(new Line(monitor));
+        return this;
+    }
+
+    /**
+     * Sets the amount of time between redraws.
+     *
+     * @param interval the amount of time between redraws
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @return this {@code ConsoleRenderer} instance
+     */
+    public ConsoleRenderer setRefreshInterval(final Duration interval) {
+        requireNonNull(interval, "interval == null");
+        if (interval.isZero() || interval.isNegative())
+            throw new IllegalArgumentException("interval <= 0");
+
+        this.interval = interval.toNanos();
+        LockSupport.unpark(thread);
+        return this;
+    }
+
+    /**
+     * Sets the width of the progress bars in characters.
+     *
+     * @param width the width of the progress bars
+     * @throws IllegalArgumentException if {@code width} < 1
+     * @return this {@code ConsoleRenderer} instance
+     */
+    public ConsoleRenderer setBarWidth(final int width) {
+        if (width < 1)
+            throw new IllegalArgumentException("width < 1");
+
+        this.width = width;
+        return this;
+    }
+
+    /**
+     * Stops the renderer's thread and draws the final frame. Calling this method multiple times is permitted and will have
+     * no subsequent effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+
+            closed = true;
+        }
+
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            if (stopped)
+                return;
+
+            stopped = true;
+            render(System.nanoTime());
+
+            if (!ansi && drawn > 0)
+                out.write('\n');
+
+            out.flush();
+        }
+    }
+
+    /*
+     * The next frame is scheduled relative to the start of the previous one, so a slow writer lowers the redraw rate
+     * instead of causing frames to be drawn back to back.
+     */
+    private void run() {
+        long renderedAt = System.nanoTime();
+
+        while (true) {
+            for (long remaining; !closed && (remaining = renderedAt + interval - System.nanoTime()) > 0;)
+                LockSupport.parkNanos(this, remaining);
+
+            if (closed)
+                return;
+
+            try {
+                synchronized (this) {
+                    if (stopped)
+                        return;
+
+                    render(renderedAt = System.nanoTime());
+                    out.flush();
+                }
+            } catch (final IOException | RuntimeException e) {
+                synchronized (this) {
+                    stopped = true;
+                }
+
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                return;
+            }
+        }
+    }
+
+    /*
+     * Draws a frame. Called by the renderer's thread, and by close() once the thread has stopped.
+     */
+    synchronized void render(final long now) throws IOException {
+        length = 0;
+
+        int nameWidth = 0;
+
+        for (final Line line : lines)
+            nameWidth = Math.max(nameWidth, line.monitor.getName().length());
+
+        final int width = this.width;
+
+        if (ansi) {
+            if (drawn > 0) { // move the cursor back up to the first line of the previous frame
+                ensure(16);
+                append(ESCAPE).append('[').append(drawn).append('A');
+            }
+
+            drawn = 0;
+
+            for (final Line line : lines) {
+                ensure(nameWidth + width + MAX_LINE);
+                append('\r');
+                line.render(now, nameWidth, width);
+                append(ESCAPE).append('[').append('K').append('\n'); // clear the rest of the line
+                drawn++;
+            }
+        } else {
+            ensure(1);
+            append('\r');
+
+            for (final Line line : lines) {
+                ensure(nameWidth + width + MAX_LINE);
+
+                if (length > 1)
+                    append(' ').append(' ');
+
+                line.render(now, nameWidth, width);
+            }
+
+            final int printed = length - 1;
+
+            ensure(Math.max(0, drawn - printed));
+
+            for (int i = printed; i < drawn; i++) // erase the rest of the previous frame
+                append(' ');
+
+            drawn = printed;
+        }
+
+        out.write(buffer, 0, length);
+    }
+
+    private void ensure(final int capacity) {
+        if (length + capacity > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + capacity));
+    }
+
+    private ConsoleRenderer append(final char c) {
+        buffer[length++] = c;
+        return this;
+    }
+
+    private ConsoleRenderer append(final String s) {
+        s.getChars(0, s.length(), buffer, length);
+        length += s.length();
+        return this;
+    }
+
+    private ConsoleRenderer append(long value) {
+        int i = digits.length;
+
+        do {
+            digits[--i] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+
+        System.arraycopy(digits, i, buffer, length, digits.length - i);
+        length += digits.length - i;
+        return this;
+    }
+
+    private ConsoleRenderer pad(final long value, final int width) {
+        int digits = 1;
+
+        for (long v = value; v >= 10; v /= 10)
+            digits++;
+
+        for (; digits < width; digits++)
+            append(' ');
+
+        return append(value);
+    }
+
+    private ConsoleRenderer appendTwoDigits(final long value) {
+        return append((char) ('0' + value / 10 % 10)).append((char) ('0' + value % 10));
+    }
+
+    /*
+     * Appends a rate with one decimal place and a metric suffix, e.g. 12.3k/s.
+     */
+    private ConsoleRenderer appendRate(final double rate) {
+        double value  = rate;
+        char   suffix = 0;
+
+        if (value >= 1e9) {
+            value /= 1e9;
+            suffix = 'G';
+        } else if (value >= 1e6) {
+            value /= 1e6;
+            suffix = 'M';
+        } else if (value >= 1e3) {
+            value /= 1e3;
+            suffix = 'k';
+        }
+
+        final long tenths = Math.round(value * 10);
+
+        append(tenths / 10).append('.').append((char) ('0' + tenths % 10));
+
+        if (suffix != 0)
+            append(suffix);
+
+        return append('/').append('s');
+    }
+
+    private ConsoleRenderer appendDuration(final long seconds) {
+        return append(seconds / 3600).append(':').appendTwoDigits(seconds / 60 % 60).append(':').appendTwoDigits(seconds % 60);
+    }
+
+    /*
+     * A progress bar, confined to the renderer's thread.
+     */
+    private final class Line {
+
+        private final ProgressMonitor monitor;
+
+        private long   observedAt = 0;
+        private long   observed   = -1;
+        private double rate       = -1; // negative until two observations have been made
+
+        Line(final ProgressMonitor monitor) {
+            this.monitor = monitor;
+        }
+
+        void render(final long now, final int nameWidth, final int width) {
+            final String  name     = monitor.getName();
+            final boolean done     = monitor.isDone();
+            final long    progress = monitor.getProgress();
+            final long    maximum  = monitor.reportedMaximum(progress); // including a provisional maximum
+
+            observe(now, progress);
+
+            if (nameWidth > 0) {
+                append(name);
+
+                for (int i = name.length(); i <= nameWidth; i++)
+                    append(' ');
+            }
+
+            append('[');
+
+            final double fraction = maximum > 0 ? Math.min(1D, (double) progress / maximum) : (done ? 1D : 0D);
+            final int    filled   = (int) (fraction * width);
+
+            for (int i = 0; i < width; i++)
+                append(i < filled ? '=' : (i == filled && maximum > 0 ? '>' : ' '));
+
+            append(']').append(' ');
+
+            if (maximum > 0)
+                pad((long) (fraction * 100), 3).append('%').append(' ').append(progress).append('/').append(maximum);
+            else
+                append(progress);
+
+            if (rate >= 0)
+                append(' ').appendRate(rate);
+
+            if (done)
+                append(' ').append("done");
+            else if (maximum > 0 && rate > 0)
+                append(' ').append("ETA ").appendDuration((long) Math.ceil((maximum - progress) / rate));
+        }
+
+        private void observe(final long now, final long progress) {
+            final long elapsed = now - observedAt;
+
+            if (observed < 0 || progress < observed) { // first observation or the monitor was reset
+                rate = -1;
+            } else if (elapsed > 0) {
+                final double current = (double) (progress - observed) / elapsed * TimeUnit.SECONDS.toNanos(1);
+                rate = rate < 0 ? current : rate + (1D - Math.exp(-elapsed / SMOOTHING)) * (current - rate);
+            } else
+                return;
+
+            observedAt = now;
+            observed   = progress;
+        }
+    }
+
+}
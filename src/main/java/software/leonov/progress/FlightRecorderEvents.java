@@ -0,0 +1,35 @@
+package software.leonov.progress;
+
+/**
+ * Java Flight Recorder events emitted by {@link ProgressMonitor}.
+ * <p>
+ * This is the Java 8 version of this class, which never records any events. When the library is built on Java 11 or
+ * later it is replaced by a version which commits {@code jdk.jfr} events in {@code META-INF/versions/11} of the
+ * multi-release jar. Both versions must declare the same methods.
+ *
+ * @author Zhenya Leonov
+ */
+final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+    }
+
+    static boolean isEnabled() {
+        return false;
+    }
+
+    static Object beginPublish() {
+        return null;
+    }
+
+    static void commitPublish(final Object record, final String monitor, final long progress, final long maximum, final long stepSize, final int listeners) {
+    }
+
+    static Object beginListener() {
+        return null;
+    }
+
+    static void commitListener(final Object record, final String monitor, final ProgressListener listener, final long progress) {
+    }
+
+}
@@ -0,0 +1,449 @@
+package software.leonov.progress;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the {@link ProgressEvent}s of any number of {@link ProgressMonitor}s as JSON lines, for shipping to a log
+ * aggregator, from a background thread.
+ * <p>
+ * Each event of an {@link #attach(ProgressMonitor) attached} monitor is written as a single line:
+ *
+ * <pre>
+ * {"name":"copy","progress":5120,"maximum":10240,"timestamp":1700000000000,"rate":1024.000,"done":false}
+ * </pre>
+ * <p>
+ * where {@code maximum} is {@code null} if it is not defined or only {@link ProgressEvent#isMaximumProvisional()
+ * provisional}, {@code timestamp} is the wall-clock time of the event in milliseconds since the epoch and {@code rate}
+ * is the {@link RateEstimate#getAverageRate() average rate} per second.
+ * <p>
+ * The thread which publishes the event only encodes it into a reusable buffer and copies it into a preallocated ring
+ * of {@code capacity} records, it never performs I/O. The background thread writes the records in batches once per
+ * {@link #setFlushInterval(Duration) flush interval}, or as soon as the ring is half full. If events are published
+ * faster than they can be written the oldest unwritten records are dropped, so memory use is bounded regardless of the
+ * speed of the destination. Once the buffers have been allocated, encoding and writing events allocates no objects.
+ * <p>
+ * Unwritten records are written when the sink is {@link #close() closed}. I/O errors encountered by the background
+ * thread are passed to its uncaught exception handler, after which further records are discarded.
+ *
+ * @author Zhenya Leonov
+ */
+public final class JsonLinesSink implements Closeable {
+
+    /**
+     * The default number of records held by the ring.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The default maximum amount of time a record is held before it is written.
+     */
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * The maximum size of a record in bytes, longer monitor names are truncated.
+     */
+    public static final int RECORD_SIZE = 512;
+
+    /**
+     * The maximum size of the escaped monitor name of a record in bytes, which leaves room for the remaining fields.
+     */
+    public static final int MAX_NAME_BYTES = 256;
+
+    private static final byte[] NAME      = "{\"name\":\"".getBytes(UTF_8);
+    private static final byte[] PROGRESS  = "\",\"progress\":".getBytes(UTF_8);
+    private static final byte[] MAXIMUM   = ",\"maximum\":".getBytes(UTF_8);
+    private static final byte[] TIMESTAMP = ",\"timestamp\":".getBytes(UTF_8);
+    private static final byte[] RATE      = ",\"rate\":".getBytes(UTF_8);
+    private static final byte[] DONE      = ",\"done\":".getBytes(UTF_8);
+    private static final byte[] NULL      = "null".getBytes(UTF_8);
+    private static final byte[] TRUE      = "true}\n".getBytes(UTF_8);
+    private static final byte[] FALSE     = "false}\n".getBytes(UTF_8);
+    private static final byte[] HEX       = "0123456789abcdef".getBytes(UTF_8);
+
+    private final WritableByteChannel channel;
+    private final boolean             owned; // whether the channel is closed when this sink is closed
+    private final Thread              writer;
+    private final int                 capacity;
+
+    // guarded by this
+    private final ByteBuffer ring;
+    private final int[]      lengths;
+    private long             head    = 0; // the next record to write
+    private long             tail    = 0; // the next record to fill
+    private long             dropped = 0;
+    private boolean          closed  = false;
+    private boolean          failed  = false;
+
+    private final ByteBuffer batch; // confined to the writer thread
+
+    private volatile long flushInterval = DEFAULT_FLUSH_INTERVAL.toNanos();
+
+    private JsonLinesSink(final WritableByteChannel channel, final boolean owned, final int capacity) {
+        this.channel  = channel;
+        this.owned    = owned;
+        this.capacity = capacity;
+        this.ring     = ByteBuffer.allocate(capacity * RECORD_SIZE);
+        this.lengths  = new int[capacity];
+        this.batch    = ByteBuffer.allocateDirect(capacity * RECORD_SIZE);
+        this.writer   = new Thread(this::run, "progress-json-sink");
+
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens the specified file for appending, creating it if it does not exist, with a ring of
+     * {@link #DEFAULT_CAPACITY} records. The file is closed when this sink is closed.
+     *
+     * @param path the file to write to
+     * @return a new {@code JsonLinesSink}
+     * @throws IOException if an I/O error occurs
+     */
+    public static JsonLinesSink open(final Path path) throws IOException {
+        return open(path, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens the specified file for appending, creating it if it does not exist. The file is closed when this sink is
+     * closed.
+     *
+     * @param path     the file to write to
+     * @param capacity the number of records held by the ring
+     * @return a new {@code JsonLinesSink}
+     * @throws IllegalArgumentException if {@code capacity} < 1
+     * @throws IOException              if an I/O error occurs
+     */
+    public static JsonLinesSink open(final Path path, final int capacity) throws IOException {
+        requireNonNull(path, "path == null");
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity < 1");
+
+        return new JsonLinesSink(FileChannel.open(path, CREATE, WRITE, APPEND), true, capacity);
+    }
+
+    /**
+     * Creates a new {@code JsonLinesSink} with a ring of {@link #DEFAULT_CAPACITY} records which writes to the specified
+     * {@code OutputStream}. The stream is flushed after each batch but is not closed when this sink is closed.
+     *
+     * @param out the stream to write to
+     * @return a new {@code JsonLinesSink}
+     */
+    public static JsonLinesSink open(final OutputStream out) {
+        return open(out, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@code JsonLinesSink} which writes to the specified {@code OutputStream}. The stream is flushed after
+     * each batch but is not closed when this sink is closed.
+     *
+     * @param out      the stream to write to
+     * @param capacity the number of records held by the ring
+     * @return a new {@code JsonLinesSink}
+     * @throws IllegalArgumentException if {@code capacity} < 1
+     */
+    public static JsonLinesSink open(final OutputStream out, final int capacity) {
+        requireNonNull(out, "out == null");
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity < 1");
+
+        final WritableByteChannel channel = Channels.newChannel(new FlushingOutputStream(out));
+        return new JsonLinesSink(channel, false, capacity);
+    }
+
+    /**
+     * Sets the maximum amount of time a record is held before it is written.
+     *
+     * @param interval the maximum amount of time a record is held before it is written
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @return this {@code JsonLinesSink} instance
+     */
+    public JsonLinesSink setFlushInterval(final Duration interval) {
+        requireNonNull(interval, "interval == null");
+        if (interval.isZero() || interval.isNegative())
+            throw new IllegalArgumentException("interval <= 0");
+
+        flushInterval = interval.toNanos();
+
+        synchronized (this) {
+            notifyAll();
+        }
+
+        return this;
+    }
+
+    /**
+     * {@link ProgressMonitor#addProgressListener(ProgressListener) Adds} a listener to the specified
+     * {@code ProgressMonitor} which writes each published event to this sink. Records are labeled with the current
+     * {@link ProgressMonitor#getName() name} of the monitor, truncated to {@link #MAX_NAME_BYTES} bytes if necessary.
+     *
+     * @param monitor the {@code ProgressMonitor} whose events to write
+     * @return the specified {@code ProgressMonitor}
+     */
+    public ProgressMonitor attach(final ProgressMonitor monitor) {
+        requireNonNull(monitor, "monitor == null");
+        return monitor.addProgressListener(new Encoder(monitor));
+    }
+
+    /**
+     * Returns the number of records which have been dropped because the ring was full.
+     *
+     * @return the number of records which have been dropped
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Writes any unwritten records, stops the background thread and closes the file if this sink was opened with a
+     * {@code Path}. Records of events published after this method is called are discarded. Calling this method multiple
+     * times is permitted and will have no subsequent effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            writer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (owned)
+            channel.close();
+    }
+
+    /*
+     * Copies an encoded record into the ring, dropping the oldest unwritten record if the ring is full.
+     */
+    private synchronized void enqueue(final ByteBuffer record) {
+        if (closed || failed)
+            return;
+
+        if (tail - head == capacity) {
+            head++;
+            dropped++;
+        }
+
+        final int slot = (int) (tail++ % capacity);
+
+        lengths[slot] = record.remaining();
+        ring.limit((slot + 1) * RECORD_SIZE).position(slot * RECORD_SIZE);
+        ring.put(record);
+
+        if (tail - head == capacity / 2 + 1) // wake the writer once the ring is half full
+            notifyAll();
+    }
+
+    private void run() {
+        try {
+            while (drain()) {
+                batch.flip();
+
+                while (batch.hasRemaining())
+                    channel.write(batch);
+            }
+        } catch (final IOException | RuntimeException e) {
+            synchronized (this) {
+                failed = true;
+            }
+
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    /*
+     * Waits for records to write and copies them from the ring into the batch. Returns false once the sink has been
+     * closed and all records have been written.
+     */
+    private synchronized boolean drain() {
+        final long deadline = System.nanoTime() + flushInterval;
+
+        for (long remaining; !closed && tail - head <= capacity / 2 && (remaining = deadline - System.nanoTime()) > 0;)
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (final InterruptedException e) {
+                closed = true;
+            }
+
+        if (closed && head == tail)
+            return false;
+
+        batch.clear();
+
+        for (; head < tail; head++) {
+            final int slot = (int) (head % capacity);
+
+            ring.limit(slot * RECORD_SIZE + lengths[slot]).position(slot * RECORD_SIZE);
+            batch.put(ring);
+        }
+
+        return true;
+    }
+
+    /*
+     * Encodes the events of a single monitor. Events of a monitor are published one at a time, so the record buffer has a
+     * single writer.
+     */
+    private final class Encoder implements LongProgressListener, CompletionListener {
+
+        private final ProgressMonitor monitor;
+        private final byte[]          name;
+        private final ByteBuffer      record = ByteBuffer.allocate(RECORD_SIZE);
+
+        Encoder(final ProgressMonitor monitor) {
+            this.monitor = monitor;
+            this.name    = escape(monitor.getName());
+        }
+
+        @Override
+        public void progressChanged(final long progress, final long maximum) { // the final event arrives via completed()
+            encode(progress, maximum, monitor.averageRate(), false);
+        }
+
+        @Override
+        public void progressChanged(final ProgressEvent event) { // delivered asynchronously or with a provisional maximum
+            encode(event.getProgress(), event.isMaximumProvisional() ? -1 : event.getMaximum().orElse(-1), event.getRateEstimate().getAverageRate(), event.isDone());
+        }
+
+        @Override
+        public void completed(final long progress, final long maximum) {
+            encode(progress, maximum, monitor.averageRate(), true);
+        }
+
+        private void encode(final long progress, final long maximum, final double rate, final boolean done) {
+            record.clear();
+            record.put(NAME).put(name).put(PROGRESS);
+            putLong(record, progress);
+            record.put(MAXIMUM);
+
+            if (maximum < 0)
+                record.put(NULL);
+            else
+                putLong(record, maximum);
+
+            record.put(TIMESTAMP);
+            putLong(record, System.currentTimeMillis());
+            record.put(RATE);
+            putRate(record, rate);
+            record.put(DONE).put(done ? TRUE : FALSE);
+            record.flip();
+
+            enqueue(record);
+        }
+    }
+
+    /*
+     * Returns the name as the UTF-8 bytes of the contents of a JSON string, truncated to MAX_NAME_BYTES at a character
+     * boundary.
+     */
+    static byte[] escape(final String name) {
+        final ByteBuffer buffer = ByteBuffer.allocate(MAX_NAME_BYTES);
+
+        for (int i = 0; i < name.length();) {
+            final int    codePoint = name.codePointAt(i);
+            final byte[] encoded;
+
+            if (codePoint == '"' || codePoint == '\\')
+                encoded = new byte[] { '\\', (byte) codePoint };
+            else if (codePoint < 0x20)
+                encoded = new byte[] { '\\', 'u', '0', '0', HEX[codePoint >> 4], HEX[codePoint & 0xF] };
+            else
+                encoded = new String(Character.toChars(codePoint)).getBytes(UTF_8);
+
+            if (encoded.length > buffer.remaining())
+                break;
+
+            buffer.put(encoded);
+            i += Character.charCount(codePoint);
+        }
+
+        buffer.flip();
+
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /*
+     * Writes a non-negative value in decimal.
+     */
+    static void putLong(final ByteBuffer buffer, final long value) {
+        long divisor = 1;
+
+        while (value / divisor >= 10)
+            divisor *= 10;
+
+        for (; divisor > 0; divisor /= 10)
+            buffer.put((byte) ('0' + value / divisor % 10));
+    }
+
+    /*
+     * Writes a non-negative rate with three decimal places. Rates which are not finite or too large to represent are
+     * written as 0.
+     */
+    static void putRate(final ByteBuffer buffer, final double rate) {
+        final double thousandths = Math.rint(rate * 1000);
+
+        if (!(thousandths >= 0 && thousandths < Long.MAX_VALUE)) {
+            buffer.put((byte) '0');
+            return;
+        }
+
+        final long value = (long) thousandths;
+
+        putLong(buffer, value / 1000);
+        buffer.put((byte) '.');
+
+        final long fraction = value % 1000;
+
+        buffer.put((byte) ('0' + fraction / 100)).put((byte) ('0' + fraction / 10 % 10)).put((byte) ('0' + fraction % 10));
+    }
+
+    /*
+     * Flushes the underlying stream after each write, which Channels.newChannel does not.
+     */
+    private static final class FlushingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        FlushingOutputStream(final OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            out.flush();
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package software.leonov.progress;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A single-threaded counter which accumulates increments locally and adds them to the progress count of a shared
+ * {@link ProgressMonitor} in batches.
+ * <p>
+ * Instances are obtained by calling {@link ProgressMonitor#newLocalCounter(long)}. Each {@code LocalCounter} should be
+ * owned by exactly one thread. The {@link #increment()} method is not synchronized and costs no more than a store and a
+ * comparison until the flush threshold is crossed, at which point the accumulated delta is added to the
+ * {@code ProgressMonitor}. A {@code LocalCounter} must be {@link #close() closed} when the owning thread is done with
+ * it:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * final ProgressMonitor progress = ProgressMonitor.concurrent().addProgressListener(event -> ...);
+ * ...
+ * // on each worker thread
+ * try (final LocalCounter counter = progress.newLocalCounter(1000)) {
+ *     while (...) {
+ *         ...
+ *         counter.increment();
+ *     }
+ * }
+ * ...
+ * progress.complete();
+ * </code></pre>
+ * <p>
+ * Any counts which have not been flushed when the {@code ProgressMonitor} is {@link ProgressMonitor#complete()
+ * completed} are drained by the completing thread.
+ *
+ * @author Zhenya Leonov
+ */
+public final class LocalCounter implements AutoCloseable {
+
+    private static final AtomicLongFieldUpdater<LocalCounter> COUNT   = AtomicLongFieldUpdater.newUpdater(LocalCounter.class, "count");
+    private static final AtomicLongFieldUpdater<LocalCounter> FLUSHED = AtomicLongFieldUpdater.newUpdater(LocalCounter.class, "flushed");
+
+    private static final long FLUSHING = Long.MIN_VALUE; // set on flushed while the owner is adding a delta to the monitor
+
+    private final ProgressMonitor monitor;
+    private final long            threshold;
+
+    /*
+     * count is only written by the owner thread. flushed may be advanced by the owner or by the thread which completes the
+     * monitor. The owner marks flushed as FLUSHING for as long as it takes to add the delta to the monitor (but not to
+     * publish it), so the completing thread never claims a delta which the owner has taken but not yet added.
+     */
+    private volatile long count   = 0;
+    private volatile long flushed = 0;
+    private long          next;
+    private boolean       closed  = false;
+
+    LocalCounter(final ProgressMonitor monitor, final long threshold) {
+        this.monitor   = monitor;
+        this.threshold = threshold;
+        this.next      = threshold;
+    }
+
+    /**
+     * Increments the local count by 1, adding the accumulated delta to the {@link ProgressMonitor} if the flush threshold
+     * has been crossed.
+     *
+     * @throws IllegalStateException    if this {@code LocalCounter} has been {@link #close() closed} or the
+     *                                  {@code ProgressMonitor} has {@link ProgressMonitor#complete() completed}
+     * @throws IllegalArgumentException if the new progress count > {@link ProgressMonitor#getMaximum() maximum}
+     */
+    public void increment() {
+        increment(1);
+    }
+
+    /**
+     * Increments the local count by the specified amount, adding the accumulated delta to the {@link ProgressMonitor} if
+     * the flush threshold has been crossed.
+     *
+     * @param delta the amount to add to the local count
+     * @throws IllegalStateException    if this {@code LocalCounter} has been {@link #close() closed} or the
+     *                                  {@code ProgressMonitor} has {@link ProgressMonitor#complete() completed}
+     * @throws IllegalArgumentException if {@code delta} < 0 or the new progress count >
+     *                                  {@link ProgressMonitor#getMaximum() maximum}
+     */
+    public void increment(final long delta) {
+        if (delta < 0)
+            throw new IllegalArgumentException("delta < 0");
+
+        final long count = this.count + delta;
+        COUNT.lazySet(this, count);
+
+        if (count >= next) {
+            next = count + threshold;
+            flush();
+        }
+    }
+
+    /**
+     * Returns the total number of increments counted by this {@code LocalCounter}, including those which have not been
+     * flushed.
+     *
+     * @return the total number of increments counted by this {@code LocalCounter}
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Adds the accumulated delta to the {@link ProgressMonitor}.
+     *
+     * @throws IllegalStateException    if this {@code LocalCounter} has been {@link #close() closed} or the
+     *                                  {@code ProgressMonitor} has {@link ProgressMonitor#complete() completed}
+     * @throws IllegalArgumentException if the new progress count > {@link ProgressMonitor#getMaximum() maximum}
+     */
+    public void flush() {
+        if (closed)
+            throw new IllegalStateException("counter has been closed");
+
+        drain();
+    }
+
+    /**
+     * {@link #flush() Flushes} the accumulated delta and detaches this {@code LocalCounter} from the
+     * {@link ProgressMonitor}. Calling this method multiple times is permitted and will have no subsequent effect.
+     *
+     * @throws IllegalStateException    if there are counts to flush and the {@code ProgressMonitor} has
+     *                                  {@link ProgressMonitor#complete() completed}
+     * @throws IllegalArgumentException if the new progress count > {@link ProgressMonitor#getMaximum() maximum}
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        closed = true;
+
+        try {
+            drain();
+        } finally {
+            monitor.closed(this);
+        }
+    }
+
+    /*
+     * Called by the owner thread. The delta is only released once the monitor has accepted it, if the monitor has already
+     * completed it is left for seal().
+     */
+    private void drain() {
+        final long count   = this.count;
+        final long flushed = this.flushed;
+
+        if (count <= flushed)
+            return;
+
+        if (!FLUSHED.compareAndSet(this, flushed, flushed | FLUSHING)) // sealed by the completing thread
+            throw new IllegalStateException("operation has completed");
+
+        final long current;
+
+        try {
+            current = monitor.add(count - flushed);
+        } catch (final RuntimeException e) {
+            this.flushed = flushed;
+            throw e;
+        }
+
+        this.flushed = count;
+        monitor.added(current, current + count - flushed);
+    }
+
+    /*
+     * Called by the thread completing the monitor after it has been marked as completed, returns the delta which has not
+     * been added to the monitor. Waits out a concurrent drain(), which either added its delta before the monitor was
+     * completed or failed and released it.
+     */
+    long seal() {
+        long flushed;
+        long count;
+
+        do {
+            while ((flushed = this.flushed) < 0)
+                Thread.yield();
+
+            count = this.count;
+            if (count <= flushed)
+                return 0;
+        } while (!FLUSHED.compareAndSet(this, flushed, count));
+
+        return count - flushed;
+    }
+
+}
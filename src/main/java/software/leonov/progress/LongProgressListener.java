@@ -0,0 +1,33 @@
+package software.leonov.progress;
+
+/**
+ * A {@link ProgressListener} which receives the progress count and the maximum value as primitives.
+ * <p>
+ * {@link ProgressMonitor} invokes {@link #progressChanged(long, long)} directly instead of allocating a
+ * {@link ProgressEvent}, which makes listeners implementing this interface suitable for allocation sensitive code. The
+ * primitives cannot carry the {@link ProgressEvent#isMaximumProvisional() provisional} flag, so events whose maximum
+ * value is provisional are delivered through {@link #progressChanged(ProgressEvent)} instead.
+ * 
+ * @author Zhenya Leonov
+ */
+@FunctionalInterface
+public interface LongProgressListener extends ProgressListener {
+
+    /**
+     * Receives a progress change.
+     * 
+     * @param progress the current progress
+     * @param maximum  the maximum value or {@code -1} if the maximum value is not defined
+     */
+    public void progressChanged(final long progress, final long maximum);
+
+    /**
+     * {@inheritDoc} The default implementation invokes {@link #progressChanged(long, long)}, passing {@code -1} for a
+     * provisional maximum value, since it is not defined yet.
+     */
+    @Override
+    public default void progressChanged(final ProgressEvent event) {
+        progressChanged(event.getProgress(), event.isMaximumProvisional() ? -1 : event.getMaximum().orElse(-1));
+    }
+
+}
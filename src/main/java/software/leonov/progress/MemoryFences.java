@@ -0,0 +1,66 @@
+package software.leonov.progress;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Memory fences which order plain memory accesses, such as reads and writes of a {@code MappedByteBuffer}.
+ * <p>
+ * This is the Java 8 version of this class, which invokes the fences of {@code sun.misc.Unsafe}. The class is looked up
+ * reflectively because it is not part of the Java 8 platform API. The method handles are constants, so the JIT compiler
+ * reduces each call to the fence intrinsic. When the library is built on Java 11 or later it is replaced by a version
+ * which uses {@code VarHandle} fences in {@code META-INF/versions/11} of the multi-release jar. Both versions must declare
+ * the same methods.
+ *
+ * @author Zhenya Leonov
+ */
+final class MemoryFences {
+
+    private static final MethodHandle STORE_FENCE;
+    private static final MethodHandle LOAD_FENCE;
+
+    static {
+        try {
+            final Class<?> type  = Class.forName("sun.misc.Unsafe");
+            final Field    field = type.getDeclaredField("theUnsafe");
+
+            field.setAccessible(true);
+
+            final Object               unsafe = field.get(null);
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            STORE_FENCE = lookup.findVirtual(type, "storeFence", MethodType.methodType(void.class)).bindTo(unsafe);
+            LOAD_FENCE  = lookup.findVirtual(type, "loadFence", MethodType.methodType(void.class)).bindTo(unsafe);
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private MemoryFences() {
+    }
+
+    /*
+     * Neither loads nor stores before the fence are reordered with stores after the fence.
+     */
+    static void storeFence() {
+        try {
+            STORE_FENCE.invokeExact();
+        } catch (final Throwable e) { // cannot happen
+            throw new AssertionError(e);
+        }
+    }
+
+    /*
+     * Loads before the fence are not reordered with loads and stores after the fence.
+     */
+    static void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (final Throwable e) { // cannot happen
+            throw new AssertionError(e);
+        }
+    }
+
+}
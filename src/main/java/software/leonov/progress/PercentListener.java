@@ -6,6 +6,7 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.Locale;
+import java.util.function.LongSupplier;
 
 /**
  * A skeletal implementation of the {@code ProgressListener} interface which calculates the
@@ -19,7 +20,16 @@ import java.util.Locale;
  * to receive duplicate percent values and will never encounter zero as an input.
  * <p>
  * Using this listener when the maximum value is not {@link ProgressMonitor#setMaximum(long) specified} will lead to an
- * {@code IllegalStateException}.
+ * {@code IllegalStateException}, unless the maximum value is being {@link ProgressMonitor#setMaximumAsync(LongSupplier)
+ * computed}. Events without a maximum value are ignored while it is {@link ProgressEvent#isMaximumProvisional()
+ * provisional}. Percent values computed against a provisional maximum are never {@code 100}, which is reserved for the
+ * final maximum value, and are never followed by lower values: once the final maximum value arrives, values up to the
+ * highest provisional value already received are suppressed.
+ * <p>
+ * Formatting is only performed when the visible percent value changes. Each time the value is formatted this class
+ * computes the next progress count at which the formatted value will change, subsequent events below that count are
+ * discarded after a simple comparison. The {@code DecimalFormat} must not be modified after it has been passed to this
+ * class.
  * <p>
  * For example: <pre><code class="line-numbers match-braces language-java">
  *     ...
@@ -40,6 +50,13 @@ public abstract class PercentListener implements ProgressListener {
     private final DecimalFormat format;
     private String              last;
 
+    // the range of progress counts [from, to) which are known to format to an already handled value given the maximum
+    private long maximum = -1;
+    private long from    = 0;
+    private long to      = 0;
+
+    private double floor = 0D; // the highest value received while the maximum was provisional, 0 once surpassed
+
     /**
      * Creates a new {@link PercentListener} which formats the precent value to the nearest whole percent without decimal
      * places.
@@ -80,17 +97,104 @@ public abstract class PercentListener implements ProgressListener {
      */
     @Override
     public final void progressChanged(final ProgressEvent event) {
-        final long   max        = event.getMaximum().orElseThrow(() -> new IllegalStateException("maximum value undefined"));
-        final double percentage = (double) event.getProgress() / max * 100;
-        final String pct        = format.format(percentage);
+        final long    progress    = event.getProgress();
+        final long    maximum     = event.getMaximum().orElse(-1);
+        final boolean provisional = event.isMaximumProvisional();
+
+        if (maximum < 0) {
+            if (provisional)
+                return;
+            throw new IllegalStateException("maximum value undefined");
+        }
+
+        if (progress < to && progress >= from && maximum == this.maximum)
+            return;
+
+        final String pct   = format(progress, maximum);
+        final double value = parse(pct);
+
+        if (provisional && value >= 100D) // e.g. 99.6% rounded up, the final event may have the same count and maximum
+            return;
+
+        if (!pct.equals(last) && value > 0D && value > floor) {
+            last  = pct;
+            floor = provisional ? value : 0D;
+            progressChanged(pct);
+        }
+
+        this.maximum = maximum;
+        this.from    = progress;
+        this.to      = next(progress, maximum, pct, value);
+    }
+
+    /*
+     * Returns the smallest count greater than progress which does not format to pct. Formatting is monotonic in the
+     * progress count, so every count in between formats to pct. The boundary is computed from the fraction digits,
+     * multiplier and rounding mode of the format, and only needs to be verified by formatting the counts on either side of
+     * it. If the verification fails, for example because of the limited precision of doubles or a pattern with significant
+     * digits, the boundary is found using an exponential search followed by a binary search.
+     */
+    private long next(final long progress, final long maximum, final String pct, final double value) {
+        if (maximum == 0)
+            return progress;
+
+        final double resolution = Math.pow(10, -format.getMaximumFractionDigits()) / format.getMultiplier(); // in percent
+        final double counts     = maximum / 100D; // progress counts per percent
+        final double guess;
+
+        switch (format.getRoundingMode()) {
+        case DOWN:
+        case FLOOR: // changes once the next value is reached
+            guess = Math.ceil((value + resolution) * counts);
+            break;
+        case UP:
+        case CEILING: // changes once the value is exceeded
+            guess = Math.floor(value * counts) + 1;
+            break;
+        case HALF_DOWN: // changes once the midpoint is exceeded
+            guess = Math.floor((value + resolution / 2) * counts) + 1;
+            break;
+        default: // changes once the midpoint is reached, HALF_EVEN rounds a midpoint to the next value half of the time
+            guess = Math.ceil((value + resolution / 2) * counts);
+        }
+
+        long lo = progress; // always formats to pct
+        long hi = guess > progress && guess < Long.MAX_VALUE ? (long) guess : progress + 1;
+
+        while (format(hi, maximum).equals(pct)) {
+            final long stride = hi - progress;
+
+            if (stride > Long.MAX_VALUE - hi)
+                return Long.MAX_VALUE;
+
+            lo  = hi;
+            hi += stride;
+        }
+
+        if (hi - 1 > lo && format(hi - 1, maximum).equals(pct))
+            return hi;
+
+        while (hi - lo > 1) {
+            final long mid = lo + (hi - lo) / 2;
+
+            if (format(mid, maximum).equals(pct))
+                lo = mid;
+            else
+                hi = mid;
+        }
+
+        return hi;
+    }
+
+    private String format(final long progress, final long maximum) {
+        return format.format((double) progress / maximum * 100);
+    }
 
+    private double parse(final String pct) {
         try {
-            if (!pct.equals(last) && format.parse(pct).doubleValue() > 0D) {
-                last = pct;
-                progressChanged(pct);
-            }
+            return format.parse(pct).doubleValue();
         } catch (final ParseException e) {
-            // cannot happen
+            return 0D; // cannot happen
         }
     }
 
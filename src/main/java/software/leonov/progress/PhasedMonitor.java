@@ -0,0 +1,331 @@
+package software.leonov.progress;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks an operation which runs in sequential phases, such as scan, transform and write, as a single overall
+ * {@link ProgressMonitor} whose progress is proportional to the expected elapsed time.
+ * <p>
+ * Each phase is tracked by its own {@link ProgressMonitor#createChild(long) child} monitor, which is rolled up into the
+ * {@link #getMonitor() overall monitor} as a share of its {@link #SCALE maximum} value. The shares are learned from the
+ * durations of the phases in previous runs, which are kept in a small profile file: a phase which took 80% of the time
+ * of previous runs is allotted 80% of the overall progress. As a result a {@link PercentListener} added to the overall
+ * monitor reports an accurate percentage of the total time, and the {@link ProgressMonitor#getRateEstimate() rate
+ * estimate} of the overall monitor yields an accurate estimate of the time remaining, from the first phase onward:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * try (final PhasedMonitor job = PhasedMonitor.open(Paths.get("etl.profile"), "scan", "transform", "write")) {
+ *     job.getMonitor().addProgressListener(new PercentListener() { ... });
+ *
+ *     final ProgressMonitor scan = job.begin("scan").setMaximum(files);
+ *     ...
+ *     scan.complete();
+ *
+ *     final ProgressMonitor transform = job.begin("transform").setMaximum(records);
+ *     ...
+ * }
+ * </code></pre>
+ * <p>
+ * The duration of a phase is measured from the call to {@link #begin(String)} until its monitor completes. When the last
+ * phase completes the overall monitor is completed. When this {@code PhasedMonitor} is {@link #close() closed} the
+ * durations of the phases which completed are appended to the profile, which keeps the most recent
+ * {@link #HISTORY_SIZE} durations of each phase. Phases without any history, for example on the first run, are
+ * allotted the average share of the phases with history, or an equal share if there is no history at all.
+ * <p>
+ * The monitors are {@link ProgressMonitor#concurrent() concurrent}, so the phases may be updated by any number of
+ * threads. A phase contributes to the overall progress once its {@link ProgressMonitor#setMaximum(long) maximum} value
+ * is set.
+ *
+ * @author Zhenya Leonov
+ */
+public final class PhasedMonitor implements Closeable {
+
+    /**
+     * The maximum value of the overall monitor.
+     */
+    public static final long SCALE = 10000;
+
+    /**
+     * The number of durations kept in the profile for each phase.
+     */
+    public static final int HISTORY_SIZE = 10;
+
+    private final Path               profile;
+    private final Properties         history;
+    private final ProgressMonitor    monitor = ProgressMonitor.concurrent().setMaximum(SCALE);
+    private final Map<String, Phase> phases  = new LinkedHashMap<>();
+
+    private boolean closed = false;
+
+    private PhasedMonitor(final Path profile, final Properties history, final String[] names) {
+        this.profile = profile;
+        this.history = history;
+
+        final double[] expected = new double[names.length];
+        double         known    = 0;
+        int            count    = 0;
+
+        for (int i = 0; i < names.length; i++) {
+            expected[i] = average(history.getProperty(names[i]));
+
+            if (expected[i] > 0) {
+                known += expected[i];
+                count++;
+            }
+        }
+
+        final double fallback = count == 0 ? 1 : known / count;
+        double       total    = 0;
+
+        for (int i = 0; i < names.length; i++) {
+            if (!(expected[i] > 0))
+                expected[i] = fallback;
+
+            total += expected[i];
+        }
+
+        /*
+         * Every phase is allotted at least one unit, and the remaining units are divided in proportion to the expected
+         * durations using cumulative rounding so that the weights add up to SCALE exactly.
+         */
+        final long units      = SCALE - names.length;
+        double     cumulative = 0;
+        long       boundary   = 0;
+
+        for (int i = 0; i < names.length; i++) {
+            cumulative += expected[i];
+
+            final long next = i == names.length - 1 ? SCALE : Math.round(cumulative / total * units) + i + 1;
+
+            phases.put(names[i], new Phase(names[i], next - boundary));
+            boundary = next;
+        }
+    }
+
+    /**
+     * Creates a new {@code PhasedMonitor} for the specified phases, allotting each phase a share of the overall progress
+     * based on the durations recorded in the specified profile file. The file is created when this
+     * {@code PhasedMonitor} is {@link #close() closed} if it does not exist. Unreadable entries in the file are ignored.
+     *
+     * @param profile the profile file
+     * @param phases  the names of the phases, in the order in which they run
+     * @return a new {@code PhasedMonitor}
+     * @throws IllegalArgumentException if there are no phases, more than {@code SCALE} phases, or duplicate phase names
+     * @throws IOException              if an I/O error occurs reading the profile
+     */
+    public static PhasedMonitor open(final Path profile, final String... phases) throws IOException {
+        requireNonNull(profile, "profile == null");
+        requireNonNull(phases, "phases == null");
+        if (phases.length == 0)
+            throw new IllegalArgumentException("phases.length == 0");
+        if (phases.length > SCALE)
+            throw new IllegalArgumentException("phases.length > " + SCALE);
+        if (Arrays.stream(phases).map(phase -> requireNonNull(phase, "phase == null")).distinct().count() != phases.length)
+            throw new IllegalArgumentException("duplicate phase names");
+
+        final Properties history = new Properties();
+
+        try (final InputStream in = Files.newInputStream(profile)) {
+            history.load(in);
+        } catch (final NoSuchFileException e) {
+            // no previous runs
+        }
+
+        return new PhasedMonitor(profile, history, phases);
+    }
+
+    /**
+     * Returns the overall {@code ProgressMonitor}, whose maximum value is {@link #SCALE}.
+     *
+     * @return the overall {@code ProgressMonitor}
+     */
+    public ProgressMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Returns the share of the overall progress allotted to the specified phase.
+     *
+     * @param phase the name of the phase
+     * @return the share of the overall progress allotted to the specified phase, between {@code 0} and {@code 1}
+     * @throws IllegalArgumentException if there is no such phase
+     */
+    public double getShare(final String phase) {
+        return (double) phase(phase).weight / SCALE;
+    }
+
+    /**
+     * Starts timing the specified phase and returns its {@code ProgressMonitor}. The phase ends when the returned monitor
+     * {@link ProgressMonitor#complete() completes}.
+     *
+     * @param phase the name of the phase
+     * @return the {@code ProgressMonitor} of the specified phase
+     * @throws IllegalArgumentException if there is no such phase
+     * @throws IllegalStateException    if the phase has already begun
+     */
+    public synchronized ProgressMonitor begin(final String phase) {
+        final Phase p = phase(phase);
+
+        if (p.startedAt != 0)
+            throw new IllegalStateException("phase " + phase + " has already begun");
+
+        p.startedAt = System.nanoTime();
+        return p.monitor;
+    }
+
+    /**
+     * Appends the durations of the phases which have completed to the profile. The profile is replaced atomically, so a
+     * crash leaves either the old or the new profile intact. The overall monitor is not completed. Calling this method
+     * multiple times is permitted and will have no subsequent effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+
+        boolean changed = false;
+
+        for (final Phase phase : phases.values())
+            if (phase.duration > 0) {
+                history.setProperty(phase.name, append(history.getProperty(phase.name), TimeUnit.NANOSECONDS.toMillis(phase.duration)));
+                changed = true;
+            }
+
+        if (!changed)
+            return;
+
+        final Path temp = profile.resolveSibling(profile.getFileName() + ".tmp");
+
+        try (final OutputStream out = Files.newOutputStream(temp)) {
+            history.store(out, "phase durations in milliseconds, most recent last");
+        }
+
+        Files.move(temp, profile, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    private Phase phase(final String name) {
+        requireNonNull(name, "phase == null");
+
+        final Phase phase = phases.get(name);
+
+        if (phase == null)
+            throw new IllegalArgumentException("unknown phase: " + name);
+
+        return phase;
+    }
+
+    private synchronized void completed(final Phase phase) {
+        if (phase.ended)
+            return;
+
+        phase.ended = true;
+
+        if (phase.startedAt != 0)
+            phase.duration = Math.max(1, System.nanoTime() - phase.startedAt);
+
+        for (final Phase p : phases.values())
+            if (!p.monitor.isDone())
+                return;
+
+        monitor.complete();
+    }
+
+    /*
+     * Returns the mean of the comma separated durations, or 0 if there are none or they cannot be parsed.
+     */
+    private static double average(final String durations) {
+        if (durations == null)
+            return 0;
+
+        long sum   = 0;
+        int  count = 0;
+
+        for (final String duration : durations.split(","))
+            try {
+                final long value = Long.parseLong(duration.trim());
+
+                if (value > 0) {
+                    sum += value;
+                    count++;
+                }
+            } catch (final NumberFormatException e) {
+                // ignored
+            }
+
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /*
+     * Appends the duration to the comma separated durations, keeping the most recent HISTORY_SIZE durations.
+     */
+    private static String append(final String durations, final long duration) {
+        final Deque<String> recent = new ArrayDeque<>();
+
+        if (durations != null)
+            for (final String d : durations.split(","))
+                if (!d.trim().isEmpty())
+                    recent.add(d.trim());
+
+        recent.add(Long.toString(Math.max(1, duration)));
+
+        while (recent.size() > HISTORY_SIZE)
+            recent.removeFirst();
+
+        return String.join(",", recent);
+    }
+
+    private final class Phase implements LongProgressListener, CompletionListener {
+
+        private final String          name;
+        private final ProgressMonitor monitor;
+        private final long            weight;
+
+        // guarded by the PhasedMonitor
+        private long    startedAt = 0;
+        private long    duration  = 0; // 0 until the phase ends, or if it ended without having begun
+        private boolean ended     = false;
+
+        Phase(final String name, final long weight) {
+            this.name    = name;
+            this.weight  = weight;
+            this.monitor = PhasedMonitor.this.monitor.createChild(weight).setName(name).addProgressListener(this);
+        }
+
+        @Override
+        public void progressChanged(final long progress, final long maximum) { // the final event arrives via completed()
+        }
+
+        @Override
+        public void progressChanged(final ProgressEvent event) {
+            if (event.isDone())
+                PhasedMonitor.this.completed(this);
+        }
+
+        @Override
+        public void completed(final long progress, final long maximum) {
+            PhasedMonitor.this.completed(this);
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Merges the progress reported by {@link ProgressReporter}s on any number of nodes into a single
+ * {@link ProgressMonitor#concurrent() concurrent} {@link ProgressMonitor}.
+ * <p>
+ * The aggregator receives datagrams on a dedicated thread. Each datagram carries the absolute progress of a node along
+ * with a per-node sequence number, datagrams which are not newer than the last one received from the node are
+ * discarded as duplicates or as having been reordered in transit. The difference between the progress of the node and
+ * the last progress received from it is added to the {@link #getMonitor() merged monitor}, so listeners such as
+ * {@link PercentListener} can be added to it as if it were updated locally:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * final ProgressAggregator aggregator = ProgressAggregator.open(new InetSocketAddress(7070), nodes);
+ * aggregator.getMonitor().addProgressListener(new PercentListener() { ... });
+ * </code></pre>
+ * <p>
+ * If the number of nodes is known, the merged monitor is not updated until every node has reported, at which point its
+ * maximum value is set to the sum of the maximum values of the nodes, so percentages never go backwards as nodes join.
+ * The merged monitor is {@link ProgressMonitor#complete() completed} once every node has completed. If the number of nodes is not known, the maximum value is updated as nodes report
+ * their maximum values and the merged monitor must be completed by the caller. Listeners of the merged monitor are
+ * invoked by the aggregator's thread.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressAggregator implements Closeable {
+
+    private final DatagramChannel channel;
+    private final ProgressMonitor monitor = ProgressMonitor.concurrent();
+    private final int             nodes;
+    private final Thread          receiver;
+
+    // confined to the receiver thread
+    private final Map<Long, Node> states = new HashMap<>();
+    private long                  maximum;     // the sum of the maximum values of the nodes which have reported one
+    private int                   defined;     // the number of nodes which have reported a maximum value
+    private int                   done;        // the number of nodes which have completed
+    private long                  unapplied;   // progress received but not yet added to the merged monitor
+
+    private ProgressAggregator(final DatagramChannel channel, final int nodes) {
+        this.channel  = channel;
+        this.nodes    = nodes;
+        this.receiver = new Thread(this::receive, "progress-aggregator");
+
+        receiver.setDaemon(true);
+    }
+
+    /**
+     * Creates a new {@code ProgressAggregator} which receives datagrams on the specified address from the specified
+     * number of nodes.
+     *
+     * @param address the address to bind to
+     * @param nodes   the number of nodes or {@code 0} if unknown
+     * @return a new {@code ProgressAggregator}
+     * @throws IllegalArgumentException if {@code nodes} < 0
+     * @throws IOException              if an I/O error occurs
+     */
+    public static ProgressAggregator open(final SocketAddress address, final int nodes) throws IOException {
+        requireNonNull(address, "address == null");
+        if (nodes < 0)
+            throw new IllegalArgumentException("nodes < 0");
+
+        final DatagramChannel channel = DatagramChannel.open();
+
+        try {
+            channel.bind(address);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        final ProgressAggregator aggregator = new ProgressAggregator(channel, nodes);
+        aggregator.receiver.start();
+        return aggregator;
+    }
+
+    /**
+     * Returns the merged {@code ProgressMonitor}.
+     *
+     * @return the merged {@code ProgressMonitor}
+     */
+    public ProgressMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Returns the address this aggregator is bound to, which is useful when it was bound to an ephemeral port.
+     *
+     * @return the address this aggregator is bound to
+     * @throws IOException if an I/O error occurs
+     */
+    public SocketAddress getLocalAddress() throws IOException {
+        return channel.getLocalAddress();
+    }
+
+    /**
+     * Stops receiving datagrams. The merged monitor is not completed. Calling this method multiple times is permitted and
+     * will have no subsequent effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void receive() {
+        final ByteBuffer packet = ByteBuffer.allocateDirect(ProgressReporter.PACKET_SIZE);
+
+        try {
+            while (true) {
+                packet.clear();
+                channel.receive(packet);
+                packet.flip();
+
+                if (packet.remaining() == ProgressReporter.PACKET_SIZE && packet.getInt() == ProgressReporter.MAGIC)
+                    try {
+                        received(packet.getLong(), packet.getLong(), packet.getLong(), packet.getLong(), packet.get() == ProgressReporter.DONE);
+                    } catch (final RuntimeException e) {
+                        final Thread thread = Thread.currentThread();
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                    }
+            }
+        } catch (final ClosedChannelException e) {
+            // closed
+        } catch (final IOException e) {
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private void received(final long id, final long sequence, final long progress, final long maximum, final boolean completed) {
+        Node node = states.get(id);
+
+        if (node == null) {
+            if (nodes > 0 && states.size() == nodes) // a node which does not belong to this job
+                return;
+
+            states.put(id, node = new Node());
+        }
+
+        if (sequence <= node.sequence || monitor.isDone())
+            return;
+
+        node.sequence = sequence;
+
+        final long delta = Math.max(0, progress - node.progress);
+
+        node.progress = Math.max(progress, node.progress);
+        unapplied    += delta;
+
+        if (maximum >= 0 && maximum != node.maximum) {
+            if (node.maximum < 0)
+                defined++;
+
+            this.maximum += maximum - Math.max(0, node.maximum);
+            node.maximum  = maximum;
+        }
+
+        if (completed && !node.done) {
+            node.done = true;
+            done++;
+        }
+
+        if (nodes > 0 && states.size() < nodes) // wait until every node has reported
+            return;
+
+        if (nodes == 0 ? defined > 0 : defined == nodes)
+            monitor.setMaximum(Math.max(1, Math.max(this.maximum, monitor.getProgress() + unapplied)));
+
+        final long unapplied = this.unapplied;
+
+        this.unapplied = 0;
+        monitor.increment(unapplied);
+
+        if (nodes > 0 && done == nodes)
+            monitor.complete();
+    }
+
+    private static final class Node {
+        private long    sequence = 0;
+        private long    progress = 0;
+        private long    maximum  = -1;
+        private boolean done     = false;
+    }
+
+}
@@ -0,0 +1,106 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Static utility methods for transferring data between channels while tracking the number of bytes transferred with a
+ * {@link ProgressMonitor}.
+ * <p>
+ * The transfer methods delegate to {@link FileChannel#transferTo(long, long, WritableByteChannel)} and
+ * {@link FileChannel#transferFrom(ReadableByteChannel, long, long)}, which allow the operating system to move the data
+ * without copying it through the Java heap. Data is moved in chunks of {@link #CHUNK_SIZE} bytes, the progress count
+ * is updated after each chunk.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressChannels {
+
+    /**
+     * The maximum number of bytes transferred between progress updates.
+     */
+    public static final long CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private ProgressChannels() {
+    }
+
+    /**
+     * Transfers all remaining bytes from the current position of the source file to the target channel. The
+     * {@link ProgressMonitor#getMaximum() maximum} value of the {@code ProgressMonitor} is set to the current progress
+     * count plus the number of bytes to transfer if it is not already defined.
+     * 
+     * @param source   the source file
+     * @param target   the target channel
+     * @param progress the {@code ProgressMonitor} to update
+     * @return the number of bytes transferred
+     * @throws IOException if an I/O error occurs
+     */
+    public static long transferTo(final FileChannel source, final WritableByteChannel target, final ProgressMonitor progress) throws IOException {
+        requireNonNull(source, "source == null");
+        requireNonNull(target, "target == null");
+        requireNonNull(progress, "progress == null");
+
+        final long start = source.position();
+        final long size  = source.size();
+
+        progress.setMaximumIfUndefined(size - start);
+
+        long position = start;
+
+        while (position < size) {
+            final long count = source.transferTo(position, Math.min(CHUNK_SIZE, size - position), target);
+
+            if (count <= 0) // the target channel cannot accept any more bytes
+                break;
+
+            position += count;
+            progress.increment(count);
+        }
+
+        source.position(position);
+        return position - start;
+    }
+
+    /**
+     * Transfers up to {@code count} bytes from the source channel to the current position of the target file. The
+     * {@link ProgressMonitor#getMaximum() maximum} value of the {@code ProgressMonitor} is set to the current progress
+     * count plus {@code count} if it is not already defined.
+     * 
+     * @param source   the source channel
+     * @param target   the target file
+     * @param count    the maximum number of bytes to transfer
+     * @param progress the {@code ProgressMonitor} to update
+     * @return the number of bytes transferred
+     * @throws IOException if an I/O error occurs
+     */
+    public static long transferFrom(final ReadableByteChannel source, final FileChannel target, final long count, final ProgressMonitor progress) throws IOException {
+        requireNonNull(source, "source == null");
+        requireNonNull(target, "target == null");
+        requireNonNull(progress, "progress == null");
+        if (count < 0)
+            throw new IllegalArgumentException("count < 0");
+
+        progress.setMaximumIfUndefined(count);
+
+        final long start    = target.position();
+        long       position = start;
+
+        while (position - start < count) {
+            final long transferred = target.transferFrom(source, position, Math.min(CHUNK_SIZE, count - (position - start)));
+
+            if (transferred <= 0) // end of stream
+                break;
+
+            position += transferred;
+            progress.increment(transferred);
+        }
+
+        target.position(position);
+        return position - start;
+    }
+
+}
@@ -23,4 +23,36 @@ public interface ProgressEvent {
      */
     public OptionalLong getMaximum();
 
+    /**
+     * Returns {@code true} if the {@link #getMaximum() maximum value} is a provisional estimate, which may change once the
+     * actual maximum value has been computed. The default implementation returns {@code false}.
+     * 
+     * @return {@code true} if the maximum value is a provisional estimate
+     * @see ProgressMonitor#setMaximumAsync(java.util.concurrent.CompletionStage)
+     */
+    public default boolean isMaximumProvisional() {
+        return false;
+    }
+
+    /**
+     * Returns the {@link RateEstimate} computed when this event was published. The default implementation returns an
+     * estimate with a rate of zero and no time remaining.
+     * 
+     * @return the {@link RateEstimate} computed when this event was published
+     */
+    public default RateEstimate getRateEstimate() {
+        return RateEstimate.UNKNOWN;
+    }
+
+    /**
+     * Returns {@code true} if this event was published when the operation {@link ProgressMonitor#complete() completed}.
+     * Unlike {@link ProgressMonitor#isDone()}, the result does not change while an event is being
+     * {@link ProgressMonitor#dispatchAsync() delivered asynchronously}. The default implementation returns {@code false}.
+     * 
+     * @return {@code true} if this event was published when the operation completed
+     */
+    public default boolean isDone() {
+        return false;
+    }
+
 }
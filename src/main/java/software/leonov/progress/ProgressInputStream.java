@@ -0,0 +1,151 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+/**
+ * An {@code InputStream} which adds the number of bytes read or skipped to the progress count of a
+ * {@link ProgressMonitor}.
+ * <p>
+ * If the length of the underlying stream is known and the {@code ProgressMonitor} does not define a
+ * {@link ProgressMonitor#getMaximum() maximum} value, the maximum is set to the current progress count plus the length
+ * of the stream. The {@link #of(Path, ProgressMonitor, OpenOption...)} and {@link #of(URLConnection, ProgressMonitor)}
+ * methods determine the length from the file size and the content length respectively:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * try (final InputStream in = ProgressInputStream.of(connection, progress)) {
+ *     Files.copy(in, path);
+ * }
+ * progress.complete();
+ * </code></pre>
+ * <p>
+ * The only overhead per read is a single {@link ProgressMonitor#increment(long)} call. This stream does not support
+ * {@link #mark(int)} and {@link #reset()} because re-reading data would be counted twice.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressInputStream extends FilterInputStream {
+
+    private final ProgressMonitor progress;
+
+    /**
+     * Creates a new {@code ProgressInputStream} which does not set the maximum value of the specified
+     * {@code ProgressMonitor}.
+     * 
+     * @param in       the underlying input stream
+     * @param progress the {@code ProgressMonitor} to update
+     */
+    public ProgressInputStream(final InputStream in, final ProgressMonitor progress) {
+        this(in, progress, -1);
+    }
+
+    /**
+     * Creates a new {@code ProgressInputStream} of the specified length.
+     * 
+     * @param in       the underlying input stream
+     * @param progress the {@code ProgressMonitor} to update
+     * @param length   the number of bytes in the underlying stream or {@code -1} if unknown
+     */
+    public ProgressInputStream(final InputStream in, final ProgressMonitor progress, final long length) {
+        super(requireNonNull(in, "in == null"));
+        requireNonNull(progress, "progress == null");
+        this.progress = progress;
+        progress.setMaximumIfUndefined(length);
+    }
+
+    /**
+     * Opens the specified file and returns a new {@code ProgressInputStream} whose length is the size of the file.
+     * 
+     * @param path     the path to the file
+     * @param progress the {@code ProgressMonitor} to update
+     * @param options  options specifying how the file is opened
+     * @return a new {@code ProgressInputStream} whose length is the size of the file
+     * @throws IOException if an I/O error occurs
+     */
+    public static ProgressInputStream of(final Path path, final ProgressMonitor progress, final OpenOption... options) throws IOException {
+        requireNonNull(path, "path == null");
+
+        final InputStream in = Files.newInputStream(path, options);
+
+        try {
+            return new ProgressInputStream(in, progress, Files.size(path));
+        } catch (final IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a new {@code ProgressInputStream} which reads from the specified connection and whose length is the
+     * {@link URLConnection#getContentLengthLong() content length} of the connection, if known.
+     * 
+     * @param connection the connection to read from
+     * @param progress   the {@code ProgressMonitor} to update
+     * @return a new {@code ProgressInputStream} which reads from the specified connection
+     * @throws IOException if an I/O error occurs
+     */
+    public static ProgressInputStream of(final URLConnection connection, final ProgressMonitor progress) throws IOException {
+        requireNonNull(connection, "connection == null");
+
+        final InputStream in = connection.getInputStream();
+
+        try {
+            return new ProgressInputStream(in, progress, connection.getContentLengthLong());
+        } catch (final RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = in.read();
+
+        if (b != -1)
+            progress.increment();
+
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int count = in.read(b, off, len);
+
+        if (count > 0)
+            progress.increment(count);
+
+        return count;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long count = in.skip(n);
+
+        if (count > 0)
+            progress.increment(count);
+
+        return count;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(final int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+}
@@ -0,0 +1,371 @@
+package software.leonov.progress;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link ProgressListener} which appends a checkpoint record of each {@link ProgressEvent} to a journal file, so that
+ * a {@link ProgressMonitor} can be {@link ProgressMonitor#resumeFrom(Path) resumed} after the process dies.
+ * <p>
+ * Each record holds the progress count, the maximum value and the wall-clock time of the event in a fixed number of
+ * bytes, followed by a checksum which allows torn or partially synced records to be detected and skipped. Records are
+ * buffered and written in batches once the {@link #setBatchSize(int) batch} is full or the
+ * {@link #setWriteInterval(Duration) write interval} has elapsed. The journal is {@link FileChannel#force(boolean)
+ * synced} at most once per {@link #setSyncInterval(Duration) sync interval}, so the cost of fsync is paid on a small
+ * fraction of events. Since only the latest record is needed to resume, the journal is compacted to a single record
+ * once it holds {@link #setMaxRecords(int) too many} records.
+ * <p>
+ * Writes, syncs and compactions are performed by the thread which delivers the event, which is the thread updating the
+ * {@code ProgressMonitor} unless it {@link ProgressMonitor#dispatchAsync() dispatches events asynchronously}. For
+ * {@link ProgressMonitor#concurrent() concurrent} and sampled monitors this happens while the monitor's publishing lock
+ * is held, so other threads crossing a step boundary wait for the I/O as well. Monitors whose operation must not wait
+ * for the disk should dispatch events asynchronously.
+ * <p>
+ * Records which have been buffered but not written when the process dies are lost. The journal therefore resumes from
+ * a progress count which may be behind the actual progress, but never ahead of it:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * final ProgressMonitor progress = new ProgressMonitor().resumeFrom(path);
+ *
+ * try (final ProgressJournal journal = ProgressJournal.open(path)) {
+ *     progress.addProgressListener(journal);
+ *     ... // skip the first progress.getProgress() items
+ *     progress.complete();
+ * }
+ * </code></pre>
+ * <p>
+ * A {@code ProgressJournal} should be added to a single {@code ProgressMonitor}. A provisional maximum value is
+ * recorded as undefined, so it is not restored as the maximum value. Events received after the journal has been
+ * {@link #close() closed} are ignored. I/O errors encountered while handling events are rethrown as
+ * {@code UncheckedIOException}s.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressJournal implements LongProgressListener, Closeable {
+
+    /**
+     * The size of a record in bytes.
+     */
+    public static final int RECORD_SIZE = 32;
+
+    /**
+     * The default number of records written in a single batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    /**
+     * The default maximum number of records in the journal before it is compacted.
+     */
+    public static final int DEFAULT_MAX_RECORDS = 4096;
+
+    /**
+     * The default maximum amount of time a record is buffered before it is written.
+     */
+    public static final Duration DEFAULT_WRITE_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * The default minimum amount of time between syncs.
+     */
+    public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofSeconds(10);
+
+    private final Path  path;
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private ByteBuffer  buffer;
+    private long        records;       // the number of records in the file
+    private long        progress = -1; // the latest record
+    private long        maximum;
+    private long        timestamp;
+
+    private int  maxRecords    = DEFAULT_MAX_RECORDS;
+    private long writeInterval = DEFAULT_WRITE_INTERVAL.toNanos();
+    private long syncInterval  = DEFAULT_SYNC_INTERVAL.toNanos();
+    private long bufferedAt;
+    private long syncedAt;
+    private long unsynced;             // the number of records written since the last sync
+
+    private ProgressJournal(final Path path, final FileChannel channel) throws IOException {
+        this.path    = path;
+        this.channel = channel;
+        this.buffer  = ByteBuffer.allocateDirect(DEFAULT_BATCH_SIZE * RECORD_SIZE);
+
+        final long size = channel.size();
+
+        if (size % RECORD_SIZE != 0) // a torn record at the end of the journal
+            channel.truncate(size - size % RECORD_SIZE);
+
+        this.records  = channel.size() / RECORD_SIZE;
+        this.syncedAt = System.nanoTime();
+    }
+
+    /**
+     * Opens the specified journal file for appending, creating it if it does not exist.
+     *
+     * @param path the journal file
+     * @return a new {@code ProgressJournal}
+     * @throws IOException if an I/O error occurs
+     */
+    public static ProgressJournal open(final Path path) throws IOException {
+        requireNonNull(path, "path == null");
+
+        final FileChannel channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+
+        try {
+            return new ProgressJournal(path, channel);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sets the number of records written in a single batch. Any buffered records are written first.
+     *
+     * @param batchSize the number of records written in a single batch
+     * @throws IllegalArgumentException if {@code batchSize} < 1
+     * @return this {@code ProgressJournal} instance
+     */
+    public synchronized ProgressJournal setBatchSize(final int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize < 1");
+
+        write();
+        buffer = ByteBuffer.allocateDirect(batchSize * RECORD_SIZE);
+
+        return this;
+    }
+
+    /**
+     * Sets the maximum amount of time a record is buffered before it is written. Since records are only written as events
+     * are received, the interval is checked when the next event arrives. The write, and the sync if one is due, block the
+     * thread delivering that event.
+     *
+     * @param interval the maximum amount of time a record is buffered before it is written
+     * @throws IllegalArgumentException if {@code interval} is negative
+     * @return this {@code ProgressJournal} instance
+     */
+    public synchronized ProgressJournal setWriteInterval(final Duration interval) {
+        requireNonNull(interval, "interval == null");
+        if (interval.isNegative())
+            throw new IllegalArgumentException("interval < 0");
+
+        writeInterval = interval.toNanos();
+        return this;
+    }
+
+    /**
+     * Sets the minimum amount of time between syncs. If the interval is zero the journal is synced after every write.
+     * Syncs block the thread delivering the event which triggered the write.
+     *
+     * @param interval the minimum amount of time between syncs
+     * @throws IllegalArgumentException if {@code interval} is negative
+     * @return this {@code ProgressJournal} instance
+     */
+    public synchronized ProgressJournal setSyncInterval(final Duration interval) {
+        requireNonNull(interval, "interval == null");
+        if (interval.isNegative())
+            throw new IllegalArgumentException("interval < 0");
+
+        syncInterval = interval.toNanos();
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of records in the journal. Once the journal holds this many records it is compacted to the
+     * latest record.
+     *
+     * @param maxRecords the maximum number of records in the journal
+     * @throws IllegalArgumentException if {@code maxRecords} < 2
+     * @return this {@code ProgressJournal} instance
+     */
+    public synchronized ProgressJournal setMaxRecords(final int maxRecords) {
+        if (maxRecords < 2)
+            throw new IllegalArgumentException("maxRecords < 2");
+
+        this.maxRecords = maxRecords;
+        return this;
+    }
+
+    @Override
+    public synchronized void progressChanged(final long progress, final long maximum) {
+        if (channel == null) // closed while still added to the monitor
+            return;
+
+        final long now = System.nanoTime();
+
+        this.progress  = progress;
+        this.maximum   = maximum;
+        this.timestamp = System.currentTimeMillis();
+
+        if (buffer.position() == 0)
+            bufferedAt = now;
+
+        encode(buffer, progress, maximum, timestamp);
+
+        if (!buffer.hasRemaining() || now - bufferedAt >= writeInterval)
+            write();
+    }
+
+    /**
+     * Writes all buffered records and syncs the journal.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void flush() throws IOException {
+        if (channel == null)
+            throw new IllegalStateException("journal has been closed");
+
+        try {
+            write();
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        sync();
+    }
+
+    /**
+     * Writes all buffered records, syncs and closes the journal. Calling this method multiple times is permitted and will
+     * have no subsequent effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null)
+            return;
+
+        try {
+            flush();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /*
+     * Returns the progress count and maximum value of the latest valid record in the specified journal, or null if the
+     * journal does not exist or contains no valid records.
+     */
+    static long[] read(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, READ)) {
+            final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            final CRC32      crc    = new CRC32();
+
+            for (long position = channel.size() / RECORD_SIZE * RECORD_SIZE - RECORD_SIZE; position >= 0; position -= RECORD_SIZE) {
+                record.clear();
+
+                while (record.hasRemaining() && channel.read(record, position + record.position()) >= 0)
+                    ;
+
+                if (record.hasRemaining())
+                    continue;
+
+                crc.reset();
+                crc.update(record.array(), 0, RECORD_SIZE - 8);
+
+                if (record.getLong(RECORD_SIZE - 8) == crc.getValue())
+                    return new long[] { record.getLong(0), record.getLong(8) };
+            }
+
+            return null;
+        } catch (final NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void encode(final ByteBuffer buffer, final long progress, final long maximum, final long timestamp) {
+        final int position = buffer.position();
+        final int limit    = buffer.limit();
+
+        buffer.putLong(progress).putLong(maximum).putLong(timestamp);
+
+        crc.reset();
+        buffer.limit(buffer.position()).position(position);
+        crc.update(buffer);
+        buffer.limit(limit);
+
+        buffer.putLong(crc.getValue());
+    }
+
+    private void write() {
+        if (buffer.position() == 0)
+            return;
+
+        try {
+            buffer.flip();
+
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+
+            records  += (buffer.limit() / RECORD_SIZE);
+            unsynced += (buffer.limit() / RECORD_SIZE);
+
+            buffer.clear();
+
+            if (records >= maxRecords)
+                compact();
+            else if (System.nanoTime() - syncedAt >= syncInterval)
+                sync();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void sync() throws IOException {
+        if (unsynced > 0)
+            channel.force(false);
+
+        unsynced = 0;
+        syncedAt = System.nanoTime();
+    }
+
+    /*
+     * Replaces the journal with a new file holding only the latest record. The new file is synced before it atomically
+     * replaces the journal, so a crash during compaction leaves either the old or the new journal intact.
+     */
+    private void compact() throws IOException {
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        buffer.clear();
+        encode(buffer, progress, maximum, timestamp);
+        buffer.flip();
+
+        try (final FileChannel compacted = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                compacted.write(buffer);
+
+            compacted.force(false);
+        } finally {
+            buffer.clear();
+        }
+
+        Files.move(temp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+
+        channel.close();
+        channel = FileChannel.open(path, WRITE, APPEND);
+
+        records  = 1;
+        unsynced = 0;
+        syncedAt = System.nanoTime();
+    }
+
+}
@@ -2,9 +2,25 @@ package software.leonov.progress;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.OptionalLong;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A {@code ProgressMonitor} can be used to track the progress of a long running operation.
@@ -33,12 +49,24 @@ import java.util.OptionalLong;
  * The step size can be set to a constant value by calling {@link #setStepSize(long)}. A different maximum and minimum
  * range can be defined by calling {@link #setDynamicStepSize(long, long)}.
  * <p>
+ * Alternatively events can be published at a steady rate, regardless of the throughput of the operation, by calling
+ * {@link #setPublishInterval(Duration)}. Other strategies, such as publishing a fixed number of events over the course
+ * of the operation or keeping the cost of the listeners under a share of the CPU time, are available as
+ * {@link StepPolicy}s which can be set by calling {@link #setStepPolicy(StepPolicy)}. For the tightest loops,
+ * {@link #setSamplingInterval(Duration)} removes publishing from the updating thread altogether: the progress count is
+ * read and published by a scheduler thread instead.
+ * <p>
  * <b>Maximum value:</b>
  * <p>
  * Specifying the {@link #setMaximum(long) maximum} value is not mandatory. However, if specified, it's important to
  * note that the progress count cannot surpass the maximum value. If the initial value proves to be underestimated, it
  * should be adjusted to prevent an {@link IllegalArgumentException} when the progress count surpasses it.
  * <p>
+ * When the maximum value is expensive to compute, such as the size of a directory tree or of a paged query, it can be
+ * {@link #setMaximumAsync(LongSupplier) computed} concurrently with the operation itself. In the meantime listeners
+ * receive the best {@link #setEstimatedMaximum(long) estimate} so far, flagged as
+ * {@link ProgressEvent#isMaximumProvisional() provisional}.
+ * <p>
  * <b>Progress completion:</b>
  * <p>
  * In typical scenarios {@link #complete()} should be called when the operation has concluded. In cases where the
@@ -49,9 +77,10 @@ import java.util.OptionalLong;
  * <p>
  * <b>Thread safety:</b>
  * <p>
- * This class is not thread safe. In a concurrent environment access to this class must be synchronized externally.
- * Typically only the {@link #increment()} or {@link #setProgress(long)} method are called while the operation is in
- * progress. A simple synchronized block is usually sufficient to ensure thread safety for most use cases:
+ * Instances created with the {@link #ProgressMonitor() constructor} are not thread safe. In a concurrent environment
+ * access to such instances must be synchronized externally. Typically only the {@link #increment()} or
+ * {@link #setProgress(long)} method are called while the operation is in progress. A simple synchronized block is
+ * usually sufficient to ensure thread safety when contention is low:
  *
  * <pre><code class="line-numbers match-braces language-java">
  *     ...
@@ -60,6 +89,51 @@ import java.util.OptionalLong;
  *     }
  *     ...
  * </code></pre>
+ * <p>
+ * When many threads update the progress count, instances created with {@link #concurrent()} should be used instead.
+ * Concurrent instances update the progress count using a lock-free compare-and-set loop, so {@link #increment()} and
+ * {@link #setProgress(long)} never block. Only the thread which crosses a step boundary pays the cost of publishing the
+ * {@code ProgressEvent}. Events are delivered to listeners one at a time in increasing order of the progress count.
+ * <p>
+ * <b>Allocation:</b>
+ * <p>
+ * {@link #increment()} and {@link #setProgress(long)} do not allocate unless an event is published. When one is, a
+ * single {@code ProgressEvent} is allocated and shared by all plain {@code ProgressListener}s. Events are immutable and
+ * may be retained by listeners, so they are never reused. Listeners which implement {@link LongProgressListener}
+ * receive the progress count and the maximum value as primitives, and publishing to them allocates nothing. The progress
+ * count of every instance, including unsynchronized ones, is kept in a volatile field so that it can be read by a
+ * {@link #setSamplingInterval(Duration) sampling} thread. Unsynchronized instances update it with an ordered store,
+ * which is cheaper than a volatile write, at the cost of a few volatile reads per update.
+ * <p>
+ * <b>Asynchronous dispatch:</b>
+ * <p>
+ * By default listeners are invoked synchronously by the thread which updates the progress count. A slow listener will
+ * therefore slow down the operation itself. Calling {@link #dispatchAsync()} or {@link #dispatchAsync(Executor)} hands
+ * events off to a dispatcher thread instead. Events which are published faster than the listeners can handle them are
+ * coalesced so that only the latest one is delivered. The final event published by {@link #complete()} is always
+ * delivered, and events are always delivered in order.
+ * <p>
+ * <b>Child monitors:</b>
+ * <p>
+ * Operations which are split into sub-tasks can track each sub-task with its own {@link #createChild(long) child}
+ * {@code ProgressMonitor}. Each child has its own maximum value, and its progress is rolled up into this
+ * {@code ProgressMonitor} as a weighted fraction of that maximum:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * final ProgressMonitor progress = ProgressMonitor.concurrent().setMaximum(100).addProgressListener(...);
+ *
+ * final ProgressMonitor scan = progress.createChild(20).setMaximum(files);
+ * final ProgressMonitor copy = progress.createChild(80).setMaximum(bytes);
+ * </code></pre>
+ *
+ * <p>
+ * <b>Diagnostics:</b>
+ * <p>
+ * {@link #getStats()} returns a cheap snapshot of the number of updates, published and suppressed events, and the time
+ * spent in listeners. When a Java Flight Recorder recording is running on Java 11 or later,
+ * {@code software.leonov.progress.Publish} and {@code software.leonov.progress.Listener} events are emitted for every
+ * published event and listener invocation. The {@link #setName(String) name} of the {@code ProgressMonitor} is included
+ * in each event.
  *
  * @author Zhenya Leonov
  */
@@ -75,38 +149,261 @@ public final class ProgressMonitor {
      */
     public final static long DEFAULT_MAX_STEP_SIZE = 1000;
 
-    private long minStepSize;
-    private long maxStepSize;
+    /*
+     * The largest number of elements a tracked spliterator counts locally before adding them to the progress count.
+     */
+    private static final long MAX_TRACKING_BATCH_SIZE = 1024;
+
+    private static final double SMOOTHING_TIME_CONSTANT = RateEstimate.SMOOTHING_TIME_CONSTANT.toNanos();
+
+    /*
+     * The progress count and the done flag share a single word so that concurrent instances can update both atomically.
+     * The sign bit is set when the operation has completed, the remaining bits hold the progress count.
+     */
+    private static final long DONE = Long.MIN_VALUE;
+
+    private static final AtomicLongFieldUpdater<ProgressMonitor> STATE       = AtomicLongFieldUpdater.newUpdater(ProgressMonitor.class, "state");
+    private static final AtomicLongFieldUpdater<ProgressMonitor> CONTRIBUTED = AtomicLongFieldUpdater.newUpdater(ProgressMonitor.class, "contributed");
+
+    private volatile long state   = 0;
+    private volatile long step    = 0;
+    private volatile long maximum = -1; // -1 if undefined
+
+    private volatile StepPolicy policy; // invoked under lock in concurrent instances
+
+    // reported to listeners only while the maximum is undefined
+    private volatile long                  estimate = -1;   // the provisional maximum, -1 if undefined
+    private volatile CompletionStage<Long> pending  = null; // the maximum which is being computed asynchronously
+
+    // sampled instances only
+    private volatile long                     samplingInterval = 0; // in nanoseconds, 0 if not sampled
+    private volatile ScheduledExecutorService scheduler        = null;
+    private volatile Future<?>                sampler          = null; // null if events are published by the updating thread
+
+    // guarded by lock in concurrent instances
+    private long   last        = -1; // the last published progress count
+    private long   lastMaximum = -1; // the maximum value reported with the last event
+    private long   published;
+    private long   startedAt;
+    private long   ratedAt;
+    private long   ratedCount;
+    private double rate;
+    private double averageRate;
+    private long   heldProgress = 0; // the highest fraction reported against a provisional maximum, 0 if none
+    private long   heldMaximum  = 0;
+
+    private final boolean concurrent;
+    private final Object  lock = new Object();
 
-    private long         progress = 0;
-    private long         step     = 0;
-    private OptionalLong maximum  = OptionalLong.empty();
-    private boolean      done     = false;
+    private volatile ProgressListener[] listeners = new ProgressListener[0]; // copy-on-write, guarded by lock
+    private Set<LocalCounter>           counters  = null;                    // open local counters, guarded by lock
 
-    private final List<ProgressListener> listeners = new LinkedList<>();
+    private volatile AsyncDispatcher dispatcher = null;
+    private volatile String          name       = "";
+    private long                     delivered  = 0; // the sequence number of the last event delivered by the dispatcher
+
+    private long            updates           = 0; // unsynchronized instances only
+    private final LongAdder concurrentUpdates;     // concurrent instances only
+    private final LongAdder listenerTime      = new LongAdder();
+
+    // child monitors only
+    private final ProgressMonitor parent;
+    private final long            weight;
+    private volatile long         contributed = 0;              // the amount added to the progress count of the parent
+    private volatile long         rollupAt    = Long.MAX_VALUE; // the count at which the contribution will next change
 
     /**
      * Creates a new {@code ProgressMonitor} with the minimum and maximum step size set to {@link #DEFAULT_MIN_STEP_SIZE}
      * and {@link #DEFAULT_MAX_STEP_SIZE} respectively.
+     * <p>
+     * The returned instance is not thread safe. Use {@link #concurrent()} to create a {@code ProgressMonitor} which can be
+     * updated by multiple threads without external synchronization.
      */
     public ProgressMonitor() {
-        this.minStepSize = DEFAULT_MIN_STEP_SIZE;
-        this.maxStepSize = DEFAULT_MAX_STEP_SIZE;
-        this.step        = minStepSize;
+        this(false, null, 0);
+    }
+
+    private ProgressMonitor(final boolean concurrent, final ProgressMonitor parent, final long weight) {
+        this.concurrent        = concurrent;
+        this.concurrentUpdates = concurrent ? new LongAdder() : null;
+        this.parent            = parent;
+        this.weight            = weight;
+        this.policy            = StepPolicy.dynamic(DEFAULT_MIN_STEP_SIZE, DEFAULT_MAX_STEP_SIZE);
+        this.step              = policy.start(0, -1);
+
+        restartRate(System.nanoTime(), 0);
+    }
+
+    /**
+     * Creates a new thread safe {@code ProgressMonitor} with the minimum and maximum step size set to
+     * {@link #DEFAULT_MIN_STEP_SIZE} and {@link #DEFAULT_MAX_STEP_SIZE} respectively.
+     * <p>
+     * The progress count of the returned instance is updated using a lock-free compare-and-set loop, therefore
+     * {@link #increment()} and {@link #setProgress(long)} may be called from any number of threads without external
+     * synchronization and will never block. {@code ProgressEvent}s are published by the thread which crosses the step
+     * boundary and are delivered in increasing order of the progress count. The {@link #getMaximum() maximum} value and the
+     * step size should not be lowered while other threads are updating the progress count.
+     * 
+     * @return a new thread safe {@code ProgressMonitor}
+     */
+    public static ProgressMonitor concurrent() {
+        return new ProgressMonitor(true, null, 0);
+    }
+
+    /**
+     * Creates a new child {@code ProgressMonitor} whose progress is rolled up into the progress count of this
+     * {@code ProgressMonitor} as a weighted fraction.
+     * <p>
+     * Once the child's {@link #setMaximum(long) maximum} value is set, a progress count of {@code p} out of the maximum
+     * {@code m} contributes {@code weight * p / m} (rounded down) to the progress count of this {@code ProgressMonitor}.
+     * When the child {@link #complete() completes} it contributes the full {@code weight}, regardless of its progress. The
+     * contribution never decreases. If the child's maximum value is raised the contribution is held until the child's
+     * progress catches up with it. For the same reason the child cannot be {@link #reset() reset}.
+     * <p>
+     * Children propagate their progress lock-free, and only when their contribution changes by at least one unit. The
+     * cost of updating a child between contributions is a single comparison. Rolling up thousands of children therefore
+     * updates this {@code ProgressMonitor} no more often than the sum of their weights. The child is
+     * {@link #concurrent() concurrent} if this {@code ProgressMonitor} is concurrent. If children are updated by different
+     * threads this {@code ProgressMonitor} must be concurrent. The child has its own step size and listeners, which are
+     * independent of the parent.
+     * 
+     * @param weight the share of this {@code ProgressMonitor}'s progress count allotted to the child
+     * @throws IllegalArgumentException if {@code weight} < 1
+     * @return a new child {@code ProgressMonitor}
+     */
+    public ProgressMonitor createChild(final long weight) {
+        if (weight < 1)
+            throw new IllegalArgumentException("weight < 1");
+
+        return new ProgressMonitor(concurrent, this, weight);
     }
 
     /**
      * Adds the specified listener to handle {@link ProgressEvent}s.
+     * <p>
+     * Listeners which implement {@link LongProgressListener} receive the progress count and the maximum value as
+     * primitives, without a {@code ProgressEvent} being allocated on their behalf.
      * 
      * @param listener the listener to add
      * @return this {@code ProgressMonitor} instance
      */
     public ProgressMonitor addProgressListener(final ProgressListener listener) {
         requireNonNull(listener, "listener == null");
-        listeners.add(listener);
+
+        synchronized (lock) {
+            final ProgressListener[] listeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+            listeners[listeners.length - 1] = listener;
+            this.listeners = listeners;
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets the name of this {@code ProgressMonitor}, which is used to identify it in diagnostic output such as Java Flight
+     * Recorder events.
+     * 
+     * @param name the name of this {@code ProgressMonitor}
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor setName(final String name) {
+        requireNonNull(name, "name == null");
+        this.name = name;
         return this;
     }
 
+    /**
+     * Returns the name of this {@code ProgressMonitor}. The default name is an empty string.
+     * 
+     * @return the name of this {@code ProgressMonitor}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Delivers {@link ProgressEvent}s to listeners on a single dispatcher thread shared by all {@code ProgressMonitor}s,
+     * instead of on the thread which updates the progress count.
+     * <p>
+     * Events which are published while the listeners are still handling a previous event are coalesced so that only the
+     * latest one is delivered. The final event published by {@link #complete()} is always delivered. The dispatcher
+     * thread is not a daemon thread and terminates shortly after all pending events have been delivered.
+     * 
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor dispatchAsync() {
+        return dispatchAsync(AsyncDispatcher.shared());
+    }
+
+    /**
+     * Delivers {@link ProgressEvent}s to listeners using the specified {@code Executor}, instead of on the thread which
+     * updates the progress count.
+     * <p>
+     * At most one task per {@code ProgressMonitor} is submitted to the executor at any given time, so events are always
+     * delivered one at a time and in order, even if the executor is backed by a pool of threads. Events which are published
+     * while the listeners are still handling a previous event are coalesced so that only the latest one is delivered. The
+     * final event published by {@link #complete()} is always delivered, provided the executor runs all submitted tasks.
+     * 
+     * @param executor the executor used to deliver events
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor dispatchAsync(final Executor executor) {
+        requireNonNull(executor, "executor == null");
+        dispatcher = new AsyncDispatcher(executor, this);
+        return this;
+    }
+
+    /**
+     * Returns a stream which adds the number of elements consumed from the specified stream to the progress count of this
+     * {@code ProgressMonitor}. The returned stream is parallel if the specified stream is parallel.
+     * <p>
+     * See {@link #track(Spliterator)} for details. Closing the returned stream closes the specified stream.
+     * 
+     * @param <T>    the type of stream elements
+     * @param stream the stream to track
+     * @return a stream which adds the number of elements consumed to the progress count of this {@code ProgressMonitor}
+     */
+    public <T> Stream<T> track(final Stream<T> stream) {
+        requireNonNull(stream, "stream == null");
+        return StreamSupport.stream(track(stream.spliterator()), stream.isParallel()).onClose(stream::close);
+    }
+
+    /**
+     * Returns a spliterator which adds the number of elements traversed by the specified spliterator to the progress count
+     * of this {@code ProgressMonitor}.
+     * <p>
+     * Each split of the returned spliterator counts the elements of a bulk traversal locally and adds them to the progress
+     * count in batches, and once the traversal returns or throws. The per element overhead is therefore a local increment
+     * and a comparison, and splits traversed in parallel do not contend with each other. Elements traversed one at a time,
+     * by short-circuiting operations such as {@code anyMatch} or {@code limit} or by an iterator, are added to the
+     * progress count individually, since the traversal may be abandoned at any point. If the spliterator will be traversed
+     * by multiple threads, for example by a parallel stream, this {@code ProgressMonitor} must be
+     * {@link #concurrent() concurrent}.
+     * <p>
+     * If the spliterator is {@link Spliterator#SIZED SIZED} and the {@link #getMaximum() maximum} value is not defined, the
+     * maximum value is set to the current progress count plus the {@link Spliterator#estimateSize() size} of the
+     * spliterator.
+     * 
+     * @param <T>         the type of elements
+     * @param spliterator the spliterator to track
+     * @return a spliterator which adds the number of elements traversed to the progress count of this
+     *         {@code ProgressMonitor}
+     */
+    public <T> Spliterator<T> track(final Spliterator<T> spliterator) {
+        requireNonNull(spliterator, "spliterator == null");
+
+        long batchSize = MAX_TRACKING_BATCH_SIZE;
+
+        if (spliterator.hasCharacteristics(Spliterator.SIZED)) {
+            final long size = spliterator.estimateSize();
+
+            setMaximumIfUndefined(size);
+            batchSize = Math.max(1, Math.min(MAX_TRACKING_BATCH_SIZE, size / 1000));
+        }
+
+        return new ProgressSpliterator<>(spliterator, this, batchSize);
+    }
+
     /**
      * Sets the specified constant step size.
      * 
@@ -129,16 +426,105 @@ public final class ProgressMonitor {
      * @return this {@code ProgressMonitor} instance
      */
     public ProgressMonitor setDynamicStepSize(final long minStepSize, final long maxStepSize) {
-        if (minStepSize <= 0)
-            throw new IllegalArgumentException("minStepSize <= 0");
-        if (maxStepSize <= 0)
-            throw new IllegalArgumentException("maxStepSize <= 0");
-        if (maxStepSize < minStepSize)
-            throw new IllegalArgumentException("maxStepSize < minStepSize");
+        return setStepPolicy(StepPolicy.dynamic(minStepSize, maxStepSize));
+    }
 
-        this.minStepSize = minStepSize;
-        this.maxStepSize = maxStepSize;
-        this.step        = minStepSize;
+    /**
+     * Publishes {@link ProgressEvent}s at most once per the specified interval, instead of at step boundaries. This method
+     * overrides any previously set {@link #setStepSize(long) constant} or {@link #setDynamicStepSize(long, long) dynamic}
+     * step size, which in turn will override the publish interval.
+     * <p>
+     * To avoid reading the system clock on every update, the clock is checked only every few increments. The number of
+     * increments between checks adapts to the observed throughput, so that the clock is read a small, constant number of
+     * times per interval. Since events are only published as the progress count is updated, no events are published while
+     * the operation is stalled.
+     * 
+     * @param interval the minimum amount of time between events
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor setPublishInterval(final Duration interval) {
+        return setStepPolicy(StepPolicy.interval(interval));
+    }
+
+    /**
+     * Sets the {@link StepPolicy} which decides when {@link ProgressEvent}s are published as the progress count crosses
+     * step boundaries. This method overrides any previously set {@link #setStepSize(long) constant} or
+     * {@link #setDynamicStepSize(long, long) dynamic} step size, {@link #setPublishInterval(Duration) publish interval} or
+     * {@link #setSamplingInterval(Duration) sampling interval}, which in turn will override the policy.
+     * <p>
+     * The policy is {@link StepPolicy#start(long, long) started} from the current progress count, and restarted when this
+     * {@code ProgressMonitor} is {@link #reset() reset}. Stateful policies must not be shared between monitors.
+     * 
+     * @param policy the step policy
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor setStepPolicy(final StepPolicy policy) {
+        requireNonNull(policy, "policy == null");
+
+        stopSampling();
+
+        final long count = getProgress();
+
+        if (concurrent)
+            synchronized (lock) {
+                restartPolicy(policy, count);
+            }
+        else
+            restartPolicy(policy, count);
+
+        return this;
+    }
+
+    /**
+     * Publishes {@link ProgressEvent}s from a scheduler thread shared by all {@code ProgressMonitor}s, which reads the
+     * progress count at the specified fixed rate, instead of from the thread which updates the progress count.
+     * <p>
+     * See {@link #setSamplingInterval(Duration, ScheduledExecutorService)} for details. The shared scheduler thread is a
+     * daemon thread and terminates shortly after all sampled {@code ProgressMonitor}s have {@link #complete() completed}.
+     * 
+     * @param interval the amount of time between samples
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor setSamplingInterval(final Duration interval) {
+        return setSamplingInterval(interval, SharedScheduler.get());
+    }
+
+    /**
+     * Publishes {@link ProgressEvent}s from the specified scheduler, which reads the progress count at the specified fixed
+     * rate, instead of from the thread which updates the progress count. This method overrides any previously set
+     * {@link #setStepSize(long) constant} or {@link #setDynamicStepSize(long, long) dynamic} step size or
+     * {@link #setPublishInterval(Duration) publish interval}, which in turn will override the sampling interval.
+     * <p>
+     * In sampling mode {@link #increment()} and {@link #setProgress(long)} only update the progress count. They perform no
+     * step checks, never read the clock and never invoke listeners, and the updates are not counted by
+     * {@link #getStats()}. An event is published on each sample if the progress count has changed since the last event, so
+     * at most one event is published per interval. When this {@code ProgressMonitor} {@link #complete() completes}, the
+     * periodic task is cancelled and a final sample is taken synchronously by the completing thread. The periodic task is
+     * rescheduled if this {@code ProgressMonitor} is {@link #reset() reset}.
+     * <p>
+     * Since listeners are invoked by the scheduler, an unsynchronized {@code ProgressMonitor} may be sampled while a single
+     * thread updates the progress count.
+     * 
+     * @param interval  the amount of time between samples
+     * @param scheduler the scheduler used to sample the progress count
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor setSamplingInterval(final Duration interval, final ScheduledExecutorService scheduler) {
+        requireNonNull(interval, "interval == null");
+        requireNonNull(scheduler, "scheduler == null");
+        if (interval.isZero() || interval.isNegative())
+            throw new IllegalArgumentException("interval <= 0");
+
+        stopSampling();
+
+        this.samplingInterval = interval.toNanos();
+        this.scheduler        = scheduler;
+
+        if (state >= 0)
+            startSampling();
 
         return this;
     }
@@ -146,6 +532,9 @@ public final class ProgressMonitor {
     /**
      * Sets the maximum value. This method may be called more than once to reset the maximum value if this
      * {@code ProgressMonitor} has not {@link #complete() completed}.
+     * <p>
+     * If this is a {@link #createChild(long) child} {@code ProgressMonitor}, its progress count is rolled up into the
+     * parent relative to this value.
      * 
      * @param maximum the maximum value
      * @throws IllegalStateException    if this {@link ProgressMonitor} has {@link #complete() completed}
@@ -153,14 +542,21 @@ public final class ProgressMonitor {
      * @return this {@code ProgressMonitor} instance
      */
     public ProgressMonitor setMaximum(final long maximum) {
-        if (done)
+        final long current = state;
+
+        if (current < 0)
             throw new IllegalStateException("operation has completed");
         if (maximum < 1)
             throw new IllegalArgumentException("maximum < 1");
-        if (maximum < progress)
-            throw new IllegalArgumentException("maximum (" + maximum + ") < progress (" + progress + ")");
+        if (maximum < current)
+            throw new IllegalArgumentException("maximum (" + maximum + ") < progress (" + current + ")");
 
-        this.maximum = OptionalLong.of(maximum);
+        this.maximum = maximum;
+
+        if (parent != null) {
+            rollupAt = 0;
+            rollup(getProgress());
+        }
 
         return this;
     }
@@ -171,7 +567,112 @@ public final class ProgressMonitor {
      * @return the maximum value
      */
     public OptionalLong getMaximum() {
-        return maximum;
+        final long maximum = this.maximum;
+        return maximum < 0 ? OptionalLong.empty() : OptionalLong.of(maximum);
+    }
+
+    /**
+     * Sets a provisional estimate of the maximum value, which is reported to listeners until the maximum value is
+     * {@link #setMaximum(long) set}. This method may be called repeatedly to refine the estimate, for example while a
+     * directory tree is being walked concurrently with the operation itself.
+     * <p>
+     * Unlike the maximum value, the estimate does not limit the progress count. If the progress count reaches the
+     * estimate, the progress count plus one is reported as the maximum value until this {@code ProgressMonitor}
+     * {@link #complete() completes}. Events published while the maximum value is provisional are
+     * {@link ProgressEvent#isMaximumProvisional() flagged} as such. The estimate is not rolled up into the parent of a
+     * {@link #createChild(long) child} {@code ProgressMonitor}.
+     * 
+     * @param estimate the estimated maximum value
+     * @throws IllegalStateException    if this {@link ProgressMonitor} has {@link #complete() completed}
+     * @throws IllegalArgumentException if {@code estimate} < 0
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor setEstimatedMaximum(final long estimate) {
+        if (state < 0)
+            throw new IllegalStateException("operation has completed");
+        if (estimate < 0)
+            throw new IllegalArgumentException("estimate < 0");
+
+        this.estimate = estimate;
+        return this;
+    }
+
+    /**
+     * Computes the maximum value by invoking the specified supplier in the
+     * {@link java.util.concurrent.ForkJoinPool#commonPool() common pool} while the operation is already in progress. This
+     * is equivalent to calling {@code setMaximumAsync(CompletableFuture.supplyAsync(supplier::getAsLong))}.
+     * 
+     * @param supplier computes the maximum value
+     * @throws IllegalStateException if this {@link ProgressMonitor} has {@link #complete() completed}
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor setMaximumAsync(final LongSupplier supplier) {
+        requireNonNull(supplier, "supplier == null");
+
+        if (state < 0)
+            throw new IllegalStateException("operation has completed");
+
+        return setMaximumAsync(CompletableFuture.supplyAsync(supplier::getAsLong));
+    }
+
+    /**
+     * Computes the maximum value by invoking the specified supplier using the specified {@code Executor} while the operation
+     * is already in progress. This is equivalent to calling
+     * {@code setMaximumAsync(CompletableFuture.supplyAsync(supplier::getAsLong, executor))}.
+     * 
+     * @param supplier computes the maximum value
+     * @param executor the executor used to invoke the supplier
+     * @throws IllegalStateException if this {@link ProgressMonitor} has {@link #complete() completed}
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor setMaximumAsync(final LongSupplier supplier, final Executor executor) {
+        requireNonNull(supplier, "supplier == null");
+        requireNonNull(executor, "executor == null");
+
+        if (state < 0)
+            throw new IllegalStateException("operation has completed");
+
+        return setMaximumAsync(CompletableFuture.supplyAsync(supplier::getAsLong, executor));
+    }
+
+    /**
+     * Sets the maximum value to the result of the specified {@code CompletionStage} once it completes, for inputs whose size
+     * is expensive to compute. Until then the maximum value is provisional: the progress count is not limited and listeners
+     * receive the {@link #setEstimatedMaximum(long) estimated} maximum value, if any, in events which are
+     * {@link ProgressEvent#isMaximumProvisional() flagged} as provisional. A provisional maximum is always reported above
+     * the progress count, so the operation never appears complete before it {@link #complete() completes}, and the fraction
+     * of the reported maximum never goes backwards: if the final value is higher than the provisional one, the reported
+     * maximum is held below it until the progress count catches up. {@link PercentListener}s do not report percentages
+     * until an estimate is available.
+     * <p>
+     * If the computed value is less than the progress count the maximum value is set to the progress count. If the
+     * {@code CompletionStage} completes exceptionally or with {@code null} the maximum value is left undefined and the
+     * exception is passed to the uncaught exception handler of the completing thread. The result is ignored if this
+     * {@code ProgressMonitor} has completed in the meantime or if this method is called again before it arrives.
+     * 
+     * @param maximum the maximum value which is being computed
+     * @throws IllegalStateException if this {@link ProgressMonitor} has {@link #complete() completed}
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor setMaximumAsync(final CompletionStage<Long> maximum) {
+        requireNonNull(maximum, "maximum == null");
+
+        if (state < 0)
+            throw new IllegalStateException("operation has completed");
+
+        pending = maximum;
+        maximum.whenComplete((value, failure) -> computed(maximum, value, failure));
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the maximum value has not been {@link #setMaximum(long) set} but is being
+     * {@link #setMaximumAsync(CompletionStage) computed} or has been {@link #setEstimatedMaximum(long) estimated}.
+     * 
+     * @return {@code true} if the maximum value is provisional
+     */
+    public boolean isMaximumProvisional() {
+        return maximum < 0 && (pending != null || estimate >= 0);
     }
 
     /**
@@ -183,8 +684,62 @@ public final class ProgressMonitor {
      * @return the new progress count
      */
     public long increment() {
-        setProgress(progress + 1);
-        return getProgress();
+        return increment(1);
+    }
+
+    /**
+     * Increments the progress count by the specified amount, {@link ProgressListener#progressChanged(ProgressEvent)
+     * publishing} a {@link ProgressEvent} if necessary.
+     * 
+     * @param delta the amount to add to the progress count
+     * @throws IllegalStateException    if this {@link ProgressMonitor} has {@link #complete() completed}
+     * @throws IllegalArgumentException if {@code delta} < 0 or the new count > {@link #getMaximum() maximum}
+     * @return the new progress count
+     */
+    public long increment(final long delta) {
+        if (delta < 0)
+            throw new IllegalArgumentException("delta < 0");
+
+        final long current = add(delta);
+        final long count   = current + delta;
+
+        if (count != current)
+            added(current, count);
+
+        return count;
+    }
+
+    /**
+     * Returns a new {@link LocalCounter} which accumulates increments locally and adds them to the progress count of this
+     * {@code ProgressMonitor} in batches of at least {@code flushThreshold}.
+     * <p>
+     * A {@code LocalCounter} is intended to be owned by a single worker thread. It counts without synchronization and only
+     * touches this {@code ProgressMonitor} when the threshold is crossed or when it is {@link LocalCounter#close()
+     * closed}. Any counts which have not been flushed when this {@code ProgressMonitor} is {@link #complete() completed}
+     * are drained before the final event is published, after which the counter is detached from this
+     * {@code ProgressMonitor} whether or not it was closed. If the counters are used by multiple threads this
+     * {@code ProgressMonitor} should be created with {@link #concurrent()}.
+     * 
+     * @param flushThreshold the number of local increments to accumulate before adding them to the progress count
+     * @throws IllegalStateException    if this {@link ProgressMonitor} has {@link #complete() completed}
+     * @throws IllegalArgumentException if {@code flushThreshold} < 1
+     * @return a new {@code LocalCounter}
+     */
+    public LocalCounter newLocalCounter(final long flushThreshold) {
+        if (flushThreshold < 1)
+            throw new IllegalArgumentException("flushThreshold < 1");
+
+        final LocalCounter counter = new LocalCounter(this, flushThreshold);
+
+        synchronized (lock) {
+            if (state < 0)
+                throw new IllegalStateException("operation has completed");
+            if (counters == null)
+                counters = new HashSet<>();
+            counters.add(counter);
+        }
+
+        return counter;
     }
 
     /**
@@ -198,31 +753,26 @@ public final class ProgressMonitor {
      * @return this {@code ProgressMonitor} instance
      */
     public ProgressMonitor setProgress(final long count) {
-        if (done)
-            throw new IllegalStateException("operation has completed");
-        if (count < progress)
-            throw new IllegalArgumentException("count (" + count + ") < progress (" + progress + ")");
+        long current;
 
-        maximum.ifPresent(max -> {
-            if (count > max)
-                throw new IllegalArgumentException("count (" + count + ") > maximum (" + max + ")");
-        });
+        do {
+            current = state;
+            if (current < 0)
+                throw new IllegalStateException("operation has completed");
+            if (count < current)
+                throw new IllegalArgumentException("count (" + count + ") < progress (" + current + ")");
 
-        final long maxStepSize = this.maxStepSize;
-        final long minStepSize = this.minStepSize;
-        final long step        = this.step;
+            checkMaximum(count);
 
-        if (count > progress) {
+            if (count == current)
+                return this;
+        } while (!compareAndSet(current, count));
 
-            if (count % step == 0 || count % step < progress % step) {
-                publish(count);
+        if (sampler == null)
+            stepped(current, count);
 
-                if (step < maxStepSize)
-                    this.step = count > maxStepSize * 5 ? maxStepSize : (count / 5 <= minStepSize ? minStepSize : count / 5);
-            }
-
-            progress = count;
-        }
+        if (count >= rollupAt)
+            rollup(count);
 
         return this;
     }
@@ -233,25 +783,81 @@ public final class ProgressMonitor {
      * @return the progress count
      */
     public long getProgress() {
-        return progress;
+        return state & ~DONE;
     }
 
     /**
      * Marks this {@code ProgressMonitor} as completed, {@link ProgressListener#progressChanged(ProgressEvent) publishing}
      * the final {@link ProgressEvent} if necessary. Logically this signifies the end of the operation.
      * <p>
+     * Outstanding counts of all open {@link #newLocalCounter(long) local counters} are included in the final progress
+     * count: a flush which races with this method is either added before this {@code ProgressMonitor} is marked as
+     * completed or drained by the completing thread. The counters are detached from this {@code ProgressMonitor} whether
+     * or not they were closed. The drained counts are subject to the same {@link #getMaximum() maximum} value check as
+     * {@link #increment(long)}: if they would move the progress count past the maximum value they are discarded, and the
+     * {@code IllegalArgumentException} is thrown once this {@code ProgressMonitor} has completed.
+     * <p>
      * Calling this method multiple times is always permitted and will have no subsequent effect. Any further attempts to
      * modify the state of this {@code ProgressMonitor} will result in an {@code IllegalStateException} until it is
      * {@link #reset() reset}.
+     * 
+     * @throws IllegalArgumentException if the outstanding counts of local counters would move the progress count past the
+     *                                  maximum value
      */
     public void complete() {
-        if (done)
+        if (state < 0)
             return;
 
-        done = true;
+        long current;
+
+        do {
+            current = state;
+            if (current < 0)
+                return;
+        } while (!compareAndSet(current, current | DONE));
 
-        if (progress == 0 || progress % step != 0)
-            publish(progress);
+        final Set<LocalCounter> counters;
+
+        synchronized (lock) {
+            counters      = this.counters;
+            this.counters = null;
+        }
+
+        IllegalArgumentException exceeded = null;
+
+        if (counters != null) {
+            long drained = 0;
+
+            for (final LocalCounter counter : counters)
+                drained += counter.seal();
+
+            if (drained > 0)
+                try {
+                    checkMaximum(current + drained);
+                    current += drained;
+                    state    = current | DONE;
+                } catch (final IllegalArgumentException e) { // discarded like a failed increment, thrown once completed
+                    exceeded = e;
+                }
+        }
+
+        if (parent != null)
+            contribute(weight);
+
+        final Future<?> sampler = this.sampler;
+
+        if (sampler != null)
+            sampler.cancel(false);
+
+        if (concurrent || sampler != null)
+            synchronized (lock) {
+                completed(current);
+            }
+        else
+            completed(current);
+
+        if (exceeded != null)
+            throw exceeded;
     }
 
     /**
@@ -260,42 +866,630 @@ public final class ProgressMonitor {
      * @return {@code true} if this {@code ProgressMonitor} has {@link #complete() completed}
      */
     public boolean isDone() {
-        return done;
+        return state < 0;
     }
 
     /**
      * Resets this {@code ProgressMonitor} to its initial state, retaining all previously
      * {@link #addProgressListener(ProgressListener) added} {@link ProgressListener}s and the {@link #getMaximum() maximum}
      * value. After this call returns the {@link #isDone()} method will return {@code false}, {@link #getProgress()} will
-     * return {@code 0}, and if the step size is dynamic, it will be reset to the minimum value.
+     * return {@code 0}, and the {@link #setStepPolicy(StepPolicy) step policy} is restarted, so a dynamic step size is
+     * reset to the minimum value and a {@link #setPublishInterval(Duration) publish interval} is restarted. If the
+     * {@link #setSamplingInterval(Duration) sampling interval} is set sampling is restarted. The
+     * {@link #getRateEstimate() rate estimate} and any provisional maximum value are discarded: the
+     * {@link #setEstimatedMaximum(long) estimated} maximum is cleared and the result of a pending
+     * {@link #setMaximumAsync(CompletionStage) asynchronous computation} is ignored when it arrives.
      * 
+     * @throws IllegalStateException if this is a {@link #createChild(long) child} {@code ProgressMonitor}, whose
+     *                               contribution to the parent cannot be withdrawn
      * @return this {@code ProgressMonitor} instance
      */
     public ProgressMonitor reset() {
-        progress  = 0;
-        this.step = minStepSize;
-        done      = false;
+        if (parent != null)
+            throw new IllegalStateException("child monitor cannot be reset");
+
+        final long now = System.nanoTime();
+
+        if (concurrent || sampler != null)
+            synchronized (lock) {
+                last         = -1;
+                heldProgress = 0;
+                heldMaximum  = 0;
+                restartPolicy(policy, 0);
+                restartRate(now, 0);
+            }
+        else {
+            last         = -1;
+            heldProgress = 0;
+            heldMaximum  = 0;
+            restartPolicy(policy, 0);
+            restartRate(now, 0);
+        }
+
+        estimate = -1;
+        pending  = null; // supersedes the stage, see computed
+        state    = 0;
+
+        final Future<?> sampler = this.sampler;
+
+        if (sampler == null || sampler.isDone()) {
+            if (samplingInterval > 0)
+                startSampling();
+            else
+                this.sampler = null;
+        }
+
         return this;
     }
 
+    /**
+     * Returns the {@link RateEstimate} computed when the last {@link ProgressEvent} was published.
+     * <p>
+     * Rates are computed once per published event, regardless of the number of listeners, so the estimate does not reflect
+     * updates made since the last event.
+     * 
+     * @return the {@link RateEstimate} computed when the last {@link ProgressEvent} was published
+     */
+    public RateEstimate getRateEstimate() {
+        if (concurrent || sampler != null)
+            synchronized (lock) {
+                return rateEstimate();
+            }
+        else
+            return rateEstimate();
+    }
+
+    /**
+     * Restores the progress count and the {@link #getMaximum() maximum} value from the latest valid checkpoint in the
+     * specified {@link ProgressJournal journal}. If the journal does not exist or contains no valid checkpoints this
+     * {@code ProgressMonitor} is left unchanged.
+     * <p>
+     * The {@link #setStepPolicy(StepPolicy) step policy} and the {@link #getRateEstimate() rate estimate} are restarted
+     * from the restored count, which is then set by calling {@link #setProgress(long)}. As with any other update, an
+     * event is published only if the restored count crosses a step boundary, so a count smaller than the step size is not
+     * published until the operation progresses past it. A maximum value which was
+     * {@link ProgressEvent#isMaximumProvisional() provisional} when the checkpoint was recorded is not restored. This
+     * method should be called before the operation resumes.
+     * 
+     * @param journal the journal to resume from
+     * @throws IOException              if an I/O error occurs
+     * @throws IllegalStateException    if this {@link ProgressMonitor} has {@link #complete() completed}
+     * @throws IllegalArgumentException if the restored progress count < {@link #getProgress() progress} or > the
+     *                                  {@link #getMaximum() maximum} value it would be restored with, in which case
+     *                                  this {@code ProgressMonitor} is left unchanged
+     * @return this {@code ProgressMonitor} instance
+     */
+    public ProgressMonitor resumeFrom(final Path journal) throws IOException {
+        requireNonNull(journal, "journal == null");
+
+        final long[] checkpoint = ProgressJournal.read(journal);
+
+        if (checkpoint == null)
+            return this;
+
+        final long count    = checkpoint[0];
+        final long maximum  = checkpoint[1];
+        final long current  = state;
+        final long restored = maximum > 0 ? Math.max(maximum, current) : this.maximum;
+
+        if (current < 0)
+            throw new IllegalStateException("operation has completed");
+        if (count < current)
+            throw new IllegalArgumentException("count (" + count + ") < progress (" + current + ")");
+        if (restored >= 0 && count > restored)
+            throw new IllegalArgumentException("count (" + count + ") > maximum (" + restored + ")");
+
+        if (maximum > 0)
+            setMaximum(restored);
+
+        final long now = System.nanoTime();
+
+        if (concurrent || sampler != null)
+            synchronized (lock) {
+                restartPolicy(policy, count);
+                restartRate(now, count);
+            }
+        else {
+            restartPolicy(policy, count);
+            restartRate(now, count);
+        }
+
+        return setProgress(count);
+    }
+
+    /*
+     * Sets the maximum value to the current progress count plus the specified length, unless the length is unknown or the
+     * maximum value is already defined.
+     */
+    void setMaximumIfUndefined(final long length) {
+        if (length >= 0 && maximum < 0)
+            setMaximum(Math.max(1, getProgress() + length));
+    }
+
+    /**
+     * Returns a snapshot of the overhead incurred by this {@code ProgressMonitor}. The statistics are cumulative and are
+     * not cleared when this {@code ProgressMonitor} is {@link #reset() reset}.
+     * 
+     * @return a snapshot of the overhead incurred by this {@code ProgressMonitor}
+     */
+    public ProgressStats getStats() {
+        final long updates = concurrent ? concurrentUpdates.sum() : this.updates;
+
+        final long published;
+        if (concurrent || sampler != null)
+            synchronized (lock) {
+                published = this.published;
+            }
+        else
+            published = this.published;
+
+        return new ProgressStats(updates, published, listenerTime.sum());
+    }
+
+    /*
+     * Returns the average rate computed when the last event was published. Intended to be called by listeners while the
+     * event is being delivered.
+     */
+    double averageRate() {
+        return averageRate;
+    }
+
+    /*
+     * Called when an asynchronously computed maximum value arrives. The progress count may move past the value while the
+     * maximum is being set, in which case it is set again.
+     */
+    private void computed(final CompletionStage<Long> stage, final Long value, final Throwable failure) {
+        if (pending != stage) // superseded
+            return;
+
+        try {
+            if (failure != null)
+                throw failure;
+            if (value == null)
+                throw new NullPointerException("maximum == null");
+
+            while (state >= 0)
+                try {
+                    setMaximum(Math.max(1, Math.max(value, getProgress())));
+                    break;
+                } catch (final IllegalArgumentException e) { // the progress count has moved past the value
+                } catch (final IllegalStateException e) { // completed concurrently
+                    break;
+                }
+        } catch (final Throwable e) { // would otherwise be swallowed by the CompletionStage returned by whenComplete
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        } finally {
+            if (pending == stage) // not superseded in the meantime
+                pending = null;
+        }
+    }
+
+    /*
+     * Returns the maximum value reported to listeners, or -1 if neither the maximum value nor an estimate is defined. A
+     * provisional maximum is raised above the progress count until the operation is done, at which point it is the progress
+     * count. If the fraction would fall below the highest fraction reported against a provisional maximum, the reported
+     * maximum is lowered to hold the fraction until the progress count catches up.
+     */
+    private long reportedMaximum(final long count, final boolean done) {
+        final long maximum  = this.maximum;
+        final long estimate = this.estimate;
+        final long reported;
+
+        if (maximum >= 0)
+            reported = maximum;
+        else if (estimate < 0)
+            return -1;
+        else if (done)
+            return Math.max(1, count);
+        else
+            reported = Math.max(estimate, count + 1);
+
+        if (heldProgress == 0 || (double) count / reported >= (double) heldProgress / heldMaximum)
+            return reported;
+
+        final long held = scale(count, heldMaximum, heldProgress, false);
+        return maximum < 0 ? Math.max(held, count + 1) : held;
+    }
+
+    /*
+     * Remembers the highest fraction reported against a provisional maximum, and forgets it once the fraction of the final
+     * maximum value has caught up with it.
+     */
+    private void hold(final long count, final long reported, final boolean provisional) {
+        if (provisional) {
+            if (count > 0 && (heldProgress == 0 || (double) count / reported > (double) heldProgress / heldMaximum)) {
+                heldProgress = count;
+                heldMaximum  = reported;
+            }
+        } else if (heldProgress != 0 && (double) count / reported >= (double) heldProgress / heldMaximum && reported == maximum)
+            heldProgress = 0;
+    }
+
+    /*
+     * Returns the maximum value or -1 if it is not defined, without allocating an OptionalLong.
+     */
+    long maximum() {
+        return maximum;
+    }
+
+    /*
+     * Returns the maximum value reported to listeners for the specified progress count, or -1 if it is not defined.
+     */
+    long reportedMaximum(final long count) {
+        final boolean done = isDone();
+
+        if (concurrent || sampler != null)
+            synchronized (lock) {
+                return reportedMaximum(count, done);
+            }
+        else
+            return reportedMaximum(count, done);
+    }
+
     long getCurrentStepSize() {
         return step;
     }
 
-    private void publish(final long count) {
-        final ProgressEvent event = new Event(count, maximum);
+    void closed(final LocalCounter counter) {
+        synchronized (lock) {
+            if (counters != null)
+                counters.remove(counter);
+        }
+    }
+
+    /*
+     * Adds delta to the progress count without publishing, returns the previous count. Split from added(long, long) so
+     * that a LocalCounter can release its delta before any listeners are invoked.
+     */
+    long add(final long delta) {
+        long current;
+        long count;
+
+        do {
+            current = state;
+            if (current < 0)
+                throw new IllegalStateException("operation has completed");
+
+            count = current + delta;
+            checkMaximum(count);
+
+            if (count == current)
+                return current;
+        } while (!compareAndSet(current, count));
+
+        return current;
+    }
+
+    /*
+     * Publishes the progress count after it was advanced from current to count by add(long).
+     */
+    void added(final long current, final long count) {
+        if (sampler == null)
+            stepped(current, count);
 
-        for (final ProgressListener listener : listeners)
-            listener.progressChanged(event);
+        if (count >= rollupAt)
+            rollup(count);
+    }
+
+    /*
+     * Called periodically by the scheduler of sampled instances. Publishes the progress count if it has changed since the
+     * last event. The final sample is taken by complete().
+     */
+    void sample() {
+        try {
+            synchronized (lock) {
+                final long current = state;
+
+                if (current > 0 && current != last) // no events are published until the count moves, or once done
+                    publish(current, false);
+            }
+        } catch (final RuntimeException e) { // an exception would suppress subsequent executions of the periodic task
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    /*
+     * Puts this monitor into sampling mode driven by an external scheduler, such as a ProgressRegistry. The scheduler is
+     * expected to call sample() until the task is cancelled, which happens when this monitor completes.
+     */
+    void sampledBy(final Future<?> task) {
+        stopSampling();
+        sampler = task;
+    }
+
+    /*
+     * Returns the current progress count along with the rate estimate computed when the last event was published.
+     */
+    ProgressEvent snapshot() {
+        if (concurrent || sampler != null)
+            synchronized (lock) {
+                return snapshot(getProgress());
+            }
+        else
+            return snapshot(getProgress());
+    }
+
+    private ProgressEvent snapshot(final long count) {
+        final boolean done = isDone();
+        return new Event(count, reportedMaximum(count, done), !done && isMaximumProvisional(), ratedAt - startedAt, rate, averageRate, published, done);
+    }
+
+    private void startSampling() {
+        final long interval = samplingInterval;
+        sampler = scheduler.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    private void stopSampling() {
+        final Future<?> sampler = this.sampler;
+
+        if (sampler != null) {
+            sampler.cancel(false);
+            this.sampler = null;
+        }
+
+        samplingInterval = 0;
+    }
+
+    private boolean compareAndSet(final long expect, final long update) {
+        if (concurrent)
+            return STATE.compareAndSet(this, expect, update);
+
+        STATE.lazySet(this, update);
+        return true;
+    }
+
+    private void checkMaximum(final long count) {
+        final long maximum = this.maximum;
+
+        if (maximum >= 0 && count > maximum)
+            throw new IllegalArgumentException("count (" + count + ") > maximum (" + maximum + ")");
+    }
+
+    /*
+     * Called after the progress count has been moved from current to count by the calling thread. Every range of values is
+     * owned by exactly one thread, so only the thread which crosses the step boundary will publish the event.
+     */
+    private void stepped(final long current, final long count) {
+        if (concurrent)
+            concurrentUpdates.increment();
+        else
+            updates++;
+
+        final long step = this.step;
+
+        if (count / step != current / step) {
+            if (concurrent)
+                synchronized (lock) {
+                    stepped(count);
+                }
+            else
+                stepped(count);
+        }
+    }
+
+    private void stepped(final long count) {
+        if (count <= last) // a greater count has already been published by another thread
+            return;
+
+        final StepPolicy policy  = this.policy;
+        final long       maximum = this.maximum;
+
+        if (policy.shouldPublish(count, maximum))
+            publish(count, false);
+
+        this.step = Math.max(1, policy.nextStepSize(count, maximum, step));
+    }
+
+    private void restartPolicy(final StepPolicy policy, final long count) {
+        this.policy = policy;
+        this.step   = Math.max(1, policy.start(count, maximum));
+    }
+
+    /*
+     * Adds the contribution of this child to the parent once it changes by at least one unit. Every unit is claimed by
+     * exactly one thread.
+     */
+    private void rollup(final long count) {
+        final long maximum = this.maximum;
+
+        if (parent == null || maximum < 1)
+            return;
+
+        final long contribution = Math.min(weight, scale(count, weight, maximum, false));
+
+        contribute(contribution);
+
+        final long next = contribution + 1;
+        rollupAt = next > weight ? Long.MAX_VALUE : scale(next, maximum, weight, true);
+    }
+
+    private void contribute(final long contribution) {
+        long contributed;
+
+        do {
+            contributed = this.contributed;
+            if (contribution <= contributed)
+                return;
+        } while (!CONTRIBUTED.compareAndSet(this, contributed, contribution));
+
+        parent.increment(contribution - contributed);
+    }
+
+    /*
+     * Returns value * numerator / denominator, rounded down or up.
+     */
+    private static long scale(final long value, final long numerator, final long denominator, final boolean ceiling) {
+        if (numerator == 0 || value <= Long.MAX_VALUE / numerator) {
+            final long product = value * numerator;
+            return product / denominator + (ceiling && product % denominator != 0 ? 1 : 0);
+        }
+
+        final double result = (double) value / denominator * numerator;
+        return (long) (ceiling ? Math.ceil(result) : Math.floor(result));
+    }
+
+    private void restartRate(final long now, final long count) {
+        startedAt   = now;
+        ratedAt     = now;
+        ratedCount  = count;
+        rate        = 0D;
+        averageRate = 0D;
+    }
+
+    /*
+     * Updates the instantaneous rate and the exponentially weighted moving average rate. The weight of the new sample
+     * depends on the time elapsed since the previous sample, so irregular publication intervals are handled correctly.
+     */
+    private void estimate(final long count, final long now) {
+        final long elapsed = now - ratedAt;
+
+        if (elapsed <= 0 || count == ratedCount && ratedAt == startedAt) // no samples yet, e.g. just after resuming
+            return;
+
+        rate = (double) (count - ratedCount) / elapsed * 1e9;
+
+        if (ratedAt == startedAt)
+            averageRate = rate;
+        else
+            averageRate += (1D - Math.exp(-elapsed / SMOOTHING_TIME_CONSTANT)) * (rate - averageRate);
+
+        ratedAt    = now;
+        ratedCount = count;
+    }
+
+    private RateEstimate rateEstimate() {
+        return new RateEstimate(ratedCount, reportedMaximum(ratedCount, isDone()), ratedAt - startedAt, rate, averageRate);
+    }
+
+    /*
+     * Publishes the final event, or notifies the completion listeners if the final count and maximum have already been
+     * published, which is not the case if the maximum was provisional. With
+     * an AsyncDispatcher the notification is dispatched as well, so that listeners are never invoked by two threads at
+     * once and are notified after the last event has been delivered.
+     */
+    private void completed(final long count) {
+        final AsyncDispatcher dispatcher = this.dispatcher;
+        final long            maximum    = reportedMaximum(count, true);
+
+        if (count != last || maximum != lastMaximum)
+            publish(count, true);
+        else if (dispatcher != null) // reuses the sequence number of the last event, see deliver()
+            dispatcher.dispatch(new Event(count, maximum, false, ratedAt - startedAt, rate, averageRate, published, true));
+        else
+            for (final ProgressListener listener : listeners)
+                if (listener instanceof CompletionListener)
+                    ((CompletionListener) listener).completed(count, maximum);
+    }
+
+    private void publish(final long count, final boolean done) {
+        last = count;
+        published++;
+
+        final long now = System.nanoTime();
+
+        estimate(count, now);
+
+        final long            maximum     = reportedMaximum(count, done);
+        final boolean         provisional = !done && isMaximumProvisional(); // the count is final once done
+        final AsyncDispatcher dispatcher  = this.dispatcher;
+        final boolean         recording   = FlightRecorderEvents.isEnabled();
+        final Object          record      = recording ? FlightRecorderEvents.beginPublish() : null;
+
+        final ProgressListener[] listeners = this.listeners;
+
+        lastMaximum = maximum;
+
+        if (maximum > 0)
+            hold(count, maximum, provisional);
+
+        if (dispatcher != null)
+            dispatcher.dispatch(new Event(count, maximum, provisional, ratedAt - startedAt, rate, averageRate, published, done));
+        else {
+            ProgressEvent event = null; // allocated only if there are listeners which require it
+
+            for (final ProgressListener listener : listeners) {
+                final Object listenerRecord = recording ? FlightRecorderEvents.beginListener() : null;
+
+                if (done && listener instanceof LongProgressListener && listener instanceof CompletionListener)
+                    ((CompletionListener) listener).completed(count, maximum); // the primitives cannot carry the done flag
+                else if (listener instanceof LongProgressListener && !provisional) // nor the provisional flag
+                    ((LongProgressListener) listener).progressChanged(count, maximum);
+                else {
+                    if (event == null)
+                        event = new Event(count, maximum, provisional, ratedAt - startedAt, rate, averageRate, published, done);
+                    listener.progressChanged(event);
+                }
+
+                if (recording)
+                    FlightRecorderEvents.commitListener(listenerRecord, name, listener, count);
+            }
+        }
+
+        final long elapsed = System.nanoTime() - now;
+
+        if (dispatcher == null)
+            listenerTime.add(elapsed);
+
+        policy.published(count, elapsed);
+
+        if (recording)
+            FlightRecorderEvents.commitPublish(record, name, count, maximum, step, listeners.length);
+    }
+
+    /*
+     * Called by the AsyncDispatcher to deliver an event on the dispatcher thread. A final event which repeats the sequence
+     * number of the last delivered event only notifies the completion listeners. If the last event was coalesced away the
+     * final event is delivered to all listeners instead.
+     */
+    void deliver(final ProgressEvent published) {
+        final Event   event     = (Event) published;
+        final boolean repeated  = event.done && event.sequence == delivered;
+        final boolean recording = FlightRecorderEvents.isEnabled();
+        final long    start     = System.nanoTime();
+
+        delivered = event.sequence;
+
+        for (final ProgressListener listener : listeners) {
+            final Object record = recording ? FlightRecorderEvents.beginListener() : null;
+
+            try {
+                if (!repeated)
+                    listener.progressChanged(event);
+                else if (listener instanceof CompletionListener)
+                    ((CompletionListener) listener).completed(event.progress, event.maximum);
+            } catch (final RuntimeException e) {
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+
+            if (recording)
+                FlightRecorderEvents.commitListener(record, name, listener, event.getProgress());
+        }
+
+        listenerTime.add(System.nanoTime() - start);
     }
 
     private static class Event implements ProgressEvent {
-        private final long         progress;
-        private final OptionalLong maximum;
+        private final long    progress;
+        private final long    maximum;
+        private final boolean provisional;
+        private final long    elapsed;
+        private final double  rate;
+        private final double  averageRate;
+        private final long    sequence; // the number of events published so far, including this one
+        private final boolean done;
 
-        Event(final long progress, final OptionalLong maximum) {
-            this.progress = progress;
-            this.maximum  = maximum;
+        Event(final long progress, final long maximum, final boolean provisional, final long elapsed, final double rate, final double averageRate, final long sequence, final boolean done) {
+            this.progress    = progress;
+            this.maximum     = maximum;
+            this.provisional = provisional;
+            this.elapsed     = elapsed;
+            this.rate        = rate;
+            this.averageRate = averageRate;
+            this.sequence    = sequence;
+            this.done        = done;
         }
 
         @Override
@@ -305,7 +1499,22 @@ public final class ProgressMonitor {
 
         @Override
         public OptionalLong getMaximum() {
-            return maximum;
+            return maximum < 0 ? OptionalLong.empty() : OptionalLong.of(maximum);
+        }
+
+        @Override
+        public boolean isMaximumProvisional() {
+            return provisional;
+        }
+
+        @Override
+        public RateEstimate getRateEstimate() {
+            return new RateEstimate(progress, maximum, elapsed, rate, averageRate);
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
         }
     }
 
@@ -0,0 +1,62 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@code OutputStream} which adds the number of bytes written to the progress count of a {@link ProgressMonitor}.
+ * <p>
+ * If the number of bytes which will be written is known and the {@code ProgressMonitor} does not define a
+ * {@link ProgressMonitor#getMaximum() maximum} value, the maximum is set to the current progress count plus the
+ * expected length. The only overhead per write is a single {@link ProgressMonitor#increment(long)} call. Unlike
+ * {@code FilterOutputStream}, arrays are written to the underlying stream in a single call.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressOutputStream extends FilterOutputStream {
+
+    private final ProgressMonitor progress;
+
+    /**
+     * Creates a new {@code ProgressOutputStream} which does not set the maximum value of the specified
+     * {@code ProgressMonitor}.
+     * 
+     * @param out      the underlying output stream
+     * @param progress the {@code ProgressMonitor} to update
+     */
+    public ProgressOutputStream(final OutputStream out, final ProgressMonitor progress) {
+        this(out, progress, -1);
+    }
+
+    /**
+     * Creates a new {@code ProgressOutputStream} which expects the specified number of bytes to be written.
+     * 
+     * @param out      the underlying output stream
+     * @param progress the {@code ProgressMonitor} to update
+     * @param length   the number of bytes which will be written or {@code -1} if unknown
+     */
+    public ProgressOutputStream(final OutputStream out, final ProgressMonitor progress, final long length) {
+        super(requireNonNull(out, "out == null"));
+        requireNonNull(progress, "progress == null");
+        this.progress = progress;
+        progress.setMaximumIfUndefined(length);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        out.write(b);
+        progress.increment();
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        out.write(b, off, len);
+
+        if (len > 0)
+            progress.increment(len);
+    }
+
+}
@@ -0,0 +1,95 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+/**
+ * A {@code ReadableByteChannel} which adds the number of bytes read to the progress count of a {@link ProgressMonitor}.
+ * <p>
+ * If the length of the underlying channel is known and the {@code ProgressMonitor} does not define a
+ * {@link ProgressMonitor#getMaximum() maximum} value, the maximum is set to the current progress count plus the length
+ * of the channel. The only overhead per read is a single {@link ProgressMonitor#increment(long)} call, direct buffers
+ * are passed through to the underlying channel untouched.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressReadableByteChannel implements ReadableByteChannel {
+
+    private final ReadableByteChannel channel;
+    private final ProgressMonitor     progress;
+
+    /**
+     * Creates a new {@code ProgressReadableByteChannel} which does not set the maximum value of the specified
+     * {@code ProgressMonitor}.
+     * 
+     * @param channel  the underlying channel
+     * @param progress the {@code ProgressMonitor} to update
+     */
+    public ProgressReadableByteChannel(final ReadableByteChannel channel, final ProgressMonitor progress) {
+        this(channel, progress, -1);
+    }
+
+    /**
+     * Creates a new {@code ProgressReadableByteChannel} of the specified length.
+     * 
+     * @param channel  the underlying channel
+     * @param progress the {@code ProgressMonitor} to update
+     * @param length   the number of bytes which can be read from the underlying channel or {@code -1} if unknown
+     */
+    public ProgressReadableByteChannel(final ReadableByteChannel channel, final ProgressMonitor progress, final long length) {
+        requireNonNull(channel, "channel == null");
+        requireNonNull(progress, "progress == null");
+        this.channel  = channel;
+        this.progress = progress;
+        progress.setMaximumIfUndefined(length);
+    }
+
+    /**
+     * Opens the specified file and returns a new {@code ProgressReadableByteChannel} whose length is the size of the file.
+     * 
+     * @param path     the path to the file
+     * @param progress the {@code ProgressMonitor} to update
+     * @param options  options specifying how the file is opened
+     * @return a new {@code ProgressReadableByteChannel} whose length is the size of the file
+     * @throws IOException if an I/O error occurs
+     */
+    public static ProgressReadableByteChannel of(final Path path, final ProgressMonitor progress, final OpenOption... options) throws IOException {
+        requireNonNull(path, "path == null");
+
+        final FileChannel channel = FileChannel.open(path, options);
+
+        try {
+            return new ProgressReadableByteChannel(channel, progress, channel.size() - channel.position());
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+        final int count = channel.read(dst);
+
+        if (count > 0)
+            progress.increment(count);
+
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
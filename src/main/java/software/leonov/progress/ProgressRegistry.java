@@ -0,0 +1,300 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A registry of named {@link ProgressMonitor}s whose {@link ProgressEvent}s are all published by a single scheduler
+ * thread.
+ * <p>
+ * Monitors {@link #register(String, Duration) registered} with a {@code ProgressRegistry} are in sampling mode (see
+ * {@link ProgressMonitor#setSamplingInterval(Duration, ScheduledExecutorService)}): updating the progress count never
+ * invokes listeners, instead the registry's thread periodically reads the progress count of each monitor and publishes
+ * an event if it has changed. Monitors are scheduled on a hashed timing wheel, so the cost of a tick is proportional to
+ * the number of monitors which are due, not to the total number of registered monitors. No thread, executor or
+ * scheduled task is allocated per monitor, which allows a single registry to drive tens of thousands of monitors.
+ * <p>
+ * Monitors which have {@link ProgressMonitor#complete() completed} are dropped from the registry automatically. The
+ * progress count, maximum value and rate estimate of all active monitors can be queried in bulk by calling
+ * {@link #snapshot()}:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * final ProgressRegistry registry = new ProgressRegistry();
+ * ...
+ * // for each job
+ * final ProgressMonitor progress = registry.register(job.getId(), Duration.ofSeconds(1)).setMaximum(job.size());
+ * ...
+ * // from a status endpoint
+ * registry.snapshot().forEach((name, event) -> ...);
+ * </code></pre>
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressRegistry implements AutoCloseable {
+
+    /**
+     * The default duration of a tick of the timing wheel.
+     */
+    public static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis(10);
+
+    private static final int WHEEL_SIZE = 512; // must be a power of 2
+    private static final int MASK       = WHEEL_SIZE - 1;
+
+    private final long                     tick; // in nanoseconds
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentMap<String, ProgressMonitor> monitors = new ConcurrentHashMap<>();
+    private final Queue<Entry>                           pending  = new ConcurrentLinkedQueue<>();
+
+    // confined to the scheduler thread
+    private final Entry[] wheel = new Entry[WHEEL_SIZE];
+    private long          ticks = 0;
+
+    /**
+     * Creates a new {@code ProgressRegistry} whose timing wheel advances every {@link #DEFAULT_TICK_DURATION}.
+     */
+    public ProgressRegistry() {
+        this(DEFAULT_TICK_DURATION);
+    }
+
+    /**
+     * Creates a new {@code ProgressRegistry} whose timing wheel advances at the specified rate. The tick duration is the
+     * resolution at which sampling intervals are honored.
+     *
+     * @param tick the duration of a tick of the timing wheel
+     * @throws IllegalArgumentException if {@code tick} is zero or negative
+     */
+    public ProgressRegistry(final Duration tick) {
+        requireNonNull(tick, "tick == null");
+        if (tick.isZero() || tick.isNegative())
+            throw new IllegalArgumentException("tick <= 0");
+
+        this.tick      = tick.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                           final Thread thread = new Thread(runnable, "progress-registry");
+                           thread.setDaemon(true);
+                           return thread;
+                       });
+
+        scheduler.scheduleAtFixedRate(this::tick, this.tick, this.tick, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates and registers a new {@link ProgressMonitor#concurrent() concurrent} {@code ProgressMonitor} with the
+     * specified name. The progress count of the returned monitor is sampled by this registry at the specified interval,
+     * rounded up to a whole number of ticks.
+     * <p>
+     * The monitor is dropped from this registry once it {@link ProgressMonitor#complete() completes}, at which point the
+     * name may be registered again. Setting a step size, publish interval or sampling interval on the returned monitor
+     * takes it out of the control of this registry.
+     *
+     * @param name     the name of the monitor
+     * @param interval the amount of time between samples
+     * @throws IllegalArgumentException if {@code interval} is zero or negative or a monitor which has not completed is
+     *                                  already registered with the specified name
+     * @throws IllegalStateException    if this registry has been {@link #close() closed}
+     * @return a new {@code ProgressMonitor}
+     */
+    public ProgressMonitor register(final String name, final Duration interval) {
+        requireNonNull(name, "name == null");
+        requireNonNull(interval, "interval == null");
+        if (interval.isZero() || interval.isNegative())
+            throw new IllegalArgumentException("interval <= 0");
+        if (scheduler.isShutdown())
+            throw new IllegalStateException("registry has been closed");
+
+        final ProgressMonitor monitor = ProgressMonitor.concurrent().setName(name);
+        final long            ticks   = Math.max(1, (interval.toNanos() + tick - 1) / tick);
+        final Entry           entry   = new Entry(name, monitor, ticks);
+
+        monitor.sampledBy(entry);
+
+        final ProgressMonitor previous = monitors.compute(name, (key, value) -> value == null || value.isDone() ? monitor : value);
+
+        if (previous != monitor)
+            throw new IllegalArgumentException("a monitor named " + name + " is already registered");
+
+        pending.add(entry);
+        return monitor;
+    }
+
+    /**
+     * Returns the active monitor registered with the specified name.
+     *
+     * @param name the name of the monitor
+     * @return the active monitor registered with the specified name or an empty {@code Optional} if there is no such
+     *         monitor or it has completed
+     */
+    public Optional<ProgressMonitor> get(final String name) {
+        requireNonNull(name, "name == null");
+
+        final ProgressMonitor monitor = monitors.get(name);
+        return monitor == null || monitor.isDone() ? Optional.empty() : Optional.of(monitor);
+    }
+
+    /**
+     * Returns the number of active monitors registered with this registry. Monitors which have completed but have not yet
+     * been dropped are not counted.
+     *
+     * @return the number of active monitors registered with this registry
+     */
+    public int size() {
+        int size = 0;
+
+        for (final ProgressMonitor monitor : monitors.values())
+            if (!monitor.isDone())
+                size++;
+
+        return size;
+    }
+
+    /**
+     * Returns a snapshot of all active monitors, mapping the name of each monitor to its current progress count, maximum
+     * value and the {@link RateEstimate} computed when its last event was published. The snapshot is not atomic across
+     * monitors.
+     *
+     * @return an unmodifiable snapshot of all active monitors
+     */
+    public Map<String, ProgressEvent> snapshot() {
+        final Map<String, ProgressEvent> snapshot = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, ProgressMonitor> entry : monitors.entrySet())
+            if (!entry.getValue().isDone())
+                snapshot.put(entry.getKey(), entry.getValue().snapshot());
+
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Stops the scheduler thread of this registry. Monitors which are still active are no longer sampled, but their final
+     * events are still published when they {@link ProgressMonitor#complete() complete}. Calling this method multiple times
+     * is permitted and will have no subsequent effect.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /*
+     * Advances the timing wheel by one tick. Entries whose rounds have run out are sampled and rescheduled, entries whose
+     * monitors have completed are dropped. Anything thrown while sampling a monitor is passed to the uncaught exception
+     * handler of the scheduler thread, so it affects neither the other monitors nor subsequent ticks.
+     */
+    private void tick() {
+        ticks++;
+
+        for (Entry entry; (entry = pending.poll()) != null;)
+            schedule(entry);
+
+        final int index = (int) (ticks & MASK);
+        Entry     entry = wheel[index];
+
+        wheel[index] = null;
+
+        while (entry != null) {
+            final Entry next = entry.next;
+
+            if (entry.isDone())
+                monitors.remove(entry.name, entry.monitor);
+            else if (entry.rounds > 0) {
+                entry.rounds--;
+                entry.next   = wheel[index];
+                wheel[index] = entry;
+            } else {
+                try {
+                    entry.monitor.sample();
+                } catch (final Throwable e) { // would end the periodic task, and with it the sampling of every monitor
+                    final Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+
+                schedule(entry);
+            }
+
+            entry = next;
+        }
+    }
+
+    private void schedule(final Entry entry) {
+        final int index = (int) ((ticks + entry.interval) & MASK);
+
+        entry.rounds = (entry.interval - 1) / WHEEL_SIZE;
+        entry.next   = wheel[index];
+        wheel[index] = entry;
+    }
+
+    /*
+     * A timing wheel slot. The entry doubles as the sampling task handle of the monitor, which cancels it when it
+     * completes. The task never completes normally, so the entry is done once it has been cancelled.
+     */
+    private static final class Entry implements Future<Void> {
+        private final String          name;
+        private final ProgressMonitor monitor;
+        private final long            interval; // in ticks
+        private long                  rounds;   // the number of full turns of the wheel before the entry is due
+        private Entry                 next;
+
+        private volatile boolean cancelled = false;
+
+        Entry(final String name, final ProgressMonitor monitor, final long interval) {
+            this.name     = name;
+            this.monitor  = monitor;
+            this.interval = interval;
+        }
+
+        @Override
+        public synchronized boolean cancel(final boolean mayInterruptIfRunning) {
+            if (cancelled)
+                return false;
+
+            cancelled = true;
+            notifyAll();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return cancelled;
+        }
+
+        @Override
+        public synchronized Void get() throws InterruptedException {
+            while (!cancelled)
+                wait();
+
+            throw new CancellationException();
+        }
+
+        @Override
+        public synchronized Void get(final long timeout, final TimeUnit unit) throws InterruptedException, TimeoutException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+            for (long remaining; !cancelled; TimeUnit.NANOSECONDS.timedWait(this, remaining))
+                if ((remaining = deadline - System.nanoTime()) <= 0)
+                    throw new TimeoutException();
+
+            throw new CancellationException();
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A {@link ProgressListener} which reports the progress of a {@link ProgressMonitor} on this node to a
+ * {@link ProgressAggregator}, which may be running in another JVM, over UDP.
+ * <p>
+ * Each published {@link ProgressEvent} is sent as a single datagram of {@link #PACKET_SIZE} bytes holding the node
+ * id, a sequence number, the progress count, the maximum value and the done flag. A
+ * {@link ProgressEvent#isMaximumProvisional() provisional} maximum value is sent as undefined, so the aggregator never
+ * adds estimates to the merged maximum. Since events are only published at step boundaries, publish intervals or
+ * samples, each datagram batches all increments made since the previous one.
+ * Datagrams carry the absolute progress of the node rather than a delta, so a lost, duplicated or reordered datagram
+ * never corrupts the total: the aggregator discards datagrams which are older than the last one it has seen from the
+ * node and computes the delta itself. The final datagram, sent when the monitor {@link ProgressMonitor#complete()
+ * completes}, is sent {@link #FINAL_PACKET_COPIES} times to guard against its loss.
+ * <p>
+ * Each reporter identifies a distinct node to the aggregator. I/O errors encountered while handling events are rethrown
+ * as {@code UncheckedIOException}s.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressReporter implements LongProgressListener, CompletionListener, Closeable {
+
+    /**
+     * The size of a datagram in bytes.
+     */
+    public static final int PACKET_SIZE = 37;
+
+    /**
+     * The number of times the final datagram is sent.
+     */
+    public static final int FINAL_PACKET_COPIES = 3;
+
+    static final int  MAGIC = 0x50524731; // "PRG1"
+    static final byte DONE  = 1;
+
+    private final DatagramChannel channel;
+    private final SocketAddress   aggregator;
+    private final long            node;
+    private final ByteBuffer      packet = ByteBuffer.allocateDirect(PACKET_SIZE);
+    private long                  sequence;
+
+    private ProgressReporter(final DatagramChannel channel, final SocketAddress aggregator, final long node) {
+        this.channel    = channel;
+        this.aggregator = aggregator;
+        this.node       = node;
+    }
+
+    /**
+     * Creates a new {@code ProgressReporter} with a random node id and {@link ProgressMonitor#addProgressListener(ProgressListener)
+     * adds} it to the specified {@code ProgressMonitor}.
+     *
+     * @param monitor    the {@code ProgressMonitor} to report
+     * @param aggregator the address of the {@link ProgressAggregator}
+     * @return a new {@code ProgressReporter}
+     * @throws IOException if an I/O error occurs
+     */
+    public static ProgressReporter open(final ProgressMonitor monitor, final SocketAddress aggregator) throws IOException {
+        return open(monitor, aggregator, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates a new {@code ProgressReporter} with the specified node id and {@link ProgressMonitor#addProgressListener(ProgressListener)
+     * adds} it to the specified {@code ProgressMonitor}. Node ids must be unique among the reporters of an aggregator.
+     *
+     * @param monitor    the {@code ProgressMonitor} to report
+     * @param aggregator the address of the {@link ProgressAggregator}
+     * @param node       the node id
+     * @return a new {@code ProgressReporter}
+     * @throws IOException if an I/O error occurs
+     */
+    public static ProgressReporter open(final ProgressMonitor monitor, final SocketAddress aggregator, final long node) throws IOException {
+        requireNonNull(monitor, "monitor == null");
+        requireNonNull(aggregator, "aggregator == null");
+
+        final ProgressReporter reporter = new ProgressReporter(DatagramChannel.open(), aggregator, node);
+        monitor.addProgressListener(reporter);
+        return reporter;
+    }
+
+    @Override
+    public void progressChanged(final long progress, final long maximum) { // the final event arrives via completed()
+        report(progress, maximum, false);
+    }
+
+    @Override
+    public void progressChanged(final ProgressEvent event) { // delivered asynchronously or with a provisional maximum
+        report(event.getProgress(), event.isMaximumProvisional() ? -1 : event.getMaximum().orElse(-1), event.isDone());
+    }
+
+    @Override
+    public void completed(final long progress, final long maximum) {
+        report(progress, maximum, true);
+    }
+
+    /**
+     * Closes the underlying channel. Calling this method multiple times is permitted and will have no subsequent effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private synchronized void report(final long progress, final long maximum, final boolean done) {
+        sequence++;
+
+        try {
+            for (int i = done ? FINAL_PACKET_COPIES : 1; i > 0; i--) // copies share a sequence number
+                send(progress, maximum, done);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void send(final long progress, final long maximum, final boolean done) throws IOException {
+        packet.clear();
+        encode(packet, node, sequence, progress, maximum, done);
+        packet.flip();
+        channel.send(packet, aggregator);
+    }
+
+    static void encode(final ByteBuffer buffer, final long node, final long sequence, final long progress, final long maximum, final boolean done) {
+        buffer.putInt(MAGIC).putLong(node).putLong(sequence).putLong(progress).putLong(maximum).put(done ? DONE : 0);
+    }
+
+}
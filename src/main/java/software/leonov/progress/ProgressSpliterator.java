@@ -0,0 +1,100 @@
+package software.leonov.progress;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@code Spliterator} which counts the elements it traverses and adds them to the progress count of a
+ * {@link ProgressMonitor} in batches. Every split is wrapped in a new {@code ProgressSpliterator} with its own local
+ * count, so parallel traversal does not share any state other than the {@code ProgressMonitor} itself.
+ * <p>
+ * Only bulk traversal by {@link #forEachRemaining(Consumer)} is batched, and the batch is flushed when it returns or
+ * throws. Elements traversed one at a time by {@link #tryAdvance(Consumer)} are added individually: short-circuiting
+ * operations such as {@code anyMatch}, {@code findFirst} and {@code limit}, as well as iterators, stop calling it once
+ * they are done without any notice, so a batched count could never be flushed.
+ *
+ * @author Zhenya Leonov
+ */
+final class ProgressSpliterator<T> implements Spliterator<T>, Consumer<T> {
+
+    private final Spliterator<T>  spliterator;
+    private final ProgressMonitor progress;
+    private final long            batchSize;
+
+    private long                count = 0; // the number of elements traversed but not yet added to the progress count
+    private Consumer<? super T> action;
+
+    ProgressSpliterator(final Spliterator<T> spliterator, final ProgressMonitor progress, final long batchSize) {
+        this.spliterator = spliterator;
+        this.progress    = progress;
+        this.batchSize   = batchSize;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> action) {
+        if (!spliterator.tryAdvance(action))
+            return false;
+
+        progress.increment();
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super T> action) {
+        this.action = action;
+
+        try {
+            spliterator.forEachRemaining(this);
+        } finally {
+            this.action = null;
+            flush();
+        }
+    }
+
+    /*
+     * Used by forEachRemaining to avoid allocating a capturing consumer.
+     */
+    @Override
+    public void accept(final T t) {
+        action.accept(t);
+
+        if (++count == batchSize)
+            flush();
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        final Spliterator<T> split = spliterator.trySplit();
+        return split == null ? null : new ProgressSpliterator<>(split, progress, batchSize);
+    }
+
+    @Override
+    public long estimateSize() {
+        return spliterator.estimateSize();
+    }
+
+    @Override
+    public long getExactSizeIfKnown() {
+        return spliterator.getExactSizeIfKnown();
+    }
+
+    @Override
+    public int characteristics() {
+        return spliterator.characteristics();
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        return spliterator.getComparator();
+    }
+
+    private void flush() {
+        if (count > 0) {
+            final long delta = count;
+            count = 0;
+            progress.increment(delta);
+        }
+    }
+
+}
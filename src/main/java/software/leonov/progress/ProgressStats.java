@@ -0,0 +1,68 @@
+package software.leonov.progress;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the overhead incurred by a {@link ProgressMonitor}, returned by {@link ProgressMonitor#getStats()}.
+ * <p>
+ * A high ratio of {@link #getPublishedEvents() published} to {@link #getSuppressedEvents() suppressed} events indicates
+ * an over-chatty step configuration. A high {@link #getListenerTime() listener time} relative to the duration of the
+ * operation indicates a slow listener.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressStats {
+
+    private final long updates;
+    private final long published;
+    private final long listenerTime;
+
+    ProgressStats(final long updates, final long published, final long listenerTime) {
+        this.updates      = updates;
+        this.published    = published;
+        this.listenerTime = listenerTime;
+    }
+
+    /**
+     * Returns the number of times the progress count was changed by {@link ProgressMonitor#increment()},
+     * {@link ProgressMonitor#increment(long)} or {@link ProgressMonitor#setProgress(long)}.
+     * 
+     * @return the number of times the progress count was changed
+     */
+    public long getIncrements() {
+        return updates;
+    }
+
+    /**
+     * Returns the number of {@link ProgressEvent}s published to listeners.
+     * 
+     * @return the number of {@link ProgressEvent}s published to listeners
+     */
+    public long getPublishedEvents() {
+        return published;
+    }
+
+    /**
+     * Returns the number of progress count changes which did not result in a published {@link ProgressEvent}.
+     * 
+     * @return the number of progress count changes which did not result in a published {@link ProgressEvent}
+     */
+    public long getSuppressedEvents() {
+        return Math.max(0, updates - published);
+    }
+
+    /**
+     * Returns the cumulative time spent invoking listeners.
+     * 
+     * @return the cumulative time spent invoking listeners
+     */
+    public Duration getListenerTime() {
+        return Duration.ofNanos(listenerTime);
+    }
+
+    @Override
+    public String toString() {
+        return "ProgressStats[increments=" + updates + ", published=" + published + ", suppressed=" + getSuppressedEvents() + ", listenerTime=" + getListenerTime() + "]";
+    }
+
+}
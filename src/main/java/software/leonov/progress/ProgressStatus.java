@@ -0,0 +1,99 @@
+package software.leonov.progress;
+
+import java.time.Instant;
+import java.util.OptionalLong;
+
+/**
+ * A consistent snapshot of a {@link StatusBoard} slot, returned by {@link StatusBoardReader}.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressStatus {
+
+    private final int     slot;
+    private final String  name;
+    private final long    progress;
+    private final long    maximum;
+    private final double  rate;
+    private final long    updated;
+    private final boolean done;
+
+    ProgressStatus(final int slot, final String name, final long progress, final long maximum, final double rate, final long updated, final boolean done) {
+        this.slot     = slot;
+        this.name     = name;
+        this.progress = progress;
+        this.maximum  = maximum;
+        this.rate     = rate;
+        this.updated  = updated;
+        this.done     = done;
+    }
+
+    /**
+     * Returns the index of the slot.
+     *
+     * @return the index of the slot
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Returns the {@link ProgressMonitor#getName() name} of the monitor.
+     *
+     * @return the name of the monitor
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the progress count.
+     *
+     * @return the progress count
+     */
+    public long getProgress() {
+        return progress;
+    }
+
+    /**
+     * Returns the maximum value.
+     *
+     * @return the maximum value
+     */
+    public OptionalLong getMaximum() {
+        return maximum < 0 ? OptionalLong.empty() : OptionalLong.of(maximum);
+    }
+
+    /**
+     * Returns the {@link RateEstimate#getAverageRate() average rate} in units of progress per second.
+     *
+     * @return the average rate in units of progress per second
+     */
+    public double getAverageRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the time the slot was last written.
+     *
+     * @return the time the slot was last written
+     */
+    public Instant getUpdated() {
+        return Instant.ofEpochMilli(updated);
+    }
+
+    /**
+     * Returns {@code true} if the monitor has {@link ProgressMonitor#complete() completed}.
+     *
+     * @return {@code true} if the monitor has completed
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public String toString() {
+        return "ProgressStatus[slot=" + slot + ", name=" + name + ", progress=" + progress + ", maximum=" + maximum + ", averageRate=" + rate + ", updated=" + getUpdated() + ", done=" + done + "]";
+    }
+
+}
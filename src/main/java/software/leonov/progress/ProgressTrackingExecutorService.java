@@ -0,0 +1,564 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@code ExecutorService} which decorates another {@code ExecutorService} and tracks the number of submitted, running,
+ * completed, failed and cancelled tasks.
+ * <p>
+ * Each task updates a set of {@code LongAdder}s when it starts and when it finishes, so worker threads never contend on
+ * a lock or on the progress count of a {@link ProgressMonitor}. The progress count of each of the specified monitors is
+ * set to the number of finished tasks periodically from a scheduler thread. A task is finished when it has completed,
+ * failed or been cancelled. Since the monitors are only updated by this {@code ExecutorService}, they do not need to be
+ * created with {@link ProgressMonitor#concurrent()}, but they must not be updated by anyone else.
+ * <p>
+ * The {@link ProgressMonitor#setMaximum(long) maximum} of each monitor is set to the number of submitted tasks when tasks
+ * are submitted through {@link #invokeAll(Collection) invokeAll}. If the maximum is defined it is raised as more tasks
+ * are submitted. Once this {@code ExecutorService} has been {@link #shutdown() shut down} and every submitted task has
+ * finished, the monitors are updated one last time and {@link ProgressMonitor#complete() completed}:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * final ProgressMonitor progress = new ProgressMonitor().addProgressListener(new PercentListener() {...});
+ *
+ * final ProgressTrackingExecutorService executor = new ProgressTrackingExecutorService(Executors.newFixedThreadPool(8), progress);
+ *
+ * executor.invokeAll(tasks);
+ * executor.shutdown();
+ *
+ * System.out.println(executor.getFailedCount() + " failed, " + executor.getCancelledCount() + " cancelled");
+ * </code></pre>
+ * <p>
+ * Tasks which are rejected by the underlying {@code ExecutorService} are not counted. Tasks which are returned by
+ * {@link #shutdownNow()} are cancelled. Tasks which are passed to {@link #invokeAny(Collection) invokeAny} and never
+ * started are reported as cancelled.
+ * <p>
+ * This {@code ExecutorService} must be {@link #shutdown() shut down} for the monitors to be completed and for the
+ * periodic update to be cancelled. The periodic update does not keep this {@code ExecutorService} reachable: if it is
+ * discarded without being shut down, the update is cancelled once it has been garbage collected.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressTrackingExecutorService extends AbstractExecutorService {
+
+    /**
+     * The default amount of time between updates of the progress monitors.
+     */
+    public static final Duration DEFAULT_UPDATE_INTERVAL = Duration.ofMillis(100);
+
+    private final ExecutorService   delegate;
+    private final ProgressMonitor[] monitors;
+    private final Future<?>         task;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder running   = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed    = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    private volatile boolean shutdown   = false;
+    private volatile boolean terminated = false; // the monitors have been completed
+
+    /**
+     * Creates a new {@code ProgressTrackingExecutorService} which runs tasks on the specified {@code ExecutorService} and
+     * updates the specified monitors once per {@link #DEFAULT_UPDATE_INTERVAL} from a scheduler thread shared by all
+     * {@code ProgressMonitor}s.
+     *
+     * @param delegate the {@code ExecutorService} which runs the tasks
+     * @param monitors the monitors which track the number of finished tasks
+     */
+    public ProgressTrackingExecutorService(final ExecutorService delegate, final ProgressMonitor... monitors) {
+        this(delegate, DEFAULT_UPDATE_INTERVAL, SharedScheduler.get(), monitors);
+    }
+
+    /**
+     * Creates a new {@code ProgressTrackingExecutorService} which runs tasks on the specified {@code ExecutorService} and
+     * updates the specified monitors at the specified fixed rate from the specified scheduler.
+     *
+     * @param delegate  the {@code ExecutorService} which runs the tasks
+     * @param interval  the amount of time between updates of the monitors
+     * @param scheduler the scheduler used to update the monitors
+     * @param monitors  the monitors which track the number of finished tasks
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     */
+    public ProgressTrackingExecutorService(final ExecutorService delegate, final Duration interval, final ScheduledExecutorService scheduler, final ProgressMonitor... monitors) {
+        requireNonNull(delegate, "delegate == null");
+        requireNonNull(interval, "interval == null");
+        requireNonNull(scheduler, "scheduler == null");
+        requireNonNull(monitors, "monitors == null");
+        if (interval.isZero() || interval.isNegative())
+            throw new IllegalArgumentException("interval <= 0");
+
+        for (final ProgressMonitor monitor : monitors)
+            requireNonNull(monitor, "monitor == null");
+
+        final Updater updater = new Updater(this);
+
+        this.delegate = delegate;
+        this.monitors = monitors.clone();
+        this.task     = updater.task = scheduler.scheduleAtFixedRate(updater, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of tasks which have been submitted to this {@code ExecutorService}.
+     *
+     * @return the number of tasks which have been submitted to this {@code ExecutorService}
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * Returns the approximate number of tasks which are running.
+     *
+     * @return the approximate number of tasks which are running
+     */
+    public long getRunningCount() {
+        return running.sum();
+    }
+
+    /**
+     * Returns the number of tasks which have completed normally.
+     *
+     * @return the number of tasks which have completed normally
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Returns the number of tasks which have completed by throwing an exception.
+     *
+     * @return the number of tasks which have completed by throwing an exception
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the number of tasks which have been cancelled.
+     *
+     * @return the number of tasks which have been cancelled
+     */
+    public long getCancelledCount() {
+        return cancelled.sum();
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        requireNonNull(command, "command == null");
+
+        if (command instanceof TrackedTask && ((TrackedTask<?>) command).isTrackedBy(this)) {
+            try {
+                delegate.execute(command);
+            } catch (final RejectedExecutionException e) {
+                ((TrackedTask<?>) command).reject();
+                throw e;
+            }
+        } else {
+            final TrackedCommand tracked = new TrackedCommand(command);
+
+            submitted.increment();
+
+            try {
+                delegate.execute(tracked);
+            } catch (final RejectedExecutionException e) {
+                tracked.reject();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Executes the given tasks, returning a list of Futures holding their status and results when all complete. The
+     * maximum of each progress monitor is raised to the number of submitted tasks, including the given tasks, before the
+     * tasks are executed.
+     */
+    @Override
+    public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        requireNonNull(tasks, "tasks == null");
+
+        expect(tasks.size());
+        return super.invokeAll(tasks);
+    }
+
+    /**
+     * Executes the given tasks, returning a list of Futures holding their status and results when all complete or the
+     * timeout expires, whichever happens first. The maximum of each progress monitor is raised to the number of submitted
+     * tasks, including the given tasks, before the tasks are executed.
+     */
+    @Override
+    public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks, final long timeout, final TimeUnit unit) throws InterruptedException {
+        requireNonNull(tasks, "tasks == null");
+
+        expect(tasks.size());
+        return super.invokeAll(tasks, timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(final Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        final List<TrackedCallable<T>> tracked = track(tasks);
+
+        try {
+            return delegate.invokeAny(tracked);
+        } finally {
+            cancelAll(tracked);
+        }
+    }
+
+    @Override
+    public <T> T invokeAny(final Collection<? extends Callable<T>> tasks, final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        final List<TrackedCallable<T>> tracked = track(tasks);
+
+        try {
+            return delegate.invokeAny(tracked, timeout, unit);
+        } finally {
+            cancelAll(tracked);
+        }
+    }
+
+    /**
+     * Initiates an orderly shutdown of the underlying {@code ExecutorService}. The progress monitors are completed once
+     * every submitted task has finished.
+     */
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+        shutdown = true;
+        drained();
+    }
+
+    /**
+     * Attempts to stop all actively executing tasks of the underlying {@code ExecutorService} and returns the tasks which
+     * were awaiting execution. The returned tasks are cancelled. The progress monitors are completed once the running
+     * tasks have finished.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        final List<Runnable> pending = delegate.shutdownNow();
+        final List<Runnable> tasks   = new ArrayList<>(pending.size());
+
+        shutdown = true;
+
+        for (final Runnable runnable : pending)
+            if (runnable instanceof TrackedCommand) {
+                final TrackedCommand tracked = (TrackedCommand) runnable;
+                tracked.cancel();
+                tasks.add(tracked.command);
+            } else {
+                if (runnable instanceof Future)
+                    ((Future<?>) runnable).cancel(false);
+                tasks.add(runnable);
+            }
+
+        drained();
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(final Runnable runnable, final T value) {
+        submitted.increment();
+        return new TrackedTask<>(runnable, value);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
+        submitted.increment();
+        return new TrackedTask<>(callable);
+    }
+
+    /*
+     * Sets the progress count of each monitor to the number of finished tasks. Called periodically by the scheduler and
+     * once more before the monitors are completed.
+     */
+    synchronized void update() {
+        if (terminated) // a periodic update which ran late, the monitors are being completed
+            return;
+
+        final long finished  = finished(); // read first, every finished task has already been counted as submitted
+        final long submitted = this.submitted.sum();
+
+        for (final ProgressMonitor monitor : monitors) {
+            if (monitor.isDone())
+                continue;
+
+            final long maximum = monitor.maximum();
+
+            if (maximum >= 0 && maximum < submitted)
+                monitor.setMaximum(submitted);
+            if (finished > monitor.getProgress())
+                monitor.setProgress(finished);
+        }
+    }
+
+    private void periodicUpdate() {
+        try {
+            update();
+        } catch (final RuntimeException e) { // an exception would suppress subsequent executions of the periodic task
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private synchronized void expect(final int tasks) {
+        final long maximum = submitted.sum() + tasks;
+
+        if (maximum < 1)
+            return;
+
+        for (final ProgressMonitor monitor : monitors)
+            if (!monitor.isDone() && monitor.maximum() < maximum)
+                monitor.setMaximum(maximum);
+    }
+
+    private <T> List<TrackedCallable<T>> track(final Collection<? extends Callable<T>> tasks) {
+        requireNonNull(tasks, "tasks == null");
+
+        final List<TrackedCallable<T>> tracked = new ArrayList<>(tasks.size());
+
+        for (final Callable<T> task : tasks)
+            tracked.add(new TrackedCallable<>(requireNonNull(task, "task == null")));
+
+        submitted.add(tracked.size());
+        return tracked;
+    }
+
+    private static void cancelAll(final List<? extends TrackedCallable<?>> tracked) {
+        for (final TrackedCallable<?> task : tracked)
+            task.cancel();
+    }
+
+    private long finished() {
+        return completed.sum() + failed.sum() + cancelled.sum();
+    }
+
+    private void finished(final LongAdder outcome) {
+        outcome.increment();
+        drained();
+    }
+
+    /*
+     * Completes the monitors if this ExecutorService has been shut down and every submitted task has finished. Tasks are
+     * counted as submitted before they are handed to the underlying ExecutorService, and the shutdown flag is set after it
+     * has been shut down, so at least one of the threads racing to finish the last task or to shut down will see both.
+     */
+    private void drained() {
+        if (shutdown && !terminated && finished() == submitted.sum())
+            terminate();
+    }
+
+    /*
+     * The monitors are completed outside the lock, so that listeners which call back into this ExecutorService never run
+     * while it is held.
+     */
+    private void terminate() {
+        synchronized (this) {
+            if (terminated)
+                return;
+
+            task.cancel(false);
+            update();
+            terminated = true;
+        }
+
+        for (final ProgressMonitor monitor : monitors)
+            monitor.complete();
+    }
+
+    /*
+     * The periodic task. Holds the ExecutorService weakly and cancels itself once it has been garbage collected, so that an
+     * ExecutorService which is never shut down does not leak the task.
+     */
+    private static final class Updater implements Runnable {
+
+        private final WeakReference<ProgressTrackingExecutorService> executor;
+        private volatile Future<?>                                   task; // set once the task has been scheduled
+
+        Updater(final ProgressTrackingExecutorService executor) {
+            this.executor = new WeakReference<>(executor);
+        }
+
+        @Override
+        public void run() {
+            final ProgressTrackingExecutorService executor = this.executor.get();
+
+            if (executor != null)
+                executor.periodicUpdate();
+            else if (task != null)
+                task.cancel(false);
+        }
+    }
+
+    /*
+     * A task created by submit or invokeAll. The outcome is counted when the task is done, which includes being cancelled
+     * before it has started.
+     */
+    private final class TrackedTask<T> extends FutureTask<T> {
+
+        private volatile boolean rejected = false;
+
+        TrackedTask(final Callable<T> callable) {
+            super(callable);
+        }
+
+        TrackedTask(final Runnable runnable, final T value) {
+            super(runnable, value);
+        }
+
+        boolean isTrackedBy(final ProgressTrackingExecutorService executor) {
+            return executor == ProgressTrackingExecutorService.this;
+        }
+
+        @Override
+        public void run() {
+            if (isDone())
+                return;
+
+            running.increment();
+
+            try {
+                super.run();
+            } finally {
+                running.decrement();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (rejected)
+                return;
+
+            if (isCancelled()) {
+                finished(cancelled);
+                return;
+            }
+
+            try {
+                get();
+                finished(completed);
+            } catch (final ExecutionException | InterruptedException e) { // the task is done, get() does not block
+                finished(failed);
+            }
+        }
+
+        void reject() {
+            rejected = true;
+            cancel(false);
+            submitted.decrement();
+            drained();
+        }
+    }
+
+    /*
+     * A plain Runnable passed to execute. Exceptions are counted and rethrown to the underlying ExecutorService.
+     */
+    private final class TrackedCommand implements Runnable {
+
+        private final Runnable      command;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        TrackedCommand(final Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true))
+                return;
+
+            running.increment();
+            boolean normal = false;
+
+            try {
+                command.run();
+                normal = true;
+            } finally {
+                running.decrement();
+                finished(normal ? completed : failed);
+            }
+        }
+
+        void cancel() {
+            if (claimed.compareAndSet(false, true))
+                finished(cancelled);
+        }
+
+        void reject() {
+            if (claimed.compareAndSet(false, true)) {
+                submitted.decrement();
+                drained();
+            }
+        }
+    }
+
+    /*
+     * A task passed to invokeAny. Tasks which have not started by the time invokeAny returns are counted as cancelled.
+     */
+    private final class TrackedCallable<T> implements Callable<T> {
+
+        private final Callable<T>   callable;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        TrackedCallable(final Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public T call() throws Exception {
+            if (!claimed.compareAndSet(false, true))
+                throw new CancellationException();
+
+            running.increment();
+            boolean normal = false;
+
+            try {
+                final T result = callable.call();
+                normal = true;
+                return result;
+            } finally {
+                running.decrement();
+                finished(normal ? completed : failed);
+            }
+        }
+
+        void cancel() {
+            if (claimed.compareAndSet(false, true))
+                finished(cancelled);
+        }
+    }
+
+}
@@ -0,0 +1,328 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects {@link ProgressMonitor}s which have stalled or slowed down, such as jobs blocked on hung I/O or lock convoys.
+ * <p>
+ * A {@code ProgressWatchdog} periodically reads the progress count of each {@link #watch(ProgressMonitor, Thread...)
+ * watched} monitor from a scheduler thread. Watching a monitor adds nothing to the cost of updating it: the watchdog
+ * does not register a listener and never takes the monitor's lock. On each check the watchdog notifies its
+ * {@link Listener} if:
+ * <ul>
+ * <li>the progress count has not changed for the {@link #setStallTimeout(Duration) stall timeout}, optionally along
+ * with the {@link #setThreadDumps(boolean) stack traces} of the monitor's worker threads</li>
+ * <li>the rate observed since the previous check is below a {@link #setMinimumRate(double) fraction} of the moving
+ * average rate, which discounts older measurements with a time constant of one minute</li>
+ * </ul>
+ * Each condition is reported once, and reported again only after the monitor has recovered from it. Monitors which
+ * have {@link ProgressMonitor#complete() completed} are dropped automatically:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * final ProgressWatchdog watchdog = new ProgressWatchdog(new ProgressWatchdog.Listener() {
+ *     {@literal @}Override
+ *     public void stalled(final ProgressMonitor monitor, final Duration idle, final Map&lt;Thread, StackTraceElement[]&gt; threads) {
+ *         log.warn(monitor.getName() + " has not progressed for " + idle);
+ *     }
+ * }).setStallTimeout(Duration.ofSeconds(30)).setThreadDumps(true);
+ *
+ * watchdog.watch(progress, workers);
+ * </code></pre>
+ * <p>
+ * The listener is invoked by the scheduler thread. Exceptions thrown by the listener are passed to the uncaught
+ * exception handler of the scheduler thread.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressWatchdog implements AutoCloseable {
+
+    /**
+     * Receives notifications from a {@link ProgressWatchdog}. The default implementations do nothing.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked when the progress count of the specified monitor has not changed for the stall timeout.
+         *
+         * @param monitor the stalled monitor
+         * @param idle    the amount of time since the progress count last changed
+         * @param threads the stack traces of the monitor's worker threads, or of all threads if no workers were specified,
+         *                or an empty map if thread dumps are disabled
+         */
+        public default void stalled(final ProgressMonitor monitor, final Duration idle, final Map<Thread, StackTraceElement[]> threads) {
+        }
+
+        /**
+         * Invoked when the rate of the specified monitor falls below the minimum fraction of its moving average rate.
+         *
+         * @param monitor     the monitor which slowed down
+         * @param rate        the rate observed since the previous check per second
+         * @param averageRate the moving average rate per second
+         */
+        public default void slowed(final ProgressMonitor monitor, final double rate, final double averageRate) {
+        }
+    }
+
+    /**
+     * The default amount of time between checks.
+     */
+    public static final Duration DEFAULT_CHECK_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * The default stall timeout.
+     */
+    public static final Duration DEFAULT_STALL_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * The default minimum rate as a fraction of the moving average rate.
+     */
+    public static final double DEFAULT_MINIMUM_RATE = 0.25;
+
+    /*
+     * The number of rate measurements required before the moving average is trusted.
+     */
+    private static final int MIN_SAMPLES = 5;
+
+    private static final double AVERAGE_TIME_CONSTANT = TimeUnit.MINUTES.toNanos(1);
+
+    private final Listener                              listener;
+    private final Future<?>                             task;
+    private final ConcurrentMap<ProgressMonitor, Watch> watches = new ConcurrentHashMap<>();
+
+    private volatile long    stallTimeout = DEFAULT_STALL_TIMEOUT.toNanos();
+    private volatile double  minimumRate  = DEFAULT_MINIMUM_RATE;
+    private volatile boolean threadDumps  = false;
+
+    /**
+     * Creates a new {@code ProgressWatchdog} which checks the watched monitors once per
+     * {@link #DEFAULT_CHECK_INTERVAL} from a scheduler thread shared by all {@code ProgressMonitor}s.
+     *
+     * @param listener the listener to notify
+     */
+    public ProgressWatchdog(final Listener listener) {
+        this(listener, DEFAULT_CHECK_INTERVAL, SharedScheduler.get());
+    }
+
+    /**
+     * Creates a new {@code ProgressWatchdog} which checks the watched monitors at the specified fixed rate from the
+     * specified scheduler.
+     *
+     * @param listener  the listener to notify
+     * @param interval  the amount of time between checks
+     * @param scheduler the scheduler used to check the monitors
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     */
+    public ProgressWatchdog(final Listener listener, final Duration interval, final ScheduledExecutorService scheduler) {
+        requireNonNull(listener, "listener == null");
+        requireNonNull(interval, "interval == null");
+        requireNonNull(scheduler, "scheduler == null");
+        if (interval.isZero() || interval.isNegative())
+            throw new IllegalArgumentException("interval <= 0");
+
+        this.listener = listener;
+        this.task     = scheduler.scheduleAtFixedRate(this::check, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the amount of time the progress count must remain unchanged before the monitor is reported as stalled.
+     *
+     * @param timeout the stall timeout
+     * @throws IllegalArgumentException if {@code timeout} is zero or negative
+     * @return this {@code ProgressWatchdog} instance
+     */
+    public ProgressWatchdog setStallTimeout(final Duration timeout) {
+        requireNonNull(timeout, "timeout == null");
+        if (timeout.isZero() || timeout.isNegative())
+            throw new IllegalArgumentException("timeout <= 0");
+
+        stallTimeout = timeout.toNanos();
+        return this;
+    }
+
+    /**
+     * Sets the fraction of the moving average rate below which a monitor is reported as having slowed down. A value of
+     * {@code 0} disables the check.
+     *
+     * @param fraction the minimum rate as a fraction of the moving average rate
+     * @throws IllegalArgumentException if {@code fraction} < 0 or {@code fraction} >= 1
+     * @return this {@code ProgressWatchdog} instance
+     */
+    public ProgressWatchdog setMinimumRate(final double fraction) {
+        if (!(fraction >= 0)) // rejects NaN
+            throw new IllegalArgumentException("fraction < 0");
+        if (fraction >= 1)
+            throw new IllegalArgumentException("fraction >= 1");
+
+        minimumRate = fraction;
+        return this;
+    }
+
+    /**
+     * Sets whether the stack traces of the worker threads are captured when a monitor is reported as stalled.
+     *
+     * @param enabled whether to capture thread dumps
+     * @return this {@code ProgressWatchdog} instance
+     */
+    public ProgressWatchdog setThreadDumps(final boolean enabled) {
+        threadDumps = enabled;
+        return this;
+    }
+
+    /**
+     * Starts watching the specified {@code ProgressMonitor}. If thread dumps are enabled, the stack traces of the
+     * specified worker threads are captured when the monitor stalls, or of all live threads if no workers are specified.
+     * Watching a monitor which is already watched replaces its workers and restarts its measurements.
+     *
+     * @param monitor the {@code ProgressMonitor} to watch
+     * @param workers the threads which update the progress count
+     * @return this {@code ProgressWatchdog} instance
+     */
+    public ProgressWatchdog watch(final ProgressMonitor monitor, final Thread... workers) {
+        requireNonNull(monitor, "monitor == null");
+        requireNonNull(workers, "workers == null");
+
+        watches.put(monitor, new Watch(monitor, workers.clone(), System.nanoTime()));
+        return this;
+    }
+
+    /**
+     * Stops watching the specified {@code ProgressMonitor}.
+     *
+     * @param monitor the {@code ProgressMonitor} to stop watching
+     */
+    public void unwatch(final ProgressMonitor monitor) {
+        requireNonNull(monitor, "monitor == null");
+        watches.remove(monitor);
+    }
+
+    /**
+     * Stops checking the watched monitors. Calling this method multiple times is permitted and will have no subsequent
+     * effect.
+     */
+    @Override
+    public void close() {
+        task.cancel(false);
+        watches.clear();
+    }
+
+    private void check() {
+        check(System.nanoTime());
+    }
+
+    /*
+     * Checks every watched monitor. Called periodically by the scheduler. Each monitor is checked separately, so that an
+     * exception thrown by the listener for one monitor neither skips the others nor suppresses subsequent executions of
+     * the periodic task.
+     */
+    synchronized void check(final long now) {
+        for (final Watch watch : watches.values())
+            try {
+                if (watch.monitor.isDone())
+                    watches.remove(watch.monitor, watch);
+                else
+                    watch.check(now);
+            } catch (final RuntimeException e) {
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+    }
+
+    /*
+     * The state of a watched monitor, confined to the checking thread.
+     */
+    private final class Watch {
+
+        private final ProgressMonitor monitor;
+        private final Thread[]        workers;
+
+        private long    checkedAt;
+        private long    progress;
+        private long    changedAt;
+        private double  averageRate = 0;
+        private int     samples     = 0;
+        private boolean stalled     = false;
+        private boolean slowed      = false;
+
+        Watch(final ProgressMonitor monitor, final Thread[] workers, final long now) {
+            this.monitor   = monitor;
+            this.workers   = workers;
+            this.checkedAt = now;
+            this.changedAt = now;
+            this.progress  = monitor.getProgress();
+        }
+
+        void check(final long now) {
+            final long progress = monitor.getProgress();
+            final long elapsed  = now - checkedAt;
+
+            if (elapsed <= 0)
+                return;
+
+            if (progress < this.progress) { // the monitor was reset
+                this.progress = progress;
+                checkedAt     = now;
+                changedAt     = now;
+                averageRate   = 0;
+                samples       = 0;
+                stalled       = false;
+                slowed        = false;
+                return;
+            }
+
+            final long previous = this.progress;
+
+            this.progress = progress;
+            checkedAt     = now;
+
+            // the listener is notified last, so an exception it throws does not skew the measurements of the next check
+            if (progress == previous) {
+                final long idle = now - changedAt;
+
+                if (!stalled && idle >= stallTimeout) {
+                    stalled = true;
+                    listener.stalled(monitor, Duration.ofNanos(idle), threadDumps ? dump() : Collections.emptyMap());
+                }
+            } else {
+                final double rate    = (double) (progress - previous) / elapsed * TimeUnit.SECONDS.toNanos(1);
+                final double average = averageRate;
+                final boolean slow   = samples >= MIN_SAMPLES && rate < minimumRate * average;
+
+                stalled     = false;
+                changedAt   = now;
+                averageRate = samples == 0 ? rate : average + (1D - Math.exp(-elapsed / AVERAGE_TIME_CONSTANT)) * (rate - average);
+                samples++;
+
+                if (!slow)
+                    slowed = false;
+                else if (!slowed) {
+                    slowed = true;
+                    listener.slowed(monitor, rate, average);
+                }
+            }
+        }
+
+        private Map<Thread, StackTraceElement[]> dump() {
+            if (workers.length == 0)
+                return Thread.getAllStackTraces();
+
+            final Map<Thread, StackTraceElement[]> threads = new LinkedHashMap<>();
+
+            for (final Thread worker : workers)
+                if (worker.isAlive())
+                    threads.put(worker, worker.getStackTrace());
+
+            return threads;
+        }
+    }
+
+}
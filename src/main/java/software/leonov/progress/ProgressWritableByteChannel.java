@@ -0,0 +1,71 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@code WritableByteChannel} which adds the number of bytes written to the progress count of a
+ * {@link ProgressMonitor}.
+ * <p>
+ * If the number of bytes which will be written is known and the {@code ProgressMonitor} does not define a
+ * {@link ProgressMonitor#getMaximum() maximum} value, the maximum is set to the current progress count plus the
+ * expected length. The only overhead per write is a single {@link ProgressMonitor#increment(long)} call, direct buffers
+ * are passed through to the underlying channel untouched.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressWritableByteChannel implements WritableByteChannel {
+
+    private final WritableByteChannel channel;
+    private final ProgressMonitor     progress;
+
+    /**
+     * Creates a new {@code ProgressWritableByteChannel} which does not set the maximum value of the specified
+     * {@code ProgressMonitor}.
+     * 
+     * @param channel  the underlying channel
+     * @param progress the {@code ProgressMonitor} to update
+     */
+    public ProgressWritableByteChannel(final WritableByteChannel channel, final ProgressMonitor progress) {
+        this(channel, progress, -1);
+    }
+
+    /**
+     * Creates a new {@code ProgressWritableByteChannel} which expects the specified number of bytes to be written.
+     * 
+     * @param channel  the underlying channel
+     * @param progress the {@code ProgressMonitor} to update
+     * @param length   the number of bytes which will be written or {@code -1} if unknown
+     */
+    public ProgressWritableByteChannel(final WritableByteChannel channel, final ProgressMonitor progress, final long length) {
+        requireNonNull(channel, "channel == null");
+        requireNonNull(progress, "progress == null");
+        this.channel  = channel;
+        this.progress = progress;
+        progress.setMaximumIfUndefined(length);
+    }
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+        final int count = channel.write(src);
+
+        if (count > 0)
+            progress.increment(count);
+
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,87 @@
+package software.leonov.progress;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * An estimate of the throughput of an operation tracked by a {@link ProgressMonitor}, computed when a
+ * {@link ProgressEvent} is published.
+ * <p>
+ * The {@link #getRate() instantaneous rate} is measured between the last two published events. The
+ * {@link #getAverageRate() average rate} is an exponentially weighted moving average of the instantaneous rate, which
+ * discounts older measurements with a time constant of {@link #SMOOTHING_TIME_CONSTANT}. The
+ * {@link #getTimeRemaining() time remaining} is estimated from the average rate.
+ *
+ * @author Zhenya Leonov
+ */
+public final class RateEstimate {
+
+    /**
+     * The time constant of the exponentially weighted moving average rate.
+     */
+    public static final Duration SMOOTHING_TIME_CONSTANT = Duration.ofSeconds(10);
+
+    static final RateEstimate UNKNOWN = new RateEstimate(0, -1, 0, 0, 0);
+
+    private final long   progress;
+    private final long   maximum;
+    private final long   elapsed;
+    private final double rate;
+    private final double averageRate;
+
+    RateEstimate(final long progress, final long maximum, final long elapsed, final double rate, final double averageRate) {
+        this.progress    = progress;
+        this.maximum     = maximum;
+        this.elapsed     = elapsed;
+        this.rate        = rate;
+        this.averageRate = averageRate;
+    }
+
+    /**
+     * Returns the time elapsed since the {@link ProgressMonitor} was created or {@link ProgressMonitor#reset() reset}.
+     * 
+     * @return the time elapsed since the {@link ProgressMonitor} was created or {@link ProgressMonitor#reset() reset}
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsed);
+    }
+
+    /**
+     * Returns the instantaneous rate in units of progress per second, measured since the previous event.
+     * 
+     * @return the instantaneous rate in units of progress per second
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the exponentially weighted moving average rate in units of progress per second.
+     * 
+     * @return the exponentially weighted moving average rate in units of progress per second
+     */
+    public double getAverageRate() {
+        return averageRate;
+    }
+
+    /**
+     * Returns the estimated time remaining until the progress count reaches the {@link ProgressMonitor#getMaximum()
+     * maximum} value based on the {@link #getAverageRate() average rate}. If the maximum value is not defined or the
+     * average rate is zero an empty {@code Optional} is returned.
+     * 
+     * @return the estimated time remaining
+     */
+    public Optional<Duration> getTimeRemaining() {
+        if (maximum < 0 || averageRate <= 0D)
+            return Optional.empty();
+
+        final double seconds = (maximum - progress) / averageRate;
+        return Optional.of(seconds >= Long.MAX_VALUE / 1e9 ? Duration.ofSeconds(Long.MAX_VALUE) : Duration.ofNanos((long) (seconds * 1e9)));
+    }
+
+    @Override
+    public String toString() {
+        return "RateEstimate[elapsed=" + getElapsed() + ", rate=" + rate + ", averageRate=" + averageRate + ", remaining=" + getTimeRemaining().orElse(null) + "]";
+    }
+
+}
@@ -0,0 +1,42 @@
+package software.leonov.progress;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the {@code ScheduledExecutorService} which drives periodic work, such as sampling the progress count, for all
+ * {@code ProgressMonitor}s that are not given a scheduler of their own.
+ *
+ * @author Zhenya Leonov
+ */
+final class SharedScheduler {
+
+    private SharedScheduler() {
+    }
+
+    /*
+     * A single daemon thread which is shared by all monitors. Cancelled tasks are removed from the queue immediately, so
+     * the thread terminates after a short idle period once there are no periodic tasks left.
+     */
+    static ScheduledExecutorService get() {
+        return SchedulerHolder.SCHEDULER;
+    }
+
+    private static class SchedulerHolder {
+        private static final ScheduledExecutorService SCHEDULER;
+
+        static {
+            final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                final Thread thread = new Thread(runnable, "progress-monitor-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setKeepAliveTime(1, TimeUnit.SECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+            scheduler.setRemoveOnCancelPolicy(true);
+            SCHEDULER = scheduler;
+        }
+    }
+
+}
@@ -0,0 +1,293 @@
+package software.leonov.progress;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+
+/**
+ * Publishes the live status of {@link ProgressMonitor}s to a memory-mapped file, so that other processes on the same
+ * host can read it with a {@link StatusBoardReader} without sockets, logging or any coordination with this process.
+ * <p>
+ * The file is divided into a fixed number of fixed-size slots. Each {@link #attach(ProgressMonitor) attached}
+ * {@code ProgressMonitor} is assigned a slot, into which every published {@link ProgressEvent} writes the progress
+ * count, the maximum value, the {@link RateEstimate#getAverageRate() average rate}, the wall-clock time and the done
+ * flag. Writing a slot costs an uncontended lock and a handful of stores into the mapped memory, no system calls are
+ * made after the file has been mapped. Slots are written using a sequence lock: the slot's sequence number is odd while
+ * the slot is being written, and readers retry until they observe the same even sequence number before and after
+ * reading the slot, so they always see a consistent snapshot.
+ * <p>
+ * Slots of monitors which have {@link ProgressMonitor#complete() completed} remain readable, and are reused only when
+ * all slots are taken:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * final StatusBoard board = StatusBoard.open(Paths.get("/dev/shm/jobs.board"), 1024);
+ * ...
+ * final ProgressMonitor progress = board.attach(new ProgressMonitor().setName("ingest"));
+ * </code></pre>
+ * <p>
+ * A {@code StatusBoard} file should be written by a single process.
+ *
+ * @author Zhenya Leonov
+ */
+public final class StatusBoard implements Closeable {
+
+    static final int MAGIC          = 0x50524742; // "PRGB"
+    static final int VERSION        = 1;
+    static final int HEADER_SIZE    = 64;
+    static final int SLOT_SIZE      = 128;
+    static final int MAX_NAME_BYTES = SLOT_SIZE - 60;
+
+    // header offsets
+    static final int HEADER_MAGIC     = 0;
+    static final int HEADER_VERSION   = 4;
+    static final int HEADER_SLOTS     = 8;
+    static final int HEADER_SLOT_SIZE = 12;
+
+    // slot offsets
+    static final int SEQUENCE    = 0;
+    static final int GENERATION  = 8; // incremented each time the slot is claimed
+    static final int PROGRESS    = 16;
+    static final int MAXIMUM     = 24;
+    static final int RATE        = 32;
+    static final int UPDATED     = 40;
+    static final int FLAGS       = 48;
+    static final int NAME_LENGTH = 56;
+    static final int NAME        = 60;
+
+    static final long IN_USE = 1;
+    static final long DONE   = 2;
+
+    private final FileChannel      channel;
+    private final MappedByteBuffer buffer;
+    private final int              slots;
+    private final Slot[]           claimed;
+    private final Object[]         locks;   // the write lock of each slot, shared by the listeners which claim it
+
+    private boolean closed = false;
+
+    private StatusBoard(final FileChannel channel, final int slots) throws IOException {
+        this.channel = channel;
+        this.slots   = slots;
+        this.claimed = new Slot[slots];
+        this.locks   = new Object[slots];
+        this.buffer  = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+
+        for (int i = 0; i < slots; i++)
+            locks[i] = new Object();
+
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putInt(HEADER_SLOTS, slots);
+        buffer.putInt(HEADER_SLOT_SIZE, SLOT_SIZE);
+        MemoryFences.storeFence();
+        buffer.putInt(HEADER_MAGIC, MAGIC); // readers check the magic number last
+    }
+
+    /**
+     * Creates a new status board file with the specified number of slots, replacing the file if it already exists.
+     *
+     * @param path  the status board file
+     * @param slots the number of slots
+     * @return a new {@code StatusBoard}
+     * @throws IllegalArgumentException if {@code slots} < 1
+     * @throws IOException              if an I/O error occurs
+     */
+    public static StatusBoard open(final Path path, final int slots) throws IOException {
+        requireNonNull(path, "path == null");
+        if (slots < 1)
+            throw new IllegalArgumentException("slots < 1");
+
+        final FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+
+        try {
+            return new StatusBoard(channel, slots);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Assigns a slot to the specified {@code ProgressMonitor} and {@link ProgressMonitor#addProgressListener(ProgressListener)
+     * adds} a listener which writes each published event into the slot. The slot is labeled with the
+     * {@link ProgressMonitor#getName() name} of the monitor, truncated to fit the slot if necessary.
+     * <p>
+     * A free slot is assigned if there is one, otherwise the least recently updated slot of a completed monitor is reused.
+     * Monitors should be attached before they complete: the done flag is written by the final event, so a monitor which
+     * has already completed is not flagged as done.
+     *
+     * @param monitor the {@code ProgressMonitor} to publish
+     * @return the specified {@code ProgressMonitor}
+     * @throws IllegalStateException if all slots are assigned to monitors which have not completed or this
+     *                               {@code StatusBoard} has been {@link #close() closed}
+     */
+    public synchronized ProgressMonitor attach(final ProgressMonitor monitor) {
+        requireNonNull(monitor, "monitor == null");
+        if (closed)
+            throw new IllegalStateException("board has been closed");
+
+        int index = -1;
+
+        for (int i = 0; i < slots && index < 0; i++)
+            if (claimed[i] == null)
+                index = i;
+
+        if (index < 0) {
+            for (int i = 0; i < slots; i++)
+                if (claimed[i].monitor.isDone() && (index < 0 || updated(i) < updated(index)))
+                    index = i;
+
+            if (index < 0)
+                throw new IllegalStateException("no free slots");
+        }
+
+        final Slot slot;
+
+        synchronized (locks[index]) { // waits for a write of the previous listener, which may still deliver a stale event
+            if (claimed[index] != null)
+                claimed[index].detached = true;
+
+            slot = new Slot(this, monitor, HEADER_SIZE + index * SLOT_SIZE, locks[index]);
+            slot.claim(monitor.getName());
+        }
+
+        claimed[index] = slot;
+
+        return monitor.addProgressListener(slot);
+    }
+
+    /**
+     * Returns the number of slots in this {@code StatusBoard}.
+     *
+     * @return the number of slots in this {@code StatusBoard}
+     */
+    public int getSlotCount() {
+        return slots;
+    }
+
+    /**
+     * Closes the underlying file. The mapping remains valid until it is garbage collected, so listeners of attached
+     * monitors continue to write to it. Calling this method multiple times is permitted and will have no subsequent
+     * effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    private long updated(final int index) {
+        return buffer.getLong(HEADER_SIZE + index * SLOT_SIZE + UPDATED);
+    }
+
+    /*
+     * Returns the UTF-8 encoding of the specified name, truncated at a code point boundary to fit a slot.
+     */
+    static byte[] truncate(final String name) {
+        byte[] bytes = name.getBytes(UTF_8);
+
+        for (int end = name.length(); bytes.length > MAX_NAME_BYTES; bytes = name.substring(0, end).getBytes(UTF_8))
+            end = name.offsetByCodePoints(end, -1);
+
+        return bytes;
+    }
+
+    /*
+     * Writes events into a slot. Events of a monitor are published one at a time, but a monitor which has completed may
+     * still deliver a stale event while its slot is reused for another monitor. Writes therefore hold the lock of the slot,
+     * which is uncontended unless the slot is being reused, so the sequence lock always has a single writer.
+     */
+    private static final class Slot implements LongProgressListener, CompletionListener {
+        private final MappedByteBuffer buffer;
+        private final ProgressMonitor  monitor;
+        private final int              offset;
+        private final Object           lock;
+        private long                   sequence;         // guarded by lock
+        private boolean                detached = false; // guarded by lock, set when the slot is reused for another monitor
+
+        Slot(final StatusBoard board, final ProgressMonitor monitor, final int offset, final Object lock) {
+            this.buffer   = board.buffer;
+            this.monitor  = monitor;
+            this.offset   = offset;
+            this.lock     = lock;
+            this.sequence = buffer.getLong(offset + SEQUENCE);
+
+            if ((sequence & 1) != 0) // left odd by a writer which died mid-write
+                sequence++;
+        }
+
+        void claim(final String name) {
+            final byte[] bytes = truncate(name);
+
+            begin();
+            buffer.putLong(offset + GENERATION, buffer.getLong(offset + GENERATION) + 1);
+            buffer.putLong(offset + PROGRESS, monitor.getProgress());
+            buffer.putLong(offset + MAXIMUM, monitor.getMaximum().orElse(-1));
+            buffer.putLong(offset + RATE, Double.doubleToRawLongBits(0D));
+            buffer.putLong(offset + UPDATED, System.currentTimeMillis());
+            buffer.putLong(offset + FLAGS, IN_USE); // the done flag is only written by the final event
+            buffer.putInt(offset + NAME_LENGTH, bytes.length);
+
+            for (int i = 0; i < bytes.length; i++)
+                buffer.put(offset + NAME + i, bytes[i]);
+
+            end();
+        }
+
+        @Override
+        public void progressChanged(final long progress, final long maximum) { // the final event arrives via completed()
+            write(progress, maximum, monitor.averageRate(), false);
+        }
+
+        @Override
+        public void progressChanged(final ProgressEvent event) { // delivered asynchronously or with a provisional maximum
+            write(event.getProgress(), event.isMaximumProvisional() ? -1 : event.getMaximum().orElse(-1), event.getRateEstimate().getAverageRate(), event.isDone());
+        }
+
+        @Override
+        public void completed(final long progress, final long maximum) {
+            write(progress, maximum, monitor.averageRate(), true);
+        }
+
+        private void write(final long progress, final long maximum, final double rate, final boolean done) {
+            final long now = System.currentTimeMillis();
+
+            synchronized (lock) {
+                if (detached)
+                    return;
+
+                begin();
+                buffer.putLong(offset + PROGRESS, progress);
+                buffer.putLong(offset + MAXIMUM, maximum);
+                buffer.putLong(offset + RATE, Double.doubleToRawLongBits(rate));
+                buffer.putLong(offset + UPDATED, now);
+                buffer.putLong(offset + FLAGS, done ? IN_USE | DONE : IN_USE);
+                end();
+            }
+        }
+
+        private void begin() {
+            buffer.putLong(offset + SEQUENCE, ++sequence);
+            MemoryFences.storeFence();
+        }
+
+        private void end() {
+            MemoryFences.storeFence();
+            buffer.putLong(offset + SEQUENCE, ++sequence);
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package software.leonov.progress;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.requireNonNull;
+import static software.leonov.progress.StatusBoard.DONE;
+import static software.leonov.progress.StatusBoard.FLAGS;
+import static software.leonov.progress.StatusBoard.GENERATION;
+import static software.leonov.progress.StatusBoard.HEADER_MAGIC;
+import static software.leonov.progress.StatusBoard.HEADER_SIZE;
+import static software.leonov.progress.StatusBoard.HEADER_SLOTS;
+import static software.leonov.progress.StatusBoard.HEADER_SLOT_SIZE;
+import static software.leonov.progress.StatusBoard.HEADER_VERSION;
+import static software.leonov.progress.StatusBoard.IN_USE;
+import static software.leonov.progress.StatusBoard.MAGIC;
+import static software.leonov.progress.StatusBoard.MAXIMUM;
+import static software.leonov.progress.StatusBoard.MAX_NAME_BYTES;
+import static software.leonov.progress.StatusBoard.NAME;
+import static software.leonov.progress.StatusBoard.NAME_LENGTH;
+import static software.leonov.progress.StatusBoard.PROGRESS;
+import static software.leonov.progress.StatusBoard.RATE;
+import static software.leonov.progress.StatusBoard.SEQUENCE;
+import static software.leonov.progress.StatusBoard.SLOT_SIZE;
+import static software.leonov.progress.StatusBoard.UPDATED;
+import static software.leonov.progress.StatusBoard.VERSION;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads the slots of a {@link StatusBoard} file written by another process, or by this one.
+ * <p>
+ * Reading a slot costs a handful of loads from the mapped memory and never blocks the writer. If the slot is being
+ * written concurrently the read is retried, so every returned {@link ProgressStatus} is a consistent snapshot of a
+ * single event. Slot names are decoded only when a slot is assigned to a new monitor, so polling thousands of slots
+ * allocates little more than the returned snapshots:
+ *
+ * <pre><code class="line-numbers match-braces language-java">
+ * try (final StatusBoardReader reader = StatusBoardReader.open(Paths.get("/dev/shm/jobs.board"))) {
+ *     for (final ProgressStatus status : reader.read())
+ *         ...
+ * }
+ * </code></pre>
+ *
+ * @author Zhenya Leonov
+ */
+public final class StatusBoardReader implements Closeable {
+
+    /*
+     * The number of attempts to read a slot consistently. A writer which died while writing the slot leaves it in an
+     * inconsistent state permanently.
+     */
+    private static final int MAX_ATTEMPTS = 10000;
+
+    private final FileChannel      channel;
+    private final MappedByteBuffer buffer;
+    private final int              slots;
+
+    // the decoded name and generation of each slot
+    private final String[] names;
+    private final long[]   generations;
+
+    private StatusBoardReader(final FileChannel channel) throws IOException {
+        this.channel = channel;
+
+        final long size = channel.size();
+
+        if (size < HEADER_SIZE)
+            throw new IOException("not a status board");
+
+        final MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE);
+        header.order(ByteOrder.nativeOrder());
+
+        if (header.getInt(HEADER_MAGIC) != MAGIC)
+            throw new IOException("not a status board");
+
+        MemoryFences.loadFence();
+
+        if (header.getInt(HEADER_VERSION) != VERSION || header.getInt(HEADER_SLOT_SIZE) != SLOT_SIZE)
+            throw new IOException("unsupported status board version");
+
+        this.slots = header.getInt(HEADER_SLOTS);
+
+        if (size < HEADER_SIZE + (long) slots * SLOT_SIZE)
+            throw new IOException("truncated status board");
+
+        this.buffer      = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+        this.names       = new String[slots];
+        this.generations = new long[slots];
+
+        buffer.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Opens the specified status board file for reading.
+     *
+     * @param path the status board file
+     * @return a new {@code StatusBoardReader}
+     * @throws IOException if an I/O error occurs or the file is not a status board
+     */
+    public static StatusBoardReader open(final Path path) throws IOException {
+        requireNonNull(path, "path == null");
+
+        final FileChannel channel = FileChannel.open(path, READ);
+
+        try {
+            return new StatusBoardReader(channel);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of slots in the status board.
+     *
+     * @return the number of slots in the status board
+     */
+    public int getSlotCount() {
+        return slots;
+    }
+
+    /**
+     * Returns a consistent snapshot of the specified slot.
+     *
+     * @param slot the index of the slot
+     * @return a consistent snapshot of the specified slot or an empty {@code Optional} if the slot has never been
+     *         assigned or was left inconsistent by a writer which died while writing it
+     * @throws IndexOutOfBoundsException if {@code slot} < 0 or {@code slot} >= {@link #getSlotCount()}
+     */
+    public synchronized Optional<ProgressStatus> read(final int slot) {
+        if (slot < 0 || slot >= slots)
+            throw new IndexOutOfBoundsException("slot (" + slot + ") out of range [0, " + slots + ")");
+
+        return Optional.ofNullable(snapshot(slot));
+    }
+
+    /**
+     * Returns consistent snapshots of all assigned slots, in slot order. The snapshots are not atomic across slots. Slots
+     * which were left inconsistent by a writer which died while writing them are skipped.
+     *
+     * @return consistent snapshots of all assigned slots
+     */
+    public synchronized List<ProgressStatus> read() {
+        final List<ProgressStatus> statuses = new ArrayList<>();
+
+        for (int slot = 0; slot < slots; slot++) {
+            final ProgressStatus status = snapshot(slot);
+
+            if (status != null)
+                statuses.add(status);
+        }
+
+        return statuses;
+    }
+
+    /**
+     * Closes the underlying file. The mapping remains valid until it is garbage collected. Calling this method multiple
+     * times is permitted and will have no subsequent effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ProgressStatus snapshot(final int slot) {
+        final int offset = HEADER_SIZE + slot * SLOT_SIZE;
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            final long before = buffer.getLong(offset + SEQUENCE);
+
+            if ((before & 1) != 0) { // being written
+                Thread.yield();
+                continue;
+            }
+
+            MemoryFences.loadFence();
+
+            final long flags = buffer.getLong(offset + FLAGS);
+
+            if ((flags & IN_USE) == 0)
+                return null;
+
+            final long   generation = buffer.getLong(offset + GENERATION);
+            final long   progress   = buffer.getLong(offset + PROGRESS);
+            final long   maximum    = buffer.getLong(offset + MAXIMUM);
+            final double rate       = Double.longBitsToDouble(buffer.getLong(offset + RATE));
+            final long   updated    = buffer.getLong(offset + UPDATED);
+            final String name       = generation == generations[slot] ? names[slot] : name(offset);
+
+            MemoryFences.loadFence();
+
+            if (buffer.getLong(offset + SEQUENCE) != before)
+                continue;
+
+            names[slot]       = name;
+            generations[slot] = generation;
+
+            return new ProgressStatus(slot, name, progress, maximum, rate, updated, (flags & DONE) != 0);
+        }
+
+        return null;
+    }
+
+    private String name(final int offset) {
+        final int    length = Math.max(0, Math.min(MAX_NAME_BYTES, buffer.getInt(offset + NAME_LENGTH)));
+        final byte[] bytes  = new byte[length];
+
+        for (int i = 0; i < length; i++)
+            bytes[i] = buffer.get(offset + NAME + i);
+
+        return new String(bytes, UTF_8);
+    }
+
+}
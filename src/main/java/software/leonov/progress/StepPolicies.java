@@ -0,0 +1,232 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+
+/*
+ * The StepPolicy implementations returned by the static factory methods of StepPolicy. Instances are invoked by one
+ * thread at a time, under the lock of concurrent monitors, so they need no synchronization of their own.
+ */
+final class StepPolicies {
+
+    private StepPolicies() {
+    }
+
+    /*
+     * The step size is one fifth of the count, bounded by the range. Once the maximum step size is reached it is never
+     * recomputed.
+     */
+    static final class Dynamic implements StepPolicy {
+
+        private final long minStepSize;
+        private final long maxStepSize;
+
+        Dynamic(final long minStepSize, final long maxStepSize) {
+            if (minStepSize <= 0)
+                throw new IllegalArgumentException("minStepSize <= 0");
+            if (maxStepSize <= 0)
+                throw new IllegalArgumentException("maxStepSize <= 0");
+            if (maxStepSize < minStepSize)
+                throw new IllegalArgumentException("maxStepSize < minStepSize");
+
+            this.minStepSize = minStepSize;
+            this.maxStepSize = maxStepSize;
+        }
+
+        @Override
+        public long start(final long count, final long maximum) {
+            return minStepSize;
+        }
+
+        @Override
+        public long nextStepSize(final long count, final long maximum, final long step) {
+            if (step >= maxStepSize)
+                return step;
+
+            return count > maxStepSize * 5 ? maxStepSize : (count / 5 <= minStepSize ? minStepSize : count / 5);
+        }
+    }
+
+    /*
+     * The step size is the number of increments between clock checks. After each check the step size is adjusted to the
+     * observed rate so that the clock is read about CHECKS_PER_INTERVAL times per interval, but it is never allowed to
+     * more than double at a time.
+     */
+    static final class Interval implements StepPolicy {
+
+        /*
+         * The number of times the clock is read per publish interval.
+         */
+        private static final long CHECKS_PER_INTERVAL = 8;
+
+        private final long interval; // in nanoseconds
+
+        private long now; // the time read by shouldPublish
+        private long publishedAt;
+        private long checkedAt;
+        private long checkedCount;
+
+        Interval(final Duration interval) {
+            requireNonNull(interval, "interval == null");
+            if (interval.isZero() || interval.isNegative())
+                throw new IllegalArgumentException("interval <= 0");
+
+            this.interval = interval.toNanos();
+        }
+
+        @Override
+        public long start(final long count, final long maximum) {
+            now          = System.nanoTime();
+            publishedAt  = now;
+            checkedAt    = now;
+            checkedCount = count;
+            return 1;
+        }
+
+        @Override
+        public boolean shouldPublish(final long count, final long maximum) {
+            now = System.nanoTime();
+
+            if (now - publishedAt < interval)
+                return false;
+
+            publishedAt = now;
+            return true;
+        }
+
+        @Override
+        public long nextStepSize(final long count, final long maximum, final long step) {
+            final long elapsed = now - checkedAt;
+            long       next    = step;
+
+            if (elapsed > 0) {
+                final long target = (long) ((double) (count - checkedCount) / elapsed * interval / CHECKS_PER_INTERVAL);
+                next = target < 1 ? 1 : Math.min(target, doubled(step));
+            }
+
+            checkedAt    = now;
+            checkedCount = count;
+
+            return next;
+        }
+    }
+
+    static final class Geometric implements StepPolicy {
+
+        private final long   initialStepSize;
+        private final double factor;
+
+        Geometric(final long initialStepSize, final double factor) {
+            if (initialStepSize <= 0)
+                throw new IllegalArgumentException("initialStepSize <= 0");
+            if (!(factor >= 1)) // rejects NaN
+                throw new IllegalArgumentException("factor < 1");
+
+            this.initialStepSize = initialStepSize;
+            this.factor          = factor;
+        }
+
+        @Override
+        public long start(final long count, final long maximum) {
+            return initialStepSize;
+        }
+
+        @Override
+        public long nextStepSize(final long count, final long maximum, final long step) {
+            final double next = Math.ceil(step * factor);
+            return next >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) next;
+        }
+    }
+
+    /*
+     * Falls back to the default dynamic policy until the maximum value is defined. The step size is recomputed at every
+     * boundary, so the spacing follows changes to the maximum value.
+     */
+    static final class EventsPerMaximum implements StepPolicy {
+
+        private final long       events;
+        private final StepPolicy undefined = new Dynamic(ProgressMonitor.DEFAULT_MIN_STEP_SIZE, ProgressMonitor.DEFAULT_MAX_STEP_SIZE);
+
+        EventsPerMaximum(final long events) {
+            if (events < 1)
+                throw new IllegalArgumentException("events < 1");
+
+            this.events = events;
+        }
+
+        @Override
+        public long start(final long count, final long maximum) {
+            return maximum < 0 ? undefined.start(count, maximum) : Math.max(1, maximum / events);
+        }
+
+        @Override
+        public long nextStepSize(final long count, final long maximum, final long step) {
+            return maximum < 0 ? undefined.nextStepSize(count, maximum, step) : Math.max(1, maximum / events);
+        }
+    }
+
+    /*
+     * Keeps cost * events per nanosecond <= budget, where events per nanosecond = rate / step, so the step size is
+     * rate * cost / budget. The cost is an exponentially weighted moving average of the publishing time, and the rate is
+     * measured over the last step.
+     */
+    static final class CpuBudget implements StepPolicy {
+
+        private static final double COST_SMOOTHING = 0.25;
+
+        private final double budget;
+
+        private long   startedAt;
+        private long   startedCount;
+        private double cost; // in nanoseconds per event, negative until the first event has been published
+
+        CpuBudget(final double budget) {
+            if (!(budget > 0)) // rejects NaN
+                throw new IllegalArgumentException("budget <= 0");
+            if (budget >= 1)
+                throw new IllegalArgumentException("budget >= 1");
+
+            this.budget = budget;
+        }
+
+        @Override
+        public long start(final long count, final long maximum) {
+            startedAt    = System.nanoTime();
+            startedCount = count;
+            cost         = -1;
+            return ProgressMonitor.DEFAULT_MIN_STEP_SIZE;
+        }
+
+        @Override
+        public void published(final long count, final long elapsed) {
+            cost = cost < 0 ? elapsed : cost + COST_SMOOTHING * (elapsed - cost);
+        }
+
+        @Override
+        public long nextStepSize(final long count, final long maximum, final long step) {
+            final long now     = System.nanoTime();
+            final long elapsed = now - startedAt;
+
+            if (elapsed <= 0 || cost < 0)
+                return step;
+
+            final double rate   = (double) (count - startedCount) / elapsed;
+            final double target = Math.ceil(rate * cost / budget);
+
+            startedAt    = now;
+            startedCount = count;
+
+            final long limit = doubled(step);
+            return target < 1 ? 1 : (target > limit ? limit : (long) target);
+        }
+    }
+
+    /*
+     * Returns twice the step size, or Long.MAX_VALUE if it would overflow.
+     */
+    private static long doubled(final long step) {
+        return step > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : step * 2;
+    }
+
+}
@@ -0,0 +1,154 @@
+package software.leonov.progress;
+
+import java.time.Duration;
+
+/**
+ * Decides when a {@link ProgressMonitor} publishes {@link ProgressEvent}s.
+ * <p>
+ * A {@code ProgressMonitor} only compares the progress count against the current step size while the count is being
+ * updated. Each time the count crosses a multiple of the step size the monitor consults its {@code StepPolicy}, which
+ * decides whether to {@link #shouldPublish(long, long) publish} an event and computes the
+ * {@link #nextStepSize(long, long, long) next step size}. Policies are therefore invoked at most once per step, never on
+ * every update, and always by one thread at a time.
+ * <p>
+ * Policies may be stateful, in which case an instance must not be shared between monitors. All policies returned by the
+ * static factory methods of this interface are new instances. The default policy of a {@code ProgressMonitor} is
+ * {@link #dynamic(long, long) dynamic(}{@link ProgressMonitor#DEFAULT_MIN_STEP_SIZE},
+ * {@link ProgressMonitor#DEFAULT_MAX_STEP_SIZE}{@code )}.
+ *
+ * @author Zhenya Leonov
+ */
+public interface StepPolicy {
+
+    /**
+     * Invoked when the policy is set, and when the {@code ProgressMonitor} is {@link ProgressMonitor#reset() reset} or
+     * {@link ProgressMonitor#resumeFrom(java.nio.file.Path) resumed}. Implementations should discard any state.
+     *
+     * @param count   the progress count
+     * @param maximum the maximum value or {@code -1} if the maximum value is not defined
+     * @return the initial step size, must be at least {@code 1}
+     */
+    public long start(final long count, final long maximum);
+
+    /**
+     * Invoked when the progress count crosses a step boundary.
+     *
+     * @param count   the progress count
+     * @param maximum the maximum value or {@code -1} if the maximum value is not defined
+     * @return {@code true} if an event should be published
+     */
+    public default boolean shouldPublish(final long count, final long maximum) {
+        return true;
+    }
+
+    /**
+     * Invoked after {@link #shouldPublish(long, long)}, and after the event has been published if it returned
+     * {@code true}.
+     *
+     * @param count   the progress count
+     * @param maximum the maximum value or {@code -1} if the maximum value is not defined
+     * @param step    the current step size
+     * @return the next step size, values less than {@code 1} are treated as {@code 1}
+     */
+    public long nextStepSize(final long count, final long maximum, final long step);
+
+    /**
+     * Invoked after an event has been published, with the time it took the publishing thread to publish it. The default
+     * implementation does nothing.
+     *
+     * @param count   the published progress count
+     * @param elapsed the time spent publishing the event in nanoseconds
+     */
+    public default void published(final long count, final long elapsed) {
+    }
+
+    /**
+     * Returns a policy which publishes an event every {@code stepSize} increments.
+     *
+     * @param stepSize the step size
+     * @throws IllegalArgumentException if {@code stepSize} <= 0
+     * @return a policy which publishes an event every {@code stepSize} increments
+     */
+    public static StepPolicy fixed(final long stepSize) {
+        return dynamic(stepSize, stepSize);
+    }
+
+    /**
+     * Returns a policy whose step size increases from the specified minimum to the maximum as the progress count grows.
+     * The step size is one fifth of the progress count, bounded by the specified range, so that events are published
+     * frequently while the operation starts and less often once it is well underway.
+     *
+     * @param minStepSize the minimum step size
+     * @param maxStepSize the maximum step size
+     * @throws IllegalArgumentException if {@code minStepSize} <= 0, {@code maxStepSize} <= 0, or {@code maxStepSize} <
+     *                                  {@code minMaxSize}
+     * @return a policy whose step size increases from the specified minimum to the maximum
+     */
+    public static StepPolicy dynamic(final long minStepSize, final long maxStepSize) {
+        return new StepPolicies.Dynamic(minStepSize, maxStepSize);
+    }
+
+    /**
+     * Returns a policy which publishes events at most once per the specified interval, regardless of the throughput of
+     * the operation.
+     * <p>
+     * To avoid reading the system clock on every update, the step size is the number of increments between clock checks.
+     * It adapts to the observed throughput, so that the clock is read a small, constant number of times per interval.
+     * Since events are only published as the progress count is updated, no events are published while the operation is
+     * stalled.
+     *
+     * @param interval the minimum amount of time between events
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @return a policy which publishes events at most once per the specified interval
+     */
+    public static StepPolicy interval(final Duration interval) {
+        return new StepPolicies.Interval(interval);
+    }
+
+    /**
+     * Returns a policy whose step size starts at the specified size and is multiplied by the specified factor after each
+     * event, so the number of events grows logarithmically with the progress count.
+     *
+     * @param initialStepSize the initial step size
+     * @param factor          the factor by which the step size grows after each event
+     * @throws IllegalArgumentException if {@code initialStepSize} <= 0 or {@code factor} < 1
+     * @return a policy whose step size grows geometrically
+     */
+    public static StepPolicy geometric(final long initialStepSize, final double factor) {
+        return new StepPolicies.Geometric(initialStepSize, factor);
+    }
+
+    /**
+     * Returns a policy which publishes the specified number of events over the course of the operation, spaced evenly
+     * between zero and the {@link ProgressMonitor#getMaximum() maximum} value. While the maximum value is not defined the
+     * policy behaves like the default {@link #dynamic(long, long) dynamic} policy.
+     *
+     * @param events the number of events to publish
+     * @throws IllegalArgumentException if {@code events} < 1
+     * @return a policy which publishes the specified number of events over the course of the operation
+     */
+    public static StepPolicy eventsPerMaximum(final long events) {
+        return new StepPolicies.EventsPerMaximum(events);
+    }
+
+    /**
+     * Returns a policy which keeps the time spent publishing events under the specified fraction of the elapsed time.
+     * <p>
+     * The policy measures the average cost of publishing an event, which is dominated by the listeners, and the rate at
+     * which the progress count is updated. After each event the step size is set so that the projected cost of publishing
+     * stays within the budget: the step is widened for expensive listeners and fast operations, and narrowed for cheap
+     * listeners and slow operations. The step size is never allowed to more than double at a time. For example a budget of
+     * {@code 0.001} limits publishing to 0.1% of the time of the updating thread.
+     * <p>
+     * If events are {@link ProgressMonitor#dispatchAsync() dispatched asynchronously} only the cost of handing the event
+     * off to the dispatcher is measured.
+     *
+     * @param budget the fraction of time which may be spent publishing events
+     * @throws IllegalArgumentException if {@code budget} <= 0 or {@code budget} >= 1
+     * @return a policy which keeps the time spent publishing events under the specified fraction of the elapsed time
+     */
+    public static StepPolicy cpuBudget(final double budget) {
+        return new StepPolicies.CpuBudget(budget);
+    }
+
+}
@@ -0,0 +1,133 @@
+package software.leonov.progress;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events emitted by {@link ProgressMonitor}.
+ * <p>
+ * A {@code software.leonov.progress.Publish} event is committed for every published {@code ProgressEvent} and a
+ * {@code software.leonov.progress.Listener} event for every listener invocation, including its duration. Events are only
+ * allocated while a recording which enables them is running. On JVMs without Flight Recorder support this class is
+ * inert.
+ * <p>
+ * Methods accept and return {@code Object}s so that {@link ProgressMonitor} does not refer to any {@code jdk.jfr} types
+ * directly and can be loaded on JVMs without Flight Recorder support. This class is compiled for Java 11 and replaces
+ * the inert Java 8 version in {@code META-INF/versions/11} of the multi-release jar.
+ *
+ * @author Zhenya Leonov
+ */
+final class FlightRecorderEvents {
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private FlightRecorderEvents() {
+    }
+
+    /*
+     * Flight Recorder is not initialized until a recording is started. Looking up the event types before then would
+     * initialize it as a side effect, which is expensive.
+     */
+    static boolean isEnabled() {
+        return AVAILABLE && FlightRecorder.isInitialized() && Types.isEnabled();
+    }
+
+    static Object beginPublish() {
+        final PublishEvent event = new PublishEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitPublish(final Object record, final String monitor, final long progress, final long maximum, final long stepSize, final int listeners) {
+        final PublishEvent event = (PublishEvent) record;
+
+        if (event.shouldCommit()) {
+            event.monitor   = monitor;
+            event.progress  = progress;
+            event.maximum   = maximum;
+            event.stepSize  = stepSize;
+            event.listeners = listeners;
+            event.commit();
+        }
+    }
+
+    static Object beginListener() {
+        final ListenerEvent event = new ListenerEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitListener(final Object record, final String monitor, final ProgressListener listener, final long progress) {
+        final ListenerEvent event = (ListenerEvent) record;
+
+        if (event.shouldCommit()) {
+            event.monitor  = monitor;
+            event.listener = listener.getClass().getName();
+            event.progress = progress;
+            event.commit();
+        }
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static class Types {
+        private static final EventType PUBLISH  = EventType.getEventType(PublishEvent.class);
+        private static final EventType LISTENER = EventType.getEventType(ListenerEvent.class);
+
+        static boolean isEnabled() {
+            return PUBLISH.isEnabled() || LISTENER.isEnabled();
+        }
+    }
+
+    @Name("software.leonov.progress.Publish")
+    @Label("Progress Publish")
+    @Category("Progress Monitor")
+    @Description("A ProgressEvent published to all listeners")
+    static class PublishEvent extends Event {
+
+        @Label("Monitor")
+        String monitor;
+
+        @Label("Progress")
+        long progress;
+
+        @Label("Maximum")
+        @Description("The maximum value or -1 if undefined")
+        long maximum;
+
+        @Label("Step Size")
+        long stepSize;
+
+        @Label("Listeners")
+        int listeners;
+    }
+
+    @Name("software.leonov.progress.Listener")
+    @Label("Progress Listener")
+    @Category("Progress Monitor")
+    @Description("The invocation of a single ProgressListener")
+    static class ListenerEvent extends Event {
+
+        @Label("Monitor")
+        String monitor;
+
+        @Label("Listener")
+        String listener;
+
+        @Label("Progress")
+        long progress;
+    }
+
+}
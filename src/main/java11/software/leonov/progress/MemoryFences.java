@@ -0,0 +1,32 @@
+package software.leonov.progress;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Memory fences which order plain memory accesses, such as reads and writes of a {@code MappedByteBuffer}.
+ * <p>
+ * This class is compiled for Java 11 and replaces the Java 8 version, which relies on {@code sun.misc.Unsafe}, in
+ * {@code META-INF/versions/11} of the multi-release jar.
+ *
+ * @author Zhenya Leonov
+ */
+final class MemoryFences {
+
+    private MemoryFences() {
+    }
+
+    /*
+     * Neither loads nor stores before the fence are reordered with stores after the fence.
+     */
+    static void storeFence() {
+        VarHandle.releaseFence();
+    }
+
+    /*
+     * Loads before the fence are not reordered with loads and stores after the fence.
+     */
+    static void loadFence() {
+        VarHandle.acquireFence();
+    }
+
+}
@@ -0,0 +1,213 @@
+package software.leonov.progress;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exposes the {@link ProgressEvent}s of a {@link ProgressMonitor} as a {@code Flow.Publisher}, for consumption by
+ * reactive pipelines.
+ * <p>
+ * Events are delivered to each subscriber according to its demand. Progress is a state rather than a sequence of
+ * independent messages, so when a subscriber requests events more slowly than they are published, intermediate events
+ * are conflated and the subscriber receives only the latest one once it requests more. Each subscription therefore
+ * holds at most one undelivered event, regardless of how slow the subscriber is. When the {@code ProgressMonitor}
+ * {@link ProgressMonitor#complete() completes}, the final event is delivered once requested, followed by
+ * {@link Flow.Subscriber#onComplete() onComplete}. Subscribers which subscribe after the monitor has completed receive
+ * {@code onComplete} immediately.
+ * <p>
+ * Events are delivered on the thread which publishes them, or on the thread which requests them if they were
+ * published while there was no outstanding demand. Signals to a subscriber are never concurrent. A subscriber which
+ * throws a {@code RuntimeException} is cancelled and the exception is passed to the uncaught exception handler of the
+ * signalling thread, so that it never propagates into the operation being tracked.
+ * <p>
+ * This class requires Java 9 or later and is shipped separately from the rest of the library, in the artifact with the
+ * {@code jdk9} classifier.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ProgressPublisher implements Flow.Publisher<ProgressEvent> {
+
+    private final CopyOnWriteArrayList<ProgressSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private volatile boolean done = false;
+
+    private ProgressPublisher() {
+    }
+
+    /**
+     * Returns a new {@code ProgressPublisher} which publishes the events of the specified {@code ProgressMonitor}.
+     *
+     * @param monitor the {@code ProgressMonitor} whose events to publish
+     * @return a new {@code ProgressPublisher}
+     */
+    public static ProgressPublisher of(final ProgressMonitor monitor) {
+        requireNonNull(monitor, "monitor == null");
+
+        final ProgressPublisher publisher = new ProgressPublisher();
+
+        publisher.done = monitor.isDone();
+        monitor.addProgressListener(publisher.new Listener());
+
+        return publisher;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super ProgressEvent> subscriber) {
+        requireNonNull(subscriber, "subscriber == null");
+
+        final ProgressSubscription subscription = new ProgressSubscription(subscriber);
+
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    private final class Listener implements ProgressListener, CompletionListener {
+
+        @Override
+        public void progressChanged(final ProgressEvent event) {
+            for (final ProgressSubscription subscription : subscriptions)
+                subscription.offer(event);
+
+            if (event.isDone()) // the monitor may complete while earlier events are still being delivered asynchronously
+                done = true;
+
+            for (final ProgressSubscription subscription : subscriptions)
+                subscription.drain();
+        }
+
+        /*
+         * Called once the final event has been delivered, if its progress count had already been published.
+         */
+        @Override
+        public void completed(final long progress, final long maximum) {
+            done = true;
+
+            for (final ProgressSubscription subscription : subscriptions)
+                subscription.drain();
+        }
+    }
+
+    private final class ProgressSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super ProgressEvent> subscriber;
+
+        private final AtomicReference<ProgressEvent> latest    = new AtomicReference<>(); // the latest undelivered event
+        private final AtomicLong                     requested = new AtomicLong();
+        private final AtomicInteger                  wip       = new AtomicInteger();     // serializes the drain loop
+
+        private volatile boolean   cancelled  = false;
+        private volatile Throwable error      = null;  // delivered by the drain loop
+        private boolean            terminated = false; // guarded by the drain loop
+
+        ProgressSubscription(final Flow.Subscriber<? super ProgressEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("n <= 0");
+                drain();
+                return;
+            }
+
+            long current;
+            long next;
+
+            do {
+                current = requested.get();
+                next    = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void offer(final ProgressEvent event) {
+            latest.set(event); // conflate any undelivered event
+        }
+
+        /*
+         * Only one thread runs the loop at a time, any other thread which calls drain() while the loop is running causes it
+         * to run again instead.
+         */
+        void drain() {
+            if (wip.getAndIncrement() != 0)
+                return;
+
+            int missed = 1;
+
+            do {
+                if (cancelled || terminated)
+                    return;
+
+                final Throwable error = this.error;
+
+                if (error != null) {
+                    terminated = true;
+                    cancel();
+
+                    try {
+                        subscriber.onError(error);
+                    } catch (final RuntimeException e) {
+                        failed(e);
+                    }
+                    return;
+                }
+
+                if (requested.get() > 0) {
+                    final ProgressEvent event = latest.getAndSet(null);
+
+                    if (event != null) {
+                        if (requested.get() != Long.MAX_VALUE)
+                            requested.decrementAndGet();
+
+                        try {
+                            subscriber.onNext(event);
+                        } catch (final RuntimeException e) {
+                            failed(e);
+                            return;
+                        }
+                    }
+                }
+
+                if (done && latest.get() == null && !cancelled) {
+                    terminated = true;
+                    subscriptions.remove(this);
+
+                    try {
+                        subscriber.onComplete();
+                    } catch (final RuntimeException e) {
+                        failed(e);
+                    }
+                    return;
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /*
+         * Cancels this subscription after the subscriber has thrown an exception. The exception must not propagate into
+         * the thread which published the event.
+         */
+        private void failed(final RuntimeException e) {
+            cancel();
+
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+}
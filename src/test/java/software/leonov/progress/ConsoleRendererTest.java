@@ -0,0 +1,75 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ConsoleRendererTest {
+
+    @Test
+    void close_draws_final_frame_on_single_line() throws Exception {
+        final StringWriter    out      = new StringWriter();
+        final ProgressMonitor scan     = new ProgressMonitor().setName("scan").setMaximum(100).setProgress(50);
+        final ProgressMonitor copy     = new ProgressMonitor().setName("copy").setMaximum(100).setProgress(100);
+        final ConsoleRenderer renderer = ConsoleRenderer.open(out, false).setRefreshInterval(Duration.ofHours(1)).setBarWidth(10);
+
+        renderer.add(scan).add(copy);
+        copy.complete();
+        renderer.close();
+
+        assertThat(out.toString()).isEqualTo("\rscan [=====>    ]  50% 50/100  copy [==========] 100% 100/100 done\n");
+    }
+
+    @Test
+    void render_ansi_redraws_lines_in_place() throws Exception {
+        final StringWriter    out      = new StringWriter();
+        final ProgressMonitor scan     = new ProgressMonitor().setName("scan").setMaximum(1000);
+        final ProgressMonitor load     = new ProgressMonitor().setName("load");
+        final ConsoleRenderer renderer = ConsoleRenderer.open(out, true).setRefreshInterval(Duration.ofHours(1)).setBarWidth(4);
+
+        renderer.add(scan).add(load);
+
+        final long now = System.nanoTime();
+
+        renderer.render(now);
+        scan.setProgress(500);
+        load.setProgress(250);
+        renderer.render(now + TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(out.toString()).isEqualTo("\rscan [>   ]   0% 0/1000\u001B[K\n" //
+                + "\rload [    ] 0\u001B[K\n" //
+                + "\u001B[2A" //
+                + "\rscan [==> ]  50% 500/1000 500.0/s ETA 0:00:01\u001B[K\n" //
+                + "\rload [    ] 250 250.0/s\u001B[K\n");
+
+        renderer.close();
+    }
+
+    @Test
+    void render_shorter_frame_erases_previous_frame() throws Exception {
+        final StringWriter    out      = new StringWriter();
+        final ProgressMonitor monitor  = new ProgressMonitor().setProgress(123456);
+        final ConsoleRenderer renderer = ConsoleRenderer.open(out, false).setRefreshInterval(Duration.ofHours(1)).setBarWidth(1);
+
+        renderer.add(monitor);
+        renderer.render(System.nanoTime());
+        monitor.reset();
+        renderer.render(System.nanoTime());
+
+        assertThat(out.toString()).isEqualTo("\r[ ] 123456\r[ ] 0     ");
+
+        renderer.close();
+    }
+
+    @Test
+    void setRefreshInterval_zero() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> ConsoleRenderer.open(new StringWriter(), false).setRefreshInterval(Duration.ZERO));
+        assertThat(e.getMessage()).isEqualTo("interval <= 0");
+    }
+
+}
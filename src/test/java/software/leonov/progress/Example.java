@@ -2,12 +2,12 @@ package software.leonov.progress;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 public class Example {
 
@@ -34,20 +34,10 @@ public class Example {
 
     private static void download(final URL from, final Path fout, final ProgressMonitor progress) throws IOException {
 
-        final URLConnection conn   = from.openConnection();
-        final long          length = conn.getContentLengthLong();
+        final URLConnection conn = from.openConnection();
 
-        progress.setMaximum(length).setStepSize(length / 100);
-        
-        final byte[] buffer = new byte[1024];
-
-        try (final InputStream in = conn.getInputStream(); final OutputStream out = Files.newOutputStream(fout)) {
-            int count = 0;
-
-            while ((count = in.read(buffer, 0, 1024)) != -1) {
-                out.write(buffer, 0, count);
-                progress.setProgress(progress.getProgress() + count);
-            }
+        try (final InputStream in = ProgressInputStream.of(conn, progress)) {
+            Files.copy(in, fout, StandardCopyOption.REPLACE_EXISTING);
         }
 
         progress.complete();
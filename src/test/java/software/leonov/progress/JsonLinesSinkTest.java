@@ -0,0 +1,196 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JsonLinesSinkTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void attach_writes_json_lines() throws IOException {
+        final Path            path    = temp.resolve("progress.jsonl");
+        final ProgressMonitor monitor = new ProgressMonitor().setName("copy \"a\\b\"").setStepSize(10).setMaximum(20);
+
+        try (final JsonLinesSink sink = JsonLinesSink.open(path)) {
+            sink.attach(monitor);
+
+            for (int i = 0; i < 20; i++)
+                monitor.increment();
+
+            monitor.complete();
+        }
+
+        final List<String> lines = Files.readAllLines(path);
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).matches("\\{\"name\":\"copy \\\\\"a\\\\\\\\b\\\\\"\",\"progress\":10,\"maximum\":20,\"timestamp\":\\d+,\"rate\":\\d+\\.\\d{3},\"done\":false}");
+        assertThat(lines.get(1)).contains("\"progress\":20,\"maximum\":20,");
+        assertThat(lines.get(1)).endsWith("\"done\":false}");
+        assertThat(lines.get(2)).matches("\\{\"name\":\"copy \\\\\"a\\\\\\\\b\\\\\"\",\"progress\":20,\"maximum\":20,\"timestamp\":\\d+,\"rate\":\\d+\\.\\d{3},\"done\":true}");
+    }
+
+    @Test
+    void attach_undefined_maximum_written_as_null() throws IOException {
+        final ByteArrayOutputStream out     = new ByteArrayOutputStream();
+        final ProgressMonitor       monitor = new ProgressMonitor().setStepSize(1);
+
+        try (final JsonLinesSink sink = JsonLinesSink.open(out)) {
+            sink.attach(monitor).increment();
+        }
+
+        assertThat(new String(out.toByteArray(), UTF_8)).contains("\"name\":\"\",\"progress\":1,\"maximum\":null,");
+    }
+
+    @Test
+    void attach_provisional_maximum_written_as_null() throws IOException {
+        final ByteArrayOutputStream out     = new ByteArrayOutputStream();
+        final ProgressMonitor       monitor = new ProgressMonitor().setStepSize(1).setEstimatedMaximum(100);
+
+        try (final JsonLinesSink sink = JsonLinesSink.open(out)) {
+            sink.attach(monitor).increment();
+        }
+
+        assertThat(new String(out.toByteArray(), UTF_8)).contains("\"progress\":1,\"maximum\":null,");
+    }
+
+    @Test
+    void attach_completed_with_unpublished_final_count() throws IOException {
+        final ByteArrayOutputStream out     = new ByteArrayOutputStream();
+        final ProgressMonitor       monitor = new ProgressMonitor().setStepSize(10);
+
+        try (final JsonLinesSink sink = JsonLinesSink.open(out)) {
+            sink.attach(monitor).setProgress(15).setProgress(17).complete();
+        }
+
+        final String[] lines = new String(out.toByteArray(), UTF_8).split("\n");
+
+        assertThat(lines).hasLength(2);
+        assertThat(lines[0]).contains("\"progress\":15,");
+        assertThat(lines[0]).endsWith("\"done\":false}");
+        assertThat(lines[1]).contains("\"progress\":17,");
+        assertThat(lines[1]).endsWith("\"done\":true}");
+    }
+
+    @Test
+    void attach_dispatchAsync_completed_on_dispatcher() throws IOException {
+        final ByteArrayOutputStream out     = new ByteArrayOutputStream();
+        final List<Runnable>        tasks   = new ArrayList<>();
+        final ProgressMonitor       monitor = new ProgressMonitor().setStepSize(10).dispatchAsync(tasks::add);
+
+        try (final JsonLinesSink sink = JsonLinesSink.open(out)) {
+            sink.attach(monitor);
+
+            monitor.setProgress(10).complete(); // the completion is coalesced with the pending event
+
+            assertThat(tasks).hasSize(1);
+            tasks.remove(0).run();
+
+            monitor.reset().setProgress(10);
+            tasks.remove(0).run();
+            monitor.complete(); // the final count has already been delivered
+
+            assertThat(tasks).hasSize(1);
+            tasks.remove(0).run();
+        }
+
+        final String[] lines = new String(out.toByteArray(), UTF_8).split("\n");
+
+        assertThat(lines).hasLength(3);
+        assertThat(lines[0]).contains("\"progress\":10,");
+        assertThat(lines[0]).endsWith("\"done\":true}");
+        assertThat(lines[1]).endsWith("\"done\":false}");
+        assertThat(lines[2]).contains("\"progress\":10,");
+        assertThat(lines[2]).endsWith("\"done\":true}");
+    }
+
+    @Test
+    void full_ring_drops_oldest_records() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final StringBuilder  written = new StringBuilder();
+
+        final OutputStream out = new OutputStream() {
+
+            @Override
+            public void write(final int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                writing.countDown();
+
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+
+                written.append(new String(b, off, len, UTF_8));
+            }
+        };
+
+        final ProgressMonitor monitor = new ProgressMonitor().setStepSize(1);
+        final JsonLinesSink   sink    = JsonLinesSink.open(out, 4).setFlushInterval(Duration.ofHours(1));
+
+        sink.attach(monitor);
+
+        for (int i = 0; i < 3; i++) // the ring is half full, so the writer takes the records and blocks writing them
+            monitor.increment();
+
+        writing.await();
+
+        for (int i = 0; i < 10; i++)
+            monitor.increment();
+
+        release.countDown();
+        sink.close();
+
+        final List<String> progress = Arrays.stream(written.toString().split("\n")).map(line -> line.replaceAll(".*\"progress\":(\\d+).*", "$1")).collect(Collectors.toList());
+
+        assertThat(progress).containsExactly("1", "2", "3", "10", "11", "12", "13").inOrder();
+        assertThat(sink.getDroppedCount()).isEqualTo(6L);
+    }
+
+    @Test
+    void putRate_three_decimal_places() {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        JsonLinesSink.putRate(buffer, 1024.5);
+        buffer.put((byte) ' ');
+        JsonLinesSink.putRate(buffer, 0.0004);
+        buffer.put((byte) ' ');
+        JsonLinesSink.putRate(buffer, Double.NaN);
+
+        assertThat(new String(buffer.array(), 0, buffer.position(), UTF_8)).isEqualTo("1024.500 0.000 0");
+    }
+
+    @Test
+    void escape_control_characters_and_truncates() {
+        assertThat(new String(JsonLinesSink.escape("a\tb"), UTF_8)).isEqualTo("a\\u0009b");
+
+        final char[] name = new char[JsonLinesSink.MAX_NAME_BYTES + 10];
+        Arrays.fill(name, 'x');
+
+        assertThat(JsonLinesSink.escape(new String(name))).hasLength(JsonLinesSink.MAX_NAME_BYTES);
+    }
+
+}
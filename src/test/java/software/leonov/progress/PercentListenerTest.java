@@ -0,0 +1,239 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PercentListenerTest {
+
+    static List<String> actual   = new ArrayList<>();
+    static List<String> expected = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        actual.clear();
+        expected.clear();
+    }
+
+    @Test
+    void progressChanged_default_pattern_matches_reference() {
+        for (final long maximum : new long[] { 1, 3, 7, 100, 101, 997, 1000, 65537, 200000 })
+            assertMatchesReference(new DecimalFormat("#"), maximum, 1);
+    }
+
+    @Test
+    void progressChanged_fraction_patterns_match_reference() {
+        for (final String pattern : new String[] { "#.#", "#.##", "0.000", "#,##0.0", "#%", "#.#%" })
+            for (final long maximum : new long[] { 7, 999, 123457 })
+                assertMatchesReference(new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(Locale.US)), maximum, 1);
+    }
+
+    @Test
+    void progressChanged_rounding_modes_match_reference() {
+        for (final RoundingMode mode : new RoundingMode[] { RoundingMode.DOWN, RoundingMode.UP, RoundingMode.HALF_UP, RoundingMode.CEILING }) {
+            final DecimalFormat format = new DecimalFormat("#.#");
+            format.setRoundingMode(mode);
+            assertMatchesReference(format, 9973, 1);
+        }
+    }
+
+    @Test
+    void progressChanged_random_steps_match_reference() {
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 20; i++)
+            assertMatchesReference(new DecimalFormat("#.##"), 1 + random.nextInt(10000000), 1 + random.nextInt(5000));
+    }
+
+    @Test
+    void progressChanged_reset_and_new_maximum_match_reference() {
+        final DecimalFormat   format    = new DecimalFormat("#");
+        final PercentListener listener  = listener(format);
+        final Reference       reference = new Reference(format);
+
+        for (final long[] event : new long[][] { { 10, 100 }, { 50, 100 }, { 20, 100 }, { 20, 40 }, { 40, 40 }, { 0, 40 }, { 4, 40 }, { 4, 400 }, { 200, 400 } }) {
+            listener.progressChanged(event(event[0], event[1]));
+            reference.progressChanged(event[0], event[1]);
+        }
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual).containsExactly("10", "50", "20", "50", "100", "10", "1", "50").inOrder();
+    }
+
+    @Test
+    void progressChanged_formats_once_per_boundary() {
+        for (final RoundingMode mode : new RoundingMode[] { RoundingMode.HALF_EVEN, RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.DOWN, RoundingMode.UP }) {
+            final AtomicInteger formatted = new AtomicInteger();
+            final DecimalFormat format    = new DecimalFormat("#.#") {
+
+                @Override
+                public StringBuffer format(final double number, final StringBuffer result, final FieldPosition position) {
+                    formatted.incrementAndGet();
+                    return super.format(number, result, position);
+                }
+            };
+
+            format.setRoundingMode(mode);
+            actual.clear();
+
+            final PercentListener listener = listener(format);
+
+            for (long progress = 0; progress <= 99991; progress++)
+                listener.progressChanged(event(progress, 99991));
+
+            assertThat(actual).hasSize(1000);
+            assertThat(formatted.get()).isLessThan(4 * actual.size()); // nearly always the value and a count on either side of the boundary
+        }
+    }
+
+    @Test
+    void progressChanged_maximum_undefined() {
+        final Exception e = assertThrows(IllegalStateException.class, () -> listener(new DecimalFormat("#")).progressChanged(event(1, -1)));
+        assertThat(e.getMessage()).isEqualTo("maximum value undefined");
+    }
+
+    @Test
+    void progressChanged_ProgressMonitor() {
+        final ProgressMonitor progress = new ProgressMonitor().setMaximum(1000).setStepSize(1).addProgressListener(listener(new DecimalFormat("#")));
+
+        for (int i = 0; i < 1000; i++)
+            progress.increment();
+
+        progress.complete();
+
+        assertThat(actual).hasSize(100);
+        assertThat(actual.get(0)).isEqualTo("1");
+        assertThat(actual.get(99)).isEqualTo("100");
+    }
+
+    @Test
+    void progressChanged_provisional_maximum_never_goes_backwards() {
+        final CompletableFuture<Long> size     = new CompletableFuture<>();
+        final ProgressMonitor         progress = new ProgressMonitor().setStepSize(10).setMaximumAsync(size).addProgressListener(listener(new DecimalFormat("#")));
+
+        progress.increment(10); // no estimate yet
+        progress.setEstimatedMaximum(100);
+        progress.increment(10);
+        progress.increment(20);
+        size.complete(200L);
+        progress.increment(40);
+        progress.increment(10);
+        progress.increment(110);
+        progress.complete();
+
+        assertThat(actual).containsExactly("20", "40", "45", "100").inOrder();
+    }
+
+    @Test
+    void progressChanged_provisional_maximum_never_100() {
+        final ProgressMonitor progress = new ProgressMonitor().setStepSize(10).setEstimatedMaximum(100).addProgressListener(listener(new DecimalFormat("#")));
+
+        progress.increment(100); // reaches the estimate
+        progress.increment(10);
+        progress.complete();
+
+        assertThat(actual).containsExactly("99", "100").inOrder();
+    }
+
+    @Test
+    void progressChanged_final_maximum_after_provisional_99() {
+        final CompletableFuture<Long> size     = new CompletableFuture<>();
+        final ProgressMonitor         progress = new ProgressMonitor().setStepSize(10).setMaximumAsync(size).setEstimatedMaximum(100).addProgressListener(listener(new DecimalFormat("#")));
+
+        progress.increment(100);
+        size.complete(200L);
+
+        for (int i = 0; i < 10; i++)
+            progress.increment(10);
+
+        progress.complete();
+
+        assertThat(actual).containsExactly("99", "100").inOrder();
+    }
+
+    private static void assertMatchesReference(final DecimalFormat format, final long maximum, final long step) {
+        actual.clear();
+        expected.clear();
+
+        final PercentListener listener  = listener((DecimalFormat) format.clone());
+        final Reference       reference = new Reference((DecimalFormat) format.clone());
+
+        for (long progress = 0; progress < maximum; progress += step) {
+            listener.progressChanged(event(progress, maximum));
+            reference.progressChanged(progress, maximum);
+        }
+
+        listener.progressChanged(event(maximum, maximum));
+        reference.progressChanged(maximum, maximum);
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private static ProgressEvent event(final long progress, final long maximum) {
+        return new ProgressEvent() {
+
+            @Override
+            public long getProgress() {
+                return progress;
+            }
+
+            @Override
+            public OptionalLong getMaximum() {
+                return maximum < 0 ? OptionalLong.empty() : OptionalLong.of(maximum);
+            }
+        };
+    }
+
+    private static PercentListener listener(final DecimalFormat format) {
+        return new PercentListener(format) {
+
+            @Override
+            public void progressChanged(final String pct) {
+                actual.add(pct);
+            }
+        };
+    }
+
+    /*
+     * The original implementation which formats and parses the value on every event.
+     */
+    private static class Reference {
+        private final NumberFormat format;
+        private String             last;
+
+        Reference(final NumberFormat format) {
+            this.format = format;
+        }
+
+        void progressChanged(final long progress, final long maximum) {
+            final double percentage = (double) progress / maximum * 100;
+            final String pct        = format.format(percentage);
+
+            try {
+                if (!pct.equals(last) && format.parse(pct).doubleValue() > 0D) {
+                    last = pct;
+                    expected.add(pct);
+                }
+            } catch (final ParseException e) {
+                // cannot happen
+            }
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PhasedMonitorTest {
+
+    static List<String> actual = new ArrayList<>();
+
+    @TempDir
+    Path temp;
+
+    Path path;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        actual.clear();
+        path = temp.resolve("etl.profile");
+    }
+
+    @Test
+    void open_without_profile_equal_shares() throws IOException {
+        try (final PhasedMonitor job = PhasedMonitor.open(path, "scan", "transform", "write")) {
+            assertThat(job.getShare("scan")).isWithin(0.001).of(1D / 3);
+            assertThat(job.getShare("transform")).isWithin(0.001).of(1D / 3);
+            assertThat(job.getShare("write")).isWithin(0.001).of(1D / 3);
+        }
+
+        assertThat(Files.exists(path)).isFalse();
+    }
+
+    @Test
+    void open_shares_proportional_to_history() throws IOException {
+        Files.write(path, Arrays.asList("scan=1000,3000", "transform=16000", "write=2000"));
+
+        try (final PhasedMonitor job = PhasedMonitor.open(path, "scan", "transform", "write", "verify")) {
+            assertThat(job.getShare("scan")).isWithin(0.001).of(0.075);
+            assertThat(job.getShare("transform")).isWithin(0.001).of(0.6);
+            assertThat(job.getShare("write")).isWithin(0.001).of(0.075);
+            assertThat(job.getShare("verify")).isWithin(0.001).of(0.25); // the average of the known phases
+        }
+    }
+
+    @Test
+    void phases_roll_up_and_complete_overall_monitor() throws IOException {
+        Files.write(path, Arrays.asList("scan=1000", "write=3000"));
+
+        try (final PhasedMonitor job = PhasedMonitor.open(path, "scan", "write")) {
+            final ProgressMonitor overall = job.getMonitor().addProgressListener(new PercentListener() {
+                @Override
+                public void progressChanged(final String pct) {
+                    actual.add(pct);
+                }
+            });
+
+            final ProgressMonitor scan = job.begin("scan").setMaximum(10).setStepSize(1);
+
+            for (int i = 0; i < 10; i++)
+                scan.increment();
+
+            scan.complete();
+
+            assertThat(overall.getProgress()).isEqualTo(Math.round(job.getShare("scan") * PhasedMonitor.SCALE));
+            assertThat(job.getShare("scan")).isWithin(0.001).of(0.25);
+            assertThat(overall.isDone()).isFalse();
+
+            final ProgressMonitor write = job.begin("write").setMaximum(4).setStepSize(1);
+
+            for (int i = 0; i < 4; i++)
+                write.increment();
+
+            write.complete();
+
+            assertThat(overall.getProgress()).isEqualTo(PhasedMonitor.SCALE);
+            assertThat(overall.isDone()).isTrue();
+        }
+
+        assertThat(actual.get(actual.size() - 1)).isEqualTo("100");
+    }
+
+    @Test
+    void phase_completes_with_unpublished_final_count() throws IOException {
+        try (final PhasedMonitor job = PhasedMonitor.open(path, "scan")) {
+            final ProgressMonitor scan = job.begin("scan").setMaximum(10).setStepSize(100);
+
+            for (int i = 0; i < 10; i++)
+                scan.increment();
+
+            assertThat(job.getMonitor().isDone()).isFalse();
+
+            scan.complete();
+
+            assertThat(job.getMonitor().getProgress()).isEqualTo(PhasedMonitor.SCALE);
+            assertThat(job.getMonitor().isDone()).isTrue();
+        }
+    }
+
+    @Test
+    void close_appends_bounded_history() throws IOException {
+        for (int run = 0; run < PhasedMonitor.HISTORY_SIZE + 5; run++)
+            try (final PhasedMonitor job = PhasedMonitor.open(path, "scan", "write")) {
+                job.begin("scan").complete();
+            }
+
+        final List<String> lines = Files.readAllLines(path);
+
+        assertThat(lines.stream().noneMatch(line -> line.startsWith("write="))).isTrue();
+        assertThat(lines.stream().filter(line -> line.startsWith("scan=")).findFirst().get().split(",")).hasLength(PhasedMonitor.HISTORY_SIZE);
+    }
+
+    @Test
+    void begin_twice() throws IOException {
+        try (final PhasedMonitor job = PhasedMonitor.open(path, "scan")) {
+            job.begin("scan");
+
+            final Exception e = assertThrows(IllegalStateException.class, () -> job.begin("scan"));
+            assertThat(e.getMessage()).isEqualTo("phase scan has already begun");
+        }
+    }
+
+    @Test
+    void begin_unknown_phase() throws IOException {
+        try (final PhasedMonitor job = PhasedMonitor.open(path, "scan")) {
+            final Exception e = assertThrows(IllegalArgumentException.class, () -> job.begin("write"));
+            assertThat(e.getMessage()).isEqualTo("unknown phase: write");
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProgressAggregatorTest {
+
+    static final int PACKET_PROGRESS = 20;
+    static final int PACKET_MAXIMUM  = 28;
+    static final int PACKET_DONE     = 36;
+
+    ProgressAggregator aggregator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (aggregator != null)
+            aggregator.close();
+    }
+
+    @Test
+    void loopback_3_nodes_completed() throws Exception {
+        aggregator = ProgressAggregator.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 3);
+
+        final List<String> percents = Collections.synchronizedList(new ArrayList<>());
+
+        aggregator.getMonitor().addProgressListener(new PercentListener() {
+            @Override
+            public void progressChanged(final String pct) {
+                percents.add(pct);
+            }
+        });
+
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int n = 0; n < 3; n++) {
+            final ProgressMonitor  progress = new ProgressMonitor().setMaximum(10000);
+            final ProgressReporter reporter = ProgressReporter.open(progress, aggregator.getLocalAddress());
+
+            threads.add(new Thread(() -> {
+                try (final ProgressReporter r = reporter) {
+                    for (int i = 0; i < 10000; i++)
+                        progress.increment();
+
+                    progress.complete();
+                } catch (final IOException e) {
+                    throw new AssertionError(e);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+
+        for (final Thread thread : threads)
+            thread.join();
+
+        final ProgressMonitor merged = aggregator.getMonitor();
+
+        for (int i = 0; i < 500 && !merged.isDone(); i++)
+            Thread.sleep(10);
+
+        assertThat(merged.isDone()).isTrue();
+        assertThat(merged.getProgress()).isEqualTo(30000L);
+        assertThat(merged.getMaximum()).hasValue(30000L);
+        assertThat(percents.get(percents.size() - 1)).isEqualTo("100");
+    }
+
+    @Test
+    void duplicate_and_reordered_packets_discarded() throws Exception {
+        aggregator = ProgressAggregator.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+
+        try (final DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(aggregator.getLocalAddress());
+
+            send(channel, 2, 200, false);
+            send(channel, 1, 100, false);
+            send(channel, 2, 200, false);
+            send(channel, 3, 300, true);
+            send(channel, 3, 300, true);
+        }
+
+        final ProgressMonitor merged = aggregator.getMonitor();
+
+        for (int i = 0; i < 500 && !merged.isDone(); i++)
+            Thread.sleep(10);
+
+        assertThat(merged.isDone()).isTrue();
+        assertThat(merged.getProgress()).isEqualTo(300L);
+        assertThat(merged.getMaximum()).hasValue(1000L);
+    }
+
+    @Test
+    void final_event_already_published_reported_done() throws Exception {
+        aggregator = ProgressAggregator.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+
+        final ProgressMonitor progress = new ProgressMonitor().setStepSize(10);
+
+        try (final ProgressReporter reporter = ProgressReporter.open(progress, aggregator.getLocalAddress())) {
+            progress.setProgress(10).complete();
+        }
+
+        final ProgressMonitor merged = aggregator.getMonitor();
+
+        for (int i = 0; i < 500 && !merged.isDone(); i++)
+            Thread.sleep(10);
+
+        assertThat(merged.isDone()).isTrue();
+        assertThat(merged.getProgress()).isEqualTo(10L);
+    }
+
+    @Test
+    void reporter_dispatchAsync_completed_on_dispatcher() throws Exception {
+        final List<Runnable>  tasks    = new ArrayList<>();
+        final ProgressMonitor progress = new ProgressMonitor().setStepSize(10).dispatchAsync(tasks::add);
+
+        try (final DatagramChannel channel = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)); final ProgressReporter reporter = ProgressReporter.open(progress, channel.getLocalAddress(), 42)) {
+            channel.configureBlocking(false);
+
+            progress.setProgress(10);
+            tasks.remove(0).run();
+
+            assertThat(receive(channel).get(PACKET_DONE)).isEqualTo((byte) 0);
+
+            progress.complete();
+
+            assertThat(channel.receive(ByteBuffer.allocate(ProgressReporter.PACKET_SIZE))).isNull();
+
+            tasks.remove(0).run();
+
+            for (int i = 0; i < ProgressReporter.FINAL_PACKET_COPIES; i++) {
+                final ByteBuffer packet = receive(channel);
+                assertThat(packet.getLong(PACKET_PROGRESS)).isEqualTo(10L);
+                assertThat(packet.get(PACKET_DONE)).isEqualTo(ProgressReporter.DONE);
+            }
+        }
+    }
+
+    @Test
+    void reporter_provisional_maximum_sent_undefined() throws Exception {
+        final CompletableFuture<Long> size     = new CompletableFuture<>();
+        final ProgressMonitor         progress = new ProgressMonitor().setStepSize(10).setMaximumAsync(size).setEstimatedMaximum(100);
+
+        try (final DatagramChannel channel = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)); final ProgressReporter reporter = ProgressReporter.open(progress, channel.getLocalAddress(), 42)) {
+            channel.configureBlocking(false);
+
+            progress.setProgress(10);
+
+            assertThat(receive(channel).getLong(PACKET_MAXIMUM)).isEqualTo(-1L);
+
+            size.complete(200L);
+            progress.setProgress(20);
+
+            assertThat(receive(channel).getLong(PACKET_MAXIMUM)).isEqualTo(200L);
+        }
+    }
+
+    @Test
+    void reporter_stale_event_after_complete_not_done() throws Exception {
+        final ProgressMonitor progress = new ProgressMonitor().setMaximum(100).setStepSize(10);
+
+        try (final DatagramChannel channel = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)); final ProgressReporter reporter = ProgressReporter.open(progress, channel.getLocalAddress(), 42)) {
+            channel.configureBlocking(false);
+
+            progress.setProgress(15);
+
+            assertThat(receive(channel).get(PACKET_DONE)).isEqualTo((byte) 0);
+
+            progress.setProgress(17);
+            progress.complete();
+
+            for (int i = 0; i < ProgressReporter.FINAL_PACKET_COPIES; i++) {
+                final ByteBuffer packet = receive(channel);
+                assertThat(packet.getLong(PACKET_PROGRESS)).isEqualTo(17L);
+                assertThat(packet.get(PACKET_DONE)).isEqualTo(ProgressReporter.DONE);
+            }
+
+            reporter.progressChanged(10, 100); // an earlier event still being delivered by another thread
+
+            final ByteBuffer packet = receive(channel);
+            assertThat(packet.getLong(PACKET_PROGRESS)).isEqualTo(10L);
+            assertThat(packet.get(PACKET_DONE)).isEqualTo((byte) 0);
+        }
+    }
+
+    static ByteBuffer receive(final DatagramChannel channel) throws Exception {
+        final ByteBuffer packet = ByteBuffer.allocate(ProgressReporter.PACKET_SIZE);
+
+        for (int i = 0; i < 500 && channel.receive(packet) == null; i++)
+            Thread.sleep(10);
+
+        assertThat(packet.position()).isEqualTo(ProgressReporter.PACKET_SIZE);
+        return packet;
+    }
+
+    static void send(final DatagramChannel channel, final long sequence, final long progress, final boolean done) throws IOException {
+        final ByteBuffer packet = ByteBuffer.allocate(ProgressReporter.PACKET_SIZE);
+        ProgressReporter.encode(packet, 42, sequence, progress, 1000, done);
+        packet.flip();
+        channel.write(packet);
+    }
+
+}
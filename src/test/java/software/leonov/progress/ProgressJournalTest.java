@@ -0,0 +1,198 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgressJournalTest {
+
+    static List<Long> actual = new ArrayList<>();
+
+    @TempDir
+    Path temp;
+
+    Path path;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        actual.clear();
+        path = temp.resolve("progress.journal");
+    }
+
+    @Test
+    void resumeFrom_latest_checkpoint() throws IOException {
+        final ProgressMonitor progress = new ProgressMonitor().setStepSize(10).setMaximum(100);
+
+        try (final ProgressJournal journal = ProgressJournal.open(path)) {
+            progress.addProgressListener(journal);
+
+            for (int i = 0; i < 55; i++)
+                progress.increment();
+        }
+
+        final ProgressMonitor resumed = new ProgressMonitor().setStepSize(10).addProgressListener(event -> actual.add(event.getProgress())).resumeFrom(path);
+
+        assertThat(resumed.getProgress()).isEqualTo(50L);
+        assertThat(resumed.getMaximum()).hasValue(100L);
+        assertThat(actual).isEqualTo(Arrays.asList(50L));
+
+        for (int i = 0; i < 10; i++)
+            resumed.increment();
+
+        assertThat(actual).isEqualTo(Arrays.asList(50L, 60L));
+    }
+
+    @Test
+    void resumeFrom_dynamic_step_size_restored() throws IOException {
+        try (final ProgressJournal journal = ProgressJournal.open(path)) {
+            final ProgressMonitor progress = new ProgressMonitor().addProgressListener(journal);
+
+            for (int i = 0; i < 10000; i++)
+                progress.increment();
+        }
+
+        final ProgressMonitor resumed = new ProgressMonitor().resumeFrom(path);
+
+        assertThat(resumed.getProgress()).isEqualTo(10000L);
+        assertThat(resumed.getCurrentStepSize()).isEqualTo(ProgressMonitor.DEFAULT_MAX_STEP_SIZE);
+    }
+
+    @Test
+    void resumeFrom_provisional_maximum_not_restored() throws IOException {
+        try (final ProgressJournal journal = ProgressJournal.open(path)) {
+            new ProgressMonitor().setStepSize(10).setEstimatedMaximum(100).addProgressListener(journal).setProgress(50);
+        }
+
+        final ProgressMonitor resumed = new ProgressMonitor().resumeFrom(path);
+
+        assertThat(resumed.getProgress()).isEqualTo(50L);
+        assertThat(resumed.getMaximum()).isEmpty();
+
+        resumed.setProgress(150); // past the old estimate
+    }
+
+    @Test
+    void resumeFrom_below_step_size_not_published() throws IOException {
+        try (final ProgressJournal journal = ProgressJournal.open(path)) {
+            journal.progressChanged(5, 100);
+        }
+
+        final ProgressMonitor resumed = new ProgressMonitor().setStepSize(10).addProgressListener(event -> actual.add(event.getProgress())).resumeFrom(path);
+
+        assertThat(resumed.getProgress()).isEqualTo(5L);
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void progressChanged_after_close_ignored() throws IOException {
+        final ProgressMonitor progress = new ProgressMonitor().setStepSize(10);
+
+        try (final ProgressJournal journal = ProgressJournal.open(path)) {
+            progress.addProgressListener(journal).setProgress(10);
+        }
+
+        progress.setProgress(20);
+
+        assertThat(new ProgressMonitor().resumeFrom(path).getProgress()).isEqualTo(10L);
+    }
+
+    @Test
+    void resumeFrom_behind_progress_leaves_monitor_unchanged() throws IOException {
+        try (final ProgressJournal journal = ProgressJournal.open(path)) {
+            journal.progressChanged(50, 100);
+        }
+
+        final ProgressMonitor progress = new ProgressMonitor().setMaximum(200).setProgress(60);
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> progress.resumeFrom(path));
+        assertThat(e.getMessage()).isEqualTo("count (50) < progress (60)");
+        assertThat(progress.getProgress()).isEqualTo(60L);
+        assertThat(progress.getMaximum()).hasValue(200L);
+    }
+
+    @Test
+    void resumeFrom_beyond_maximum_leaves_monitor_unchanged() throws IOException {
+        try (final ProgressJournal journal = ProgressJournal.open(path)) {
+            journal.progressChanged(50, -1);
+        }
+
+        final ProgressMonitor progress = new ProgressMonitor().setMaximum(40);
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> progress.resumeFrom(path));
+        assertThat(e.getMessage()).isEqualTo("count (50) > maximum (40)");
+        assertThat(progress.getProgress()).isEqualTo(0L);
+        assertThat(progress.getMaximum()).hasValue(40L);
+    }
+
+    @Test
+    void resumeFrom_missing_journal() throws IOException {
+        final ProgressMonitor progress = new ProgressMonitor().resumeFrom(path);
+
+        assertThat(progress.getProgress()).isEqualTo(0L);
+        assertThat(progress.getMaximum()).isEmpty();
+    }
+
+    @Test
+    void progressChanged_batched() throws IOException {
+        try (final ProgressJournal journal = ProgressJournal.open(path).setBatchSize(4).setWriteInterval(Duration.ofHours(1))) {
+            journal.progressChanged(1, -1);
+            journal.progressChanged(2, -1);
+            journal.progressChanged(3, -1);
+
+            assertThat(ProgressJournal.read(path)).isNull();
+
+            journal.progressChanged(4, -1);
+
+            assertThat(ProgressJournal.read(path)).isEqualTo(new long[] { 4, -1 });
+
+            journal.progressChanged(5, 10);
+        }
+
+        assertThat(ProgressJournal.read(path)).isEqualTo(new long[] { 5, 10 });
+    }
+
+    @Test
+    void progressChanged_compacted() throws IOException {
+        try (final ProgressJournal journal = ProgressJournal.open(path).setBatchSize(1).setMaxRecords(8)) {
+            for (int i = 1; i <= 100; i++) {
+                journal.progressChanged(i, 100);
+                assertThat(Files.size(path)).isAtMost(8L * ProgressJournal.RECORD_SIZE);
+            }
+        }
+
+        assertThat(ProgressJournal.read(path)).isEqualTo(new long[] { 100, 100 });
+    }
+
+    @Test
+    void read_torn_and_corrupt_records_skipped() throws IOException {
+        try (final ProgressJournal journal = ProgressJournal.open(path).setBatchSize(1)) {
+            journal.progressChanged(1, 100);
+            journal.progressChanged(2, 100);
+        }
+
+        Files.write(path, new byte[ProgressJournal.RECORD_SIZE + 10], APPEND);
+
+        assertThat(ProgressJournal.read(path)).isEqualTo(new long[] { 2, 100 });
+
+        try (final ProgressJournal journal = ProgressJournal.open(path).setBatchSize(1)) {
+            journal.progressChanged(3, 100);
+        }
+
+        assertThat(Files.size(path)).isEqualTo(4L * ProgressJournal.RECORD_SIZE);
+        assertThat(ProgressJournal.read(path)).isEqualTo(new long[] { 3, 100 });
+    }
+
+}
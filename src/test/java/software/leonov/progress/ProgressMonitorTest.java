@@ -4,10 +4,19 @@ import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.LongStream;
 
 import org.junit.jupiter.api.AfterAll;
@@ -179,4 +188,808 @@ class ProgressMonitorTest {
         assertThat(actual).isEqualTo(expected);
     }
 
+    @Test
+    void concurrent_increment_1_to_10000_completed() {
+        progress = ProgressMonitor.concurrent().addProgressListener(event -> actual.add(event.getProgress()));
+
+        for (int i = 0; i < 10000; i++)
+            progress.increment();
+
+        progress.complete();
+
+        final List<Long> expected = Arrays.asList(10L, 20L, 30L, 40L, 50L, 60L, 72L, 84L, 96L, 114L, 132L, 156L, 186L, 222L, 264L, 312L, 372L, 444L, 528L, 630L, 756L, 906L, 1086L, 1302L, 1560L, 1872L, 2244L, 2688L, 3222L, 3864L, 4632L,
+                5556L, 6000L, 7000L, 8000L, 9000L, 10000L);
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    void concurrent_increment_32_threads_completed() throws InterruptedException {
+        progress = ProgressMonitor.concurrent().setMaximum(320000).addProgressListener(event -> actual.add(event.getProgress()));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(32);
+
+        for (int i = 0; i < 32; i++)
+            executor.execute(() -> {
+                for (int j = 0; j < 10000; j++)
+                    progress.increment();
+            });
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        progress.complete();
+
+        assertThat(progress.getProgress()).isEqualTo(320000L);
+        assertThat(actual).isInStrictOrder();
+        assertThat(actual.get(actual.size() - 1)).isEqualTo(320000L);
+    }
+
+    @Test
+    void concurrent_setMaximum_100_setProgress_100_increment() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> ProgressMonitor.concurrent().setMaximum(100).setProgress(100).increment());
+        assertThat(e.getMessage()).isEqualTo("count (101) > maximum (100)");
+    }
+
+    @Test
+    void concurrent_setProgress_completed_increment() {
+        progress = ProgressMonitor.concurrent().setProgress(100);
+        progress.complete();
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> progress.increment());
+        assertThat(e.getMessage()).isEqualTo("operation has completed");
+        assertThat(progress.getProgress()).isEqualTo(100L);
+    }
+
+    @Test
+    void concurrent_setProgress_completed_reset() {
+        progress = ProgressMonitor.concurrent().setProgress(100);
+        progress.complete();
+        progress.reset();
+
+        assertThat(progress.isDone()).isFalse();
+        assertThat(progress.getProgress()).isEqualTo(0L);
+        assertThat(progress.getCurrentStepSize()).isEqualTo(ProgressMonitor.DEFAULT_MIN_STEP_SIZE);
+    }
+
+    @Test
+    void setProgress_72_completed() {
+        progress.addProgressListener(event -> actual.add(event.getProgress()));
+
+        for (int i = 0; i < 72; i++)
+            progress.increment();
+
+        progress.complete();
+
+        assertThat(actual.get(actual.size() - 1)).isEqualTo(72L);
+        assertThat(actual).containsNoDuplicates();
+    }
+
+    @Test
+    void increment_delta_crosses_multiple_steps() {
+        progress.addProgressListener(event -> actual.add(event.getProgress()));
+
+        progress.setStepSize(10).increment(5);
+        progress.increment(22);
+
+        assertThat(actual).isEqualTo(Arrays.asList(27L));
+    }
+
+    @Test
+    void increment_delta_negative() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> progress.increment(-1));
+        assertThat(e.getMessage()).isEqualTo("delta < 0");
+    }
+
+    @Test
+    void newLocalCounter_flushThreshold_0() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> progress.newLocalCounter(0));
+        assertThat(e.getMessage()).isEqualTo("flushThreshold < 1");
+    }
+
+    @Test
+    void newLocalCounter_increment_flushes_at_threshold() {
+        final LocalCounter counter = progress.newLocalCounter(100);
+
+        for (int i = 0; i < 99; i++)
+            counter.increment();
+
+        assertThat(progress.getProgress()).isEqualTo(0L);
+
+        counter.increment();
+
+        assertThat(progress.getProgress()).isEqualTo(100L);
+    }
+
+    @Test
+    void newLocalCounter_completed_drains() {
+        progress.addProgressListener(event -> actual.add(event.getProgress()));
+
+        final LocalCounter counter = progress.newLocalCounter(100);
+
+        for (int i = 0; i < 150; i++)
+            counter.increment();
+
+        progress.complete();
+
+        assertThat(progress.getProgress()).isEqualTo(150L);
+        assertThat(actual).isEqualTo(Arrays.asList(100L, 150L));
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> counter.increment(50));
+        assertThat(e.getMessage()).isEqualTo("operation has completed");
+    }
+
+    @Test
+    void newLocalCounter_completed_drained_past_maximum() {
+        progress.setMaximum(100).addProgressListener(event -> actual.add(event.getProgress()));
+
+        final LocalCounter counter = progress.newLocalCounter(100);
+
+        counter.increment(60);
+        progress.increment(50);
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> progress.complete());
+        assertThat(e.getMessage()).isEqualTo("count (110) > maximum (100)");
+
+        assertThat(progress.isDone()).isTrue();
+        assertThat(progress.getProgress()).isEqualTo(50L);
+        assertThat(actual).isEqualTo(Arrays.asList(50L));
+    }
+
+    @Test
+    void newLocalCounter_unclosed_detached_on_complete() {
+        final LocalCounter counter = progress.newLocalCounter(100);
+
+        counter.increment(50);
+        progress.complete();
+
+        assertThat(progress.getProgress()).isEqualTo(50L);
+
+        counter.close(); // nothing left to flush
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> progress.newLocalCounter(100));
+        assertThat(e.getMessage()).isEqualTo("operation has completed");
+    }
+
+    @Test
+    void newLocalCounter_flush_after_complete_rejected() {
+        final LocalCounter counter = progress.newLocalCounter(100);
+
+        counter.increment(50);
+        progress.complete();
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> counter.increment(50));
+        assertThat(e.getMessage()).isEqualTo("operation has completed");
+        assertThat(progress.getProgress()).isEqualTo(50L);
+    }
+
+    @Test
+    void newLocalCounter_reset_after_complete() {
+        progress.newLocalCounter(100).increment(50);
+        progress.complete();
+        progress.reset();
+
+        final LocalCounter counter = progress.newLocalCounter(100);
+
+        counter.increment(20);
+        progress.complete();
+
+        assertThat(progress.getProgress()).isEqualTo(20L);
+    }
+
+    @Test
+    void concurrent_newLocalCounter_32_threads_completed() throws InterruptedException {
+        progress = ProgressMonitor.concurrent().setMaximum(320000).addProgressListener(event -> actual.add(event.getProgress()));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(32);
+
+        for (int i = 0; i < 32; i++)
+            executor.execute(() -> {
+                try (final LocalCounter counter = progress.newLocalCounter(64)) {
+                    for (int j = 0; j < 10000; j++)
+                        counter.increment();
+                }
+            });
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        progress.complete();
+
+        assertThat(progress.getProgress()).isEqualTo(320000L);
+        assertThat(actual).isInStrictOrder();
+        assertThat(actual.get(actual.size() - 1)).isEqualTo(320000L);
+    }
+
+    @Test
+    void dispatchAsync_slow_listener_coalesced_in_order() throws InterruptedException {
+        final List<Long>      received = Collections.synchronizedList(new ArrayList<>());
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        progress.dispatchAsync(executor).addProgressListener(event -> {
+            received.add(event.getProgress());
+            try {
+                Thread.sleep(1);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < 100000; i++)
+            progress.increment();
+
+        progress.setProgress(100001).complete();
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(received).isInStrictOrder();
+        assertThat(received.get(received.size() - 1)).isEqualTo(100001L);
+    }
+
+    @Test
+    void dispatchAsync_executor_null() {
+        final Exception e = assertThrows(NullPointerException.class, () -> progress.dispatchAsync(null));
+        assertThat(e.getMessage()).isEqualTo("executor == null");
+    }
+
+    @Test
+    void setPublishInterval_at_most_one_event_per_interval() {
+        final List<Long> times = new ArrayList<>();
+
+        progress.setPublishInterval(Duration.ofMillis(50)).addProgressListener(event -> times.add(System.nanoTime()));
+
+        final long start = System.nanoTime();
+
+        while (System.nanoTime() - start < Duration.ofMillis(300).toNanos())
+            progress.increment();
+
+        assertThat(times.size()).isAtLeast(2);
+        assertThat(times.size()).isAtMost(6);
+
+        for (int i = 1; i < times.size(); i++)
+            assertThat(times.get(i) - times.get(i - 1)).isAtLeast(Duration.ofMillis(45).toNanos());
+
+        assertThat(progress.getCurrentStepSize()).isGreaterThan(1L);
+    }
+
+    @Test
+    void setPublishInterval_completed() {
+        progress.addProgressListener(event -> actual.add(event.getProgress()));
+
+        progress.setPublishInterval(Duration.ofHours(1)).setProgress(1000).complete();
+
+        assertThat(actual).isEqualTo(Arrays.asList(1000L));
+    }
+
+    @Test
+    void setSamplingInterval_published_by_scheduler_when_changed() throws InterruptedException {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        final List<Thread>             threads   = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            progress.setSamplingInterval(Duration.ofMillis(10), scheduler).addProgressListener(event -> {
+                actual.add(event.getProgress());
+                threads.add(Thread.currentThread());
+            });
+
+            progress.increment(500);
+            progress.setProgress(1000);
+
+            assertThat(progress.getStats().getIncrements()).isEqualTo(0L);
+
+            Thread.sleep(100);
+
+            assertThat(actual).isEqualTo(Arrays.asList(1000L));
+
+            progress.setProgress(1500).complete();
+
+            assertThat(actual).isEqualTo(Arrays.asList(1000L, 1500L));
+            assertThat(threads.get(0)).isNotEqualTo(Thread.currentThread());
+            assertThat(threads.get(1)).isEqualTo(Thread.currentThread());
+
+            Thread.sleep(50);
+
+            assertThat(actual).hasSize(2);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void setSamplingInterval_completed_reset() throws InterruptedException {
+        progress.addProgressListener(event -> actual.add(event.getProgress()));
+
+        progress.setSamplingInterval(Duration.ofHours(1)).setProgress(1000).complete();
+        progress.reset().setProgress(10).complete();
+
+        assertThat(actual).isEqualTo(Arrays.asList(1000L, 10L));
+    }
+
+    @Test
+    void setSamplingInterval_setStepSize_stops_sampling() {
+        progress.addProgressListener(event -> actual.add(event.getProgress()));
+
+        progress.setSamplingInterval(Duration.ofHours(1)).setStepSize(10);
+
+        for (int i = 0; i < 20; i++)
+            progress.increment();
+
+        assertThat(actual).isEqualTo(Arrays.asList(10L, 20L));
+    }
+
+    @Test
+    void setPublishInterval_0() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> progress.setPublishInterval(Duration.ZERO));
+        assertThat(e.getMessage()).isEqualTo("interval <= 0");
+    }
+
+    @Test
+    void increment_LongProgressListener_zero_allocation() {
+        final com.sun.management.ThreadMXBean bean   = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long                            id     = Thread.currentThread().getId();
+        final long[]                          events = new long[1];
+
+        progress.setMaximum(Long.MAX_VALUE).addProgressListener((LongProgressListener) (count, maximum) -> events[0]++);
+
+        for (int i = 0; i < 1000000; i++) // warm up
+            progress.increment();
+
+        final long before = bean.getThreadAllocatedBytes(id);
+
+        for (int i = 0; i < 1000000; i++)
+            progress.increment();
+
+        final long after = bean.getThreadAllocatedBytes(id);
+
+        assertThat(events[0]).isGreaterThan(1000L);
+        assertThat(after - before).isLessThan(1024L); // allow for the measurement itself
+    }
+
+    @Test
+    void increment_ProgressListener_one_event_per_publish() {
+        final com.sun.management.ThreadMXBean bean   = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long                            id     = Thread.currentThread().getId();
+        final long[]                          events = new long[1];
+
+        progress.setMaximum(Long.MAX_VALUE).setStepSize(1000).addProgressListener(event -> events[0]++).addProgressListener(event -> events[0]++);
+
+        for (int i = 0; i < 1000000; i++) // warm up
+            progress.increment();
+
+        events[0] = 0;
+
+        final long before = bean.getThreadAllocatedBytes(id);
+
+        for (int i = 0; i < 1000000; i++)
+            progress.increment();
+
+        final long after = bean.getThreadAllocatedBytes(id);
+
+        assertThat(events[0]).isEqualTo(2000L);
+        assertThat(after - before).isLessThan(1000L * 128); // one event shared by both listeners per publish
+    }
+
+    @Test
+    void concurrent_increment_LongProgressListener_zero_allocation() {
+        final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long                            id   = Thread.currentThread().getId();
+
+        progress = ProgressMonitor.concurrent().setMaximum(Long.MAX_VALUE).addProgressListener((LongProgressListener) (count, maximum) -> {
+        });
+
+        for (int i = 0; i < 1000000; i++) // warm up
+            progress.increment();
+
+        final long before = bean.getThreadAllocatedBytes(id);
+
+        for (int i = 0; i < 1000000; i++)
+            progress.increment();
+
+        final long after = bean.getThreadAllocatedBytes(id);
+
+        assertThat(after - before).isLessThan(1024L); // allow for the measurement itself
+    }
+
+    @Test
+    void addProgressListener_LongProgressListener_maximum_undefined() {
+        final List<Long> maximums = new ArrayList<>();
+
+        progress.addProgressListener((LongProgressListener) (count, maximum) -> maximums.add(maximum)).setProgress(10);
+
+        assertThat(maximums).isEqualTo(Arrays.asList(-1L));
+    }
+
+    @Test
+    void createChild_weight_0() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> progress.createChild(0));
+        assertThat(e.getMessage()).isEqualTo("weight < 1");
+    }
+
+    @Test
+    void createChild_rolls_up_weighted_fraction() {
+        progress.setMaximum(100).setStepSize(1).addProgressListener(event -> actual.add(event.getProgress()));
+
+        final ProgressMonitor scan = progress.createChild(20).setMaximum(1000);
+        final ProgressMonitor copy = progress.createChild(80).setMaximum(3);
+
+        for (int i = 0; i < 499; i++)
+            scan.increment();
+
+        assertThat(progress.getProgress()).isEqualTo(9L);
+
+        scan.increment();
+
+        assertThat(progress.getProgress()).isEqualTo(10L);
+
+        scan.complete();
+        copy.increment();
+
+        assertThat(progress.getProgress()).isEqualTo(46L);
+
+        copy.setProgress(3).complete();
+
+        assertThat(progress.getProgress()).isEqualTo(100L);
+        assertThat(actual).isEqualTo(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 20L, 46L, 100L));
+    }
+
+    @Test
+    void createChild_completed_without_maximum_contributes_weight() {
+        progress.setMaximum(10);
+        progress.createChild(4).complete();
+
+        assertThat(progress.getProgress()).isEqualTo(4L);
+    }
+
+    @Test
+    void createChild_setMaximum_raised_contribution_held() {
+        final ProgressMonitor child = progress.createChild(10).setMaximum(10).setProgress(5);
+
+        assertThat(progress.getProgress()).isEqualTo(5L);
+
+        child.setMaximum(100).setProgress(60);
+
+        assertThat(progress.getProgress()).isEqualTo(6L);
+    }
+
+    @Test
+    void createChild_reset() {
+        final ProgressMonitor child = progress.createChild(10).setMaximum(10).setProgress(5);
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> child.reset());
+        assertThat(e.getMessage()).isEqualTo("child monitor cannot be reset");
+
+        child.setProgress(10);
+
+        assertThat(child.getProgress()).isEqualTo(10L);
+        assertThat(progress.getProgress()).isEqualTo(10L);
+    }
+
+    @Test
+    void concurrent_createChild_fork_join() {
+        progress = ProgressMonitor.concurrent().setMaximum(1000 * 100).addProgressListener(event -> actual.add(event.getProgress()));
+
+        final ForkJoinPool pool = new ForkJoinPool(8);
+
+        pool.submit(() -> LongStream.range(0, 1000).parallel().forEach(i -> {
+            final ProgressMonitor child = progress.createChild(100).setMaximum(12345);
+
+            for (int j = 0; j < 12345; j++)
+                child.increment();
+        })).join();
+
+        pool.shutdown();
+
+        assertThat(progress.getProgress()).isEqualTo(1000L * 100);
+        assertThat(actual).isInStrictOrder();
+    }
+
+    @Test
+    void getRateEstimate_computed_once_per_publish() throws InterruptedException {
+        final List<RateEstimate> estimates = new ArrayList<>();
+
+        progress.setMaximum(300).setStepSize(100).addProgressListener(event -> estimates.add(event.getRateEstimate()));
+
+        for (int i = 0; i < 2; i++) {
+            Thread.sleep(50);
+            progress.increment(100);
+        }
+
+        assertThat(estimates).hasSize(2);
+
+        final RateEstimate estimate = estimates.get(1);
+
+        assertThat(estimate.getElapsed()).isAtLeast(Duration.ofMillis(100));
+        assertThat(estimate.getRate()).isGreaterThan(0D);
+        assertThat(estimate.getRate()).isAtMost(100 / 0.05);
+        assertThat(estimate.getAverageRate()).isGreaterThan(0D);
+        assertThat(estimate.getTimeRemaining()).isPresent();
+        assertThat(estimate.getTimeRemaining().get()).isEqualTo(Duration.ofNanos((long) (100 / estimate.getAverageRate() * 1e9)));
+
+        assertThat(progress.getRateEstimate().getRate()).isEqualTo(estimate.getRate());
+    }
+
+    @Test
+    void getRateEstimate_maximum_undefined() {
+        progress.setProgress(100);
+
+        assertThat(progress.getRateEstimate().getTimeRemaining()).isEmpty();
+    }
+
+    @Test
+    void getStats_published_and_suppressed() {
+        progress.setStepSize(10).addProgressListener(event -> actual.add(event.getProgress()));
+
+        for (int i = 0; i < 100; i++)
+            progress.increment();
+
+        progress.setProgress(100).complete();
+
+        final ProgressStats stats = progress.getStats();
+
+        assertThat(stats.getIncrements()).isEqualTo(100L);
+        assertThat(stats.getPublishedEvents()).isEqualTo(10L);
+        assertThat(stats.getSuppressedEvents()).isEqualTo(90L);
+        assertThat(stats.getListenerTime()).isGreaterThan(Duration.ZERO);
+    }
+
+    @Test
+    void concurrent_getStats() {
+        progress = ProgressMonitor.concurrent().setStepSize(10);
+
+        for (int i = 0; i < 100; i++)
+            progress.increment();
+
+        assertThat(progress.getStats().getIncrements()).isEqualTo(100L);
+        assertThat(progress.getStats().getPublishedEvents()).isEqualTo(10L);
+    }
+
+    @Test
+    void setName_getName() {
+        assertThat(progress.getName()).isEmpty();
+        assertThat(progress.setName("ingest").getName()).isEqualTo("ingest");
+    }
+
+    @Test
+    void setStepPolicy_geometric() {
+        progress.setStepPolicy(StepPolicy.geometric(10, 2)).addProgressListener(event -> actual.add(event.getProgress()));
+
+        for (int i = 0; i < 1000; i++)
+            progress.increment();
+
+        progress.complete();
+
+        assertThat(actual).isEqualTo(Arrays.asList(10L, 20L, 40L, 80L, 160L, 320L, 640L, 1000L));
+    }
+
+    @Test
+    void setStepPolicy_eventsPerMaximum() {
+        progress.setMaximum(100000).setStepPolicy(StepPolicy.eventsPerMaximum(1000)).addProgressListener(event -> actual.add(event.getProgress()));
+
+        for (int i = 0; i < 100000; i++)
+            progress.increment();
+
+        progress.complete();
+
+        assertThat(actual).hasSize(1000);
+        assertThat(actual.get(0)).isEqualTo(100L);
+        assertThat(actual.get(999)).isEqualTo(100000L);
+    }
+
+    @Test
+    void setStepPolicy_eventsPerMaximum_undefined_maximum() {
+        progress.setStepPolicy(StepPolicy.eventsPerMaximum(1000)).addProgressListener(event -> actual.add(event.getProgress()));
+
+        for (int i = 0; i < 100; i++)
+            progress.increment();
+
+        assertThat(actual).isEqualTo(Arrays.asList(10L, 20L, 30L, 40L, 50L, 60L, 72L, 84L, 96L));
+    }
+
+    @Test
+    void setStepPolicy_cpuBudget_widens_step_for_slow_listener() {
+        progress.setStepPolicy(StepPolicy.cpuBudget(0.01)).addProgressListener(event -> {
+            try {
+                Thread.sleep(1);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < 1000000; i++)
+            progress.increment();
+
+        assertThat(progress.getCurrentStepSize()).isGreaterThan(ProgressMonitor.DEFAULT_MAX_STEP_SIZE);
+        assertThat(progress.getStats().getPublishedEvents()).isLessThan(100L);
+    }
+
+    @Test
+    void setStepPolicy_reset_restarts_policy() {
+        progress.setStepPolicy(StepPolicy.geometric(10, 2));
+
+        for (int i = 0; i < 1000; i++)
+            progress.increment();
+
+        progress.reset();
+
+        assertThat(progress.getCurrentStepSize()).isEqualTo(10L);
+    }
+
+    @Test
+    void setMaximumAsync_provisional_until_computed() {
+        final CompletableFuture<Long> size    = new CompletableFuture<>();
+        final List<ProgressEvent>     events  = new ArrayList<>();
+        final ProgressMonitor         monitor = new ProgressMonitor().setStepSize(1).setMaximumAsync(size).setEstimatedMaximum(5).addProgressListener(events::add);
+
+        for (int i = 0; i < 8; i++) // surpasses the estimate
+            monitor.increment();
+
+        assertThat(monitor.isMaximumProvisional()).isTrue();
+        assertThat(monitor.getMaximum()).isEmpty();
+        assertThat(events.get(0).getMaximum()).hasValue(5);
+        assertThat(events.get(7).getMaximum()).hasValue(9); // never reached while provisional
+        assertThat(events.get(7).isMaximumProvisional()).isTrue();
+
+        size.complete(6L); // less than the progress count
+
+        assertThat(monitor.isMaximumProvisional()).isFalse();
+        assertThat(monitor.getMaximum()).hasValue(8);
+        assertThat(monitor.snapshot().isMaximumProvisional()).isFalse();
+    }
+
+    @Test
+    void setMaximumAsync_provisional_maximum_undefined_for_LongProgressListener() {
+        final CompletableFuture<Long> size    = new CompletableFuture<>();
+        final List<Long>              maxima  = new ArrayList<>();
+        final ProgressMonitor         monitor = new ProgressMonitor().setStepSize(1).setMaximumAsync(size).setEstimatedMaximum(10).addProgressListener((LongProgressListener) (progress, maximum) -> maxima.add(maximum));
+
+        monitor.increment();
+        size.complete(20L);
+        monitor.increment();
+
+        assertThat(maxima).containsExactly(-1L, 20L).inOrder();
+    }
+
+    @Test
+    void setMaximumAsync_supplier() {
+        final ProgressMonitor monitor = new ProgressMonitor().setMaximumAsync(() -> 42);
+
+        while (monitor.isMaximumProvisional())
+            Thread.yield();
+
+        assertThat(monitor.getMaximum()).hasValue(42);
+    }
+
+    @Test
+    void setMaximumAsync_fraction_held_until_progress_catches_up() {
+        final CompletableFuture<Long> size    = new CompletableFuture<>();
+        final List<ProgressEvent>     events  = new ArrayList<>();
+        final ProgressMonitor         monitor = new ProgressMonitor().setStepSize(1).setMaximumAsync(size).setEstimatedMaximum(10).addProgressListener(events::add);
+
+        for (int i = 0; i < 5; i++)
+            monitor.increment();
+
+        size.complete(20L);
+
+        for (int i = 0; i < 10; i++)
+            monitor.increment();
+
+        for (int i = 1; i < events.size(); i++) {
+            final ProgressEvent previous = events.get(i - 1);
+            final ProgressEvent event    = events.get(i);
+
+            assertThat((double) event.getProgress() / event.getMaximum().getAsLong()).isAtLeast((double) previous.getProgress() / previous.getMaximum().getAsLong());
+        }
+
+        assertThat(events.get(5).getMaximum()).hasValue(12);
+        assertThat(events.get(5).isMaximumProvisional()).isFalse();
+        assertThat(events.get(14).getMaximum()).hasValue(20);
+        assertThat(monitor.getMaximum()).hasValue(20);
+    }
+
+    @Test
+    void setMaximumAsync_completed_while_provisional() {
+        final List<ProgressEvent> events  = new ArrayList<>();
+        final ProgressMonitor     monitor = new ProgressMonitor().setStepSize(1).setEstimatedMaximum(10).addProgressListener(events::add);
+
+        monitor.increment();
+        monitor.complete();
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getMaximum()).hasValue(10);
+        assertThat(events.get(1).getMaximum()).hasValue(1);
+        assertThat(events.get(1).isMaximumProvisional()).isFalse();
+        assertThat(events.get(1).isDone()).isTrue();
+    }
+
+    @Test
+    void setMaximumAsync_executor() {
+        final ProgressMonitor monitor = new ProgressMonitor().setMaximumAsync(() -> 42, Runnable::run);
+
+        assertThat(monitor.getMaximum()).hasValue(42);
+    }
+
+    @Test
+    void setMaximumAsync_null_passed_to_uncaught_exception_handler() {
+        final CompletableFuture<Long>  size     = new CompletableFuture<>();
+        final List<Throwable>          uncaught = new ArrayList<>();
+        final Thread                   thread   = Thread.currentThread();
+        final UncaughtExceptionHandler handler  = thread.getUncaughtExceptionHandler();
+        final ProgressMonitor          monitor  = new ProgressMonitor().setMaximumAsync(size);
+
+        thread.setUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+
+        try {
+            size.complete(null);
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+
+        assertThat(uncaught).hasSize(1);
+        assertThat(uncaught.get(0)).isInstanceOf(NullPointerException.class);
+        assertThat(monitor.isMaximumProvisional()).isFalse();
+        assertThat(monitor.getMaximum()).isEmpty();
+    }
+
+    @Test
+    void setMaximumAsync_superseded() {
+        final CompletableFuture<Long> first   = new CompletableFuture<>();
+        final ProgressMonitor         monitor = new ProgressMonitor().setMaximumAsync(first).setMaximumAsync(CompletableFuture.completedFuture(10L));
+
+        first.complete(20L);
+
+        assertThat(monitor.getMaximum()).hasValue(10);
+    }
+
+    @Test
+    void setMaximumAsync_reset_discards_provisional_maximum() {
+        final CompletableFuture<Long> size    = new CompletableFuture<>();
+        final List<ProgressEvent>     events  = new ArrayList<>();
+        final ProgressMonitor         monitor = new ProgressMonitor().setStepSize(1).setMaximumAsync(size).setEstimatedMaximum(10).addProgressListener(events::add);
+
+        for (int i = 0; i < 5; i++)
+            monitor.increment();
+
+        monitor.reset();
+
+        assertThat(monitor.isMaximumProvisional()).isFalse();
+
+        size.complete(20L); // computed before the reset
+
+        assertThat(monitor.getMaximum()).isEmpty();
+
+        monitor.setEstimatedMaximum(100).increment();
+
+        assertThat(events.get(5).getMaximum()).hasValue(100); // the fraction held before the reset is discarded
+        assertThat(events.get(5).isMaximumProvisional()).isTrue();
+    }
+
+    @Test
+    void stepPolicy_doubled_step_size_saturates() {
+        final long       huge     = Long.MAX_VALUE - 1;
+        final StepPolicy interval = StepPolicy.interval(Duration.ofHours(1));
+        final StepPolicy budget   = StepPolicy.cpuBudget(0.01);
+
+        interval.start(0, -1);
+        budget.start(0, -1);
+        budget.published(0, TimeUnit.MILLISECONDS.toNanos(1));
+
+        for (final long start = System.nanoTime(); System.nanoTime() == start;)
+            ;
+
+        interval.shouldPublish(huge, -1);
+
+        assertThat(interval.nextStepSize(huge, -1, huge)).isEqualTo(Long.MAX_VALUE);
+        assertThat(budget.nextStepSize(huge, -1, huge)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void stepPolicy_invalid_arguments() {
+        assertThat(assertThrows(IllegalArgumentException.class, () -> StepPolicy.geometric(0, 2)).getMessage()).isEqualTo("initialStepSize <= 0");
+        assertThat(assertThrows(IllegalArgumentException.class, () -> StepPolicy.geometric(1, 0.5)).getMessage()).isEqualTo("factor < 1");
+        assertThat(assertThrows(IllegalArgumentException.class, () -> StepPolicy.eventsPerMaximum(0)).getMessage()).isEqualTo("events < 1");
+        assertThat(assertThrows(IllegalArgumentException.class, () -> StepPolicy.cpuBudget(0)).getMessage()).isEqualTo("budget <= 0");
+        assertThat(assertThrows(IllegalArgumentException.class, () -> StepPolicy.cpuBudget(1)).getMessage()).isEqualTo("budget >= 1");
+    }
+
 }
@@ -0,0 +1,135 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProgressRegistryTest {
+
+    ProgressRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        registry = new ProgressRegistry(Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        registry.close();
+    }
+
+    @Test
+    void register_10000_monitors_sampled() throws InterruptedException {
+        final AtomicLong            events   = new AtomicLong();
+        final List<ProgressMonitor> monitors = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++)
+            monitors.add(registry.register("job-" + i, Duration.ofMillis(5 + i % 1000)).addProgressListener((LongProgressListener) (count, maximum) -> events.incrementAndGet()));
+
+        for (final ProgressMonitor monitor : monitors)
+            monitor.setProgress(10);
+
+        Thread.sleep(1500);
+
+        assertThat(events.get()).isEqualTo(10000L);
+        assertThat(registry.size()).isEqualTo(10000);
+    }
+
+    @Test
+    void register_completed_dropped() throws InterruptedException {
+        final ProgressMonitor first  = registry.register("first", Duration.ofMillis(5));
+        final ProgressMonitor second = registry.register("second", Duration.ofMillis(5));
+
+        first.setMaximum(100).setProgress(50);
+        second.setProgress(10).complete();
+
+        assertThat(registry.get("second")).isEmpty();
+        assertThat(registry.get("first")).hasValue(first);
+
+        Thread.sleep(50);
+
+        final Map<String, ProgressEvent> snapshot = registry.snapshot();
+
+        assertThat(snapshot.keySet()).containsExactly("first");
+        assertThat(snapshot.get("first").getProgress()).isEqualTo(50L);
+        assertThat(snapshot.get("first").getMaximum()).hasValue(100L);
+        assertThat(snapshot.get("first").getRateEstimate().getRate()).isGreaterThan(0D);
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void register_listener_error_does_not_stop_sampling() throws InterruptedException {
+        final List<Throwable>          uncaught = Collections.synchronizedList(new ArrayList<>());
+        final UncaughtExceptionHandler handler  = Thread.getDefaultUncaughtExceptionHandler();
+        final AtomicLong               events   = new AtomicLong();
+
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+
+        try {
+            registry.register("bad", Duration.ofMillis(5)).addProgressListener((LongProgressListener) (count, maximum) -> {
+                throw new AssertionError("bad");
+            }).setProgress(10);
+
+            final ProgressMonitor good = registry.register("good", Duration.ofMillis(5)).addProgressListener((LongProgressListener) (count, maximum) -> events.incrementAndGet()).setProgress(10);
+
+            for (int i = 0; i < 500 && events.get() < 1; i++)
+                Thread.sleep(10);
+
+            good.setProgress(20);
+
+            for (int i = 0; i < 500 && events.get() < 2; i++)
+                Thread.sleep(10);
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+
+        assertThat(events.get()).isEqualTo(2L);
+        assertThat(uncaught).isNotEmpty();
+        assertThat(uncaught.get(0)).isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    void register_completed_final_event() {
+        final List<Long> actual = new ArrayList<>();
+
+        registry.register("job", Duration.ofHours(1)).addProgressListener(event -> actual.add(event.getProgress())).setProgress(1000).complete();
+
+        assertThat(actual).containsExactly(1000L);
+    }
+
+    @Test
+    void register_name_already_registered() {
+        registry.register("job", Duration.ofMillis(5));
+
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> registry.register("job", Duration.ofMillis(5)));
+        assertThat(e.getMessage()).isEqualTo("a monitor named job is already registered");
+    }
+
+    @Test
+    void register_name_completed_registered_again() {
+        registry.register("job", Duration.ofMillis(5)).complete();
+
+        assertThat(registry.register("job", Duration.ofMillis(5)).isDone()).isFalse();
+    }
+
+    @Test
+    void register_closed() {
+        registry.close();
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> registry.register("job", Duration.ofMillis(5)));
+        assertThat(e.getMessage()).isEqualTo("registry has been closed");
+    }
+
+}
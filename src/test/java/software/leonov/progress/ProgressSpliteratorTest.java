@@ -0,0 +1,106 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProgressSpliteratorTest {
+
+    static List<Long>      actual = Collections.synchronizedList(new ArrayList<>());
+    static ProgressMonitor progress;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        actual.clear();
+        progress = ProgressMonitor.concurrent().addProgressListener(event -> actual.add(event.getProgress()));
+    }
+
+    @Test
+    void track_parallel_stream() {
+        final Stream<Long> stream = progress.track(LongStream.range(0, 1000000).boxed().parallel());
+
+        assertThat(stream.isParallel()).isTrue();
+        assertThat(stream.mapToLong(Long::longValue).sum()).isEqualTo(999999L * 1000000 / 2);
+
+        progress.complete();
+
+        assertThat(progress.getProgress()).isEqualTo(1000000L);
+        assertThat(progress.getMaximum()).hasValue(1000000L);
+        assertThat(actual).isInStrictOrder();
+        assertThat(actual.get(actual.size() - 1)).isEqualTo(1000000L);
+    }
+
+    @Test
+    void track_parallel_stream_anyMatch() {
+        final AtomicLong traversed = new AtomicLong();
+
+        assertThat(progress.track(LongStream.range(0, 1000000).boxed().parallel()).peek(i -> traversed.incrementAndGet()).anyMatch(i -> i == 500000)).isTrue();
+        assertThat(ForkJoinPool.commonPool().awaitQuiescence(10, TimeUnit.SECONDS)).isTrue(); // cancelled splits may still be running
+
+        assertThat(progress.getProgress()).isEqualTo(traversed.get());
+    }
+
+    @Test
+    void track_forEachRemaining_throws() {
+        final Spliterator<Integer> spliterator = progress.track(IntStream.range(0, 5000).boxed().spliterator());
+
+        assertThrows(IllegalStateException.class, () -> spliterator.forEachRemaining(i -> {
+            if (i == 10)
+                throw new IllegalStateException();
+        }));
+
+        assertThat(progress.getProgress()).isEqualTo(10L);
+    }
+
+    @Test
+    void track_sequential_iterator() {
+        final Iterator<Integer> iterator = progress.track(IntStream.range(0, 5000).boxed()).iterator();
+
+        int count = 0;
+
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+
+        assertThat(count).isEqualTo(5000);
+        assertThat(progress.getProgress()).isEqualTo(5000L);
+        assertThat(progress.getMaximum()).hasValue(5000L);
+    }
+
+    @Test
+    void track_unsized_spliterator() {
+        final Spliterator<Integer> spliterator = progress.track(Stream.iterate(0, i -> i + 1).limit(3000).filter(i -> i % 3 == 0).spliterator());
+
+        spliterator.forEachRemaining(i -> {
+        });
+
+        assertThat(progress.getProgress()).isEqualTo(1000L);
+        assertThat(progress.getMaximum()).isEmpty();
+    }
+
+    @Test
+    void track_close() {
+        final boolean[] closed = new boolean[1];
+
+        progress.track(Stream.of(1, 2, 3).onClose(() -> closed[0] = true)).close();
+
+        assertThat(closed[0]).isTrue();
+    }
+
+}
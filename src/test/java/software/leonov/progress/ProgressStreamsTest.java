@@ -0,0 +1,183 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProgressStreamsTest {
+
+    static final byte[] data = new byte[100000];
+
+    static ProgressMonitor progress;
+
+    @TempDir
+    Path temp;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new Random(42).nextBytes(data);
+        progress = new ProgressMonitor();
+    }
+
+    @Test
+    void ProgressInputStream_read_all() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (final InputStream in = new ProgressInputStream(new ByteArrayInputStream(data), progress, data.length)) {
+            out.write(in.read());
+            in.skip(9);
+
+            final byte[] buffer = new byte[4096];
+            int          count;
+
+            while ((count = in.read(buffer)) != -1)
+                out.write(buffer, 0, count);
+        }
+
+        assertThat(out.size()).isEqualTo(data.length - 9);
+        assertThat(progress.getProgress()).isEqualTo((long) data.length);
+        assertThat(progress.getMaximum()).hasValue((long) data.length);
+    }
+
+    @Test
+    void ProgressInputStream_of_path_sets_maximum() throws IOException {
+        final Path file = Files.write(temp.resolve("data"), data);
+
+        try (final InputStream in = ProgressInputStream.of(file, progress)) {
+            Files.copy(in, temp.resolve("copy"));
+        }
+
+        assertThat(progress.getProgress()).isEqualTo((long) data.length);
+        assertThat(progress.getMaximum()).hasValue((long) data.length);
+    }
+
+    @Test
+    void ProgressInputStream_of_connection_closed_on_failure() throws IOException {
+        final boolean[]     closed     = new boolean[1];
+        final InputStream   in         = new ByteArrayInputStream(data) {
+                                           @Override
+                                           public void close() {
+                                               closed[0] = true;
+                                           }
+                                       };
+        final URLConnection connection = new URLConnection(new URL("http://localhost/")) {
+                                           @Override
+                                           public void connect() {
+                                           }
+
+                                           @Override
+                                           public InputStream getInputStream() {
+                                               return in;
+                                           }
+                                       };
+
+        assertThrows(NullPointerException.class, () -> ProgressInputStream.of(connection, null));
+        assertThat(closed[0]).isTrue();
+    }
+
+    @Test
+    void ProgressInputStream_unknown_length() throws IOException {
+        try (final InputStream in = new ProgressInputStream(new ByteArrayInputStream(data), progress)) {
+            in.read(new byte[10]);
+        }
+
+        assertThat(progress.getProgress()).isEqualTo(10L);
+        assertThat(progress.getMaximum()).isEmpty();
+    }
+
+    @Test
+    void ProgressInputStream_reset() throws IOException {
+        try (final InputStream in = new ProgressInputStream(new ByteArrayInputStream(data), progress)) {
+            assertThat(in.markSupported()).isFalse();
+
+            final Exception e = assertThrows(IOException.class, () -> in.reset());
+            assertThat(e.getMessage()).isEqualTo("mark/reset not supported");
+        }
+    }
+
+    @Test
+    void ProgressOutputStream_write() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (final OutputStream out = new ProgressOutputStream(bytes, progress, data.length)) {
+            out.write(data[0]);
+            out.write(data, 1, data.length - 1);
+        }
+
+        assertThat(bytes.toByteArray()).isEqualTo(data);
+        assertThat(progress.getProgress()).isEqualTo((long) data.length);
+        assertThat(progress.getMaximum()).hasValue((long) data.length);
+    }
+
+    @Test
+    void ProgressByteChannels_read_write() throws IOException {
+        final Path                  file  = Files.write(temp.resolve("data"), data);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ProgressMonitor       sink  = new ProgressMonitor();
+
+        try (final ReadableByteChannel in = ProgressReadableByteChannel.of(file, progress); final WritableByteChannel out = new ProgressWritableByteChannel(Channels.newChannel(bytes), sink)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                out.write(buffer);
+                buffer.clear();
+            }
+        }
+
+        assertThat(bytes.toByteArray()).isEqualTo(data);
+        assertThat(progress.getProgress()).isEqualTo((long) data.length);
+        assertThat(progress.getMaximum()).hasValue((long) data.length);
+        assertThat(sink.getProgress()).isEqualTo((long) data.length);
+    }
+
+    @Test
+    void ProgressChannels_transferTo() throws IOException {
+        final Path file = Files.write(temp.resolve("data"), data);
+        final Path copy = temp.resolve("copy");
+
+        try (final FileChannel in = FileChannel.open(file); final FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            in.position(100);
+            assertThat(ProgressChannels.transferTo(in, out, progress)).isEqualTo(data.length - 100L);
+            assertThat(in.position()).isEqualTo((long) data.length);
+        }
+
+        assertThat(Files.size(copy)).isEqualTo(data.length - 100L);
+        assertThat(progress.getProgress()).isEqualTo(data.length - 100L);
+        assertThat(progress.getMaximum()).hasValue(data.length - 100L);
+    }
+
+    @Test
+    void ProgressChannels_transferFrom() throws IOException {
+        final Path copy = temp.resolve("copy");
+
+        try (final ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(data)); final FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertThat(ProgressChannels.transferFrom(in, out, data.length, progress)).isEqualTo((long) data.length);
+        }
+
+        assertThat(Files.readAllBytes(copy)).isEqualTo(data);
+        assertThat(progress.getProgress()).isEqualTo((long) data.length);
+    }
+
+}
@@ -0,0 +1,217 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ProgressTrackingExecutorServiceTest {
+
+    final ProgressMonitor monitor = new ProgressMonitor().setStepSize(1);
+
+    ProgressTrackingExecutorService executor(final int threads) {
+        return new ProgressTrackingExecutorService(Executors.newFixedThreadPool(threads), Duration.ofHours(1), SharedScheduler.get(), monitor);
+    }
+
+    @Test
+    void invokeAll_sets_maximum_and_completes_on_shutdown() throws Exception {
+        final ProgressTrackingExecutorService executor = executor(4);
+        final List<Callable<Integer>>         tasks    = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            final int n = i;
+            tasks.add(() -> {
+                if (n % 5 == 0)
+                    throw new IllegalStateException();
+                return n;
+            });
+        }
+
+        executor.invokeAll(tasks);
+
+        assertThat(monitor.getMaximum().getAsLong()).isEqualTo(10);
+        assertThat(monitor.isDone()).isFalse();
+
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(monitor.isDone()).isTrue();
+        assertThat(monitor.getProgress()).isEqualTo(10);
+        assertThat(executor.getSubmittedCount()).isEqualTo(10);
+        assertThat(executor.getCompletedCount()).isEqualTo(8);
+        assertThat(executor.getFailedCount()).isEqualTo(2);
+        assertThat(executor.getCancelledCount()).isEqualTo(0);
+    }
+
+    @Test
+    void cancelled_reported_separately() throws Exception {
+        final ProgressTrackingExecutorService executor = executor(1);
+        final CountDownLatch                  release  = new CountDownLatch(1);
+
+        final Future<?> blocking = executor.submit(() -> {
+            release.await();
+            return null;
+        });
+        final Future<?> queued   = executor.submit(() -> {
+        });
+
+        queued.cancel(false);
+        release.countDown();
+        blocking.get();
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(monitor.isDone()).isTrue();
+        assertThat(monitor.getProgress()).isEqualTo(2);
+        assertThat(executor.getCompletedCount()).isEqualTo(1);
+        assertThat(executor.getCancelledCount()).isEqualTo(1);
+        assertThat(executor.getRunningCount()).isEqualTo(0);
+    }
+
+    @Test
+    void shutdownNow_cancels_pending_tasks() throws Exception {
+        final ProgressTrackingExecutorService executor = executor(1);
+        final CountDownLatch                  started  = new CountDownLatch(1);
+        final Runnable                        pending  = () -> {};
+
+        executor.submit(() -> {
+            started.countDown();
+            new CountDownLatch(1).await();
+            return null;
+        });
+        executor.submit(pending);
+        executor.execute(pending);
+
+        started.await();
+
+        final List<Runnable> tasks = executor.shutdownNow();
+
+        assertThat(tasks).hasSize(2);
+        assertThat(tasks.get(1)).isSameInstanceAs(pending);
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(monitor.isDone()).isTrue();
+        assertThat(executor.getFailedCount()).isEqualTo(1);
+        assertThat(executor.getCancelledCount()).isEqualTo(2);
+    }
+
+    @Test
+    void update_sets_progress_to_finished_tasks() throws Exception {
+        final ProgressTrackingExecutorService executor = executor(2);
+        final List<Future<?>>                 futures  = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++)
+            futures.add(executor.submit(() -> {
+            }));
+
+        for (final Future<?> future : futures)
+            future.get();
+
+        while (executor.getCompletedCount() < 3) // waiters are released before the outcome is counted
+            Thread.yield();
+
+        executor.update();
+
+        assertThat(monitor.getProgress()).isEqualTo(3);
+        assertThat(monitor.getMaximum().isPresent()).isFalse();
+        assertThat(monitor.isDone()).isFalse();
+
+        executor.shutdown();
+    }
+
+    @Test
+    void monitors_completed_outside_lock() throws Exception {
+        final ProgressTrackingExecutorService[] executor = new ProgressTrackingExecutorService[1];
+        final boolean[]                         released = new boolean[1];
+        final CountDownLatch                    notified = new CountDownLatch(1);
+
+        class Listener implements ProgressListener, CompletionListener {
+
+            @Override
+            public void progressChanged(final ProgressEvent event) {
+            }
+
+            @Override
+            public void completed(final long progress, final long maximum) {
+                final Thread thread = new Thread(executor[0]::update); // would block if the lock were held
+
+                thread.start();
+
+                try {
+                    thread.join(10000);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                released[0] = !thread.isAlive();
+                notified.countDown();
+            }
+        }
+
+        monitor.addProgressListener(new Listener());
+
+        executor[0] = executor(1);
+        executor[0].submit(() -> {
+        }).get();
+        executor[0].shutdown();
+
+        assertThat(executor[0].awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(notified.await(10, TimeUnit.SECONDS)).isTrue(); // the last task may finish after awaitTermination
+        assertThat(released[0]).isTrue();
+    }
+
+    @Test
+    void periodic_update_cancelled_once_discarded() throws Exception {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        final ExecutorService             delegate  = Executors.newSingleThreadExecutor();
+
+        scheduler.setRemoveOnCancelPolicy(true);
+
+        try {
+            new ProgressTrackingExecutorService(delegate, Duration.ofMillis(1), scheduler, monitor);
+
+            assertThat(scheduler.getQueue()).hasSize(1);
+
+            for (int i = 0; i < 500 && !scheduler.getQueue().isEmpty(); i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+
+            assertThat(scheduler.getQueue()).isEmpty();
+        } finally {
+            scheduler.shutdown();
+            delegate.shutdown();
+        }
+    }
+
+    @Test
+    void invokeAny_counts_unstarted_tasks_as_cancelled() throws Exception {
+        final ProgressTrackingExecutorService executor = executor(1);
+        final List<Callable<Integer>>         tasks    = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            final int n = i;
+            tasks.add(() -> n);
+        }
+
+        assertThat(executor.invokeAny(tasks)).isEqualTo(0);
+
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(monitor.isDone()).isTrue();
+        assertThat(executor.getSubmittedCount()).isEqualTo(3);
+        assertThat(executor.getCompletedCount() + executor.getCancelledCount()).isEqualTo(3);
+    }
+
+}
@@ -0,0 +1,155 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProgressWatchdogTest {
+
+    static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    final List<String>                           actual = new ArrayList<>();
+    final List<Map<Thread, StackTraceElement[]>> dumps  = new ArrayList<>();
+
+    ProgressWatchdog watchdog;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        watchdog = new ProgressWatchdog(new ProgressWatchdog.Listener() {
+
+            @Override
+            public void stalled(final ProgressMonitor monitor, final Duration idle, final Map<Thread, StackTraceElement[]> threads) {
+                actual.add("stalled " + monitor.getName());
+                dumps.add(threads);
+            }
+
+            @Override
+            public void slowed(final ProgressMonitor monitor, final double rate, final double averageRate) {
+                actual.add("slowed " + monitor.getName() + " " + Math.round(rate) + " " + Math.round(averageRate));
+            }
+        }, Duration.ofHours(1), SharedScheduler.get());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        watchdog.close();
+    }
+
+    @Test
+    void stalled_reported_once_per_stall() {
+        final ProgressMonitor monitor = new ProgressMonitor().setName("copy");
+
+        watchdog.setStallTimeout(Duration.ofSeconds(10)).setThreadDumps(true).watch(monitor, Thread.currentThread());
+
+        final long start = System.nanoTime();
+
+        watchdog.check(start + 5 * SECOND);
+        assertThat(actual).isEmpty();
+
+        watchdog.check(start + 11 * SECOND);
+        watchdog.check(start + 12 * SECOND);
+        assertThat(actual).containsExactly("stalled copy");
+        assertThat(dumps.get(0)).containsKey(Thread.currentThread());
+
+        monitor.increment();
+        watchdog.check(start + 13 * SECOND);
+        watchdog.check(start + 22 * SECOND);
+        assertThat(actual).hasSize(1);
+
+        watchdog.check(start + 23 * SECOND);
+        assertThat(actual).containsExactly("stalled copy", "stalled copy");
+    }
+
+    @Test
+    void stalled_without_thread_dumps() {
+        watchdog.setStallTimeout(Duration.ofSeconds(1)).watch(new ProgressMonitor().setName("copy"));
+
+        watchdog.check(System.nanoTime() + 2 * SECOND);
+
+        assertThat(actual).containsExactly("stalled copy");
+        assertThat(dumps.get(0)).isEmpty();
+    }
+
+    @Test
+    void slowed_below_fraction_of_average_rate() {
+        final ProgressMonitor monitor = new ProgressMonitor().setName("load");
+
+        watchdog.setMinimumRate(0.5).watch(monitor);
+
+        final long start = System.nanoTime();
+        long       now   = start;
+
+        for (int i = 0; i < 6; i++) {
+            monitor.increment(1000);
+            watchdog.check(now += SECOND);
+        }
+
+        monitor.increment(100);
+        watchdog.check(now += SECOND);
+        monitor.increment(100);
+        watchdog.check(now += SECOND);
+
+        assertThat(actual).containsExactly("slowed load 100 1000");
+
+        monitor.increment(1000);
+        watchdog.check(now += SECOND);
+        monitor.increment(100);
+        watchdog.check(now += SECOND);
+
+        assertThat(actual).hasSize(2);
+    }
+
+    @Test
+    void completed_monitors_are_dropped() {
+        final ProgressMonitor monitor = new ProgressMonitor();
+
+        watchdog.setStallTimeout(Duration.ofSeconds(1)).watch(monitor);
+        monitor.complete();
+        watchdog.check(System.nanoTime() + 2 * SECOND);
+
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void listener_exception_does_not_skip_other_monitors() {
+        final List<Throwable>          uncaught = new ArrayList<>();
+        final Thread                   thread   = Thread.currentThread();
+        final UncaughtExceptionHandler handler  = thread.getUncaughtExceptionHandler();
+
+        try (final ProgressWatchdog watchdog = new ProgressWatchdog(new ProgressWatchdog.Listener() {
+
+            @Override
+            public void stalled(final ProgressMonitor monitor, final Duration idle, final Map<Thread, StackTraceElement[]> threads) {
+                actual.add("stalled " + monitor.getName());
+                throw new IllegalStateException(monitor.getName());
+            }
+        }, Duration.ofHours(1), SharedScheduler.get())) {
+            watchdog.setStallTimeout(Duration.ofSeconds(1)).watch(new ProgressMonitor().setName("copy")).watch(new ProgressMonitor().setName("load"));
+
+            thread.setUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+            watchdog.check(System.nanoTime() + 2 * SECOND);
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+
+        assertThat(actual).containsExactly("stalled copy", "stalled load");
+        assertThat(uncaught).hasSize(2);
+    }
+
+    @Test
+    void setMinimumRate_1() {
+        final Exception e = assertThrows(IllegalArgumentException.class, () -> watchdog.setMinimumRate(1));
+        assertThat(e.getMessage()).isEqualTo("fraction >= 1");
+    }
+
+}
@@ -0,0 +1,193 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StatusBoardTest {
+
+    @TempDir
+    Path temp;
+
+    Path              path;
+    StatusBoard       board;
+    StatusBoardReader reader;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        path   = temp.resolve("jobs.board");
+        board  = StatusBoard.open(path, 2);
+        reader = StatusBoardReader.open(path);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        reader.close();
+        board.close();
+    }
+
+    @Test
+    void attach_read() {
+        final ProgressMonitor ingest = board.attach(new ProgressMonitor().setName("ingest").setStepSize(10).setMaximum(100));
+        final ProgressMonitor export = board.attach(new ProgressMonitor().setName("export"));
+
+        for (int i = 0; i < 55; i++)
+            ingest.increment();
+
+        export.setProgress(7).complete();
+
+        final List<ProgressStatus> statuses = reader.read();
+
+        assertThat(statuses).hasSize(2);
+
+        assertThat(statuses.get(0).getName()).isEqualTo("ingest");
+        assertThat(statuses.get(0).getProgress()).isEqualTo(50L);
+        assertThat(statuses.get(0).getMaximum()).hasValue(100L);
+        assertThat(statuses.get(0).isDone()).isFalse();
+
+        assertThat(statuses.get(1).getName()).isEqualTo("export");
+        assertThat(statuses.get(1).getProgress()).isEqualTo(7L);
+        assertThat(statuses.get(1).getMaximum()).isEmpty();
+        assertThat(statuses.get(1).isDone()).isTrue();
+    }
+
+    @Test
+    void attach_completed_after_final_event_published() {
+        final ProgressMonitor progress = board.attach(new ProgressMonitor().setStepSize(10));
+
+        progress.setProgress(10).complete();
+
+        assertThat(reader.read(0).get().isDone()).isTrue();
+    }
+
+    @Test
+    void attach_provisional_maximum_not_written() {
+        final ProgressMonitor progress = board.attach(new ProgressMonitor().setStepSize(1).setEstimatedMaximum(100));
+
+        progress.increment();
+
+        assertThat(reader.read(0).get().getProgress()).isEqualTo(1L);
+        assertThat(reader.read(0).get().getMaximum()).isEmpty();
+    }
+
+    @Test
+    void attach_completed_with_unpublished_final_count() {
+        final ProgressMonitor progress = board.attach(new ProgressMonitor().setStepSize(10));
+
+        progress.setProgress(5);
+
+        assertThat(reader.read(0).get().getProgress()).isEqualTo(0L);
+
+        progress.complete();
+
+        assertThat(reader.read(0).get().getProgress()).isEqualTo(5L);
+        assertThat(reader.read(0).get().isDone()).isTrue();
+    }
+
+    @Test
+    void attach_dispatchAsync_completed_on_dispatcher() {
+        final List<Runnable>  tasks    = new ArrayList<>();
+        final ProgressMonitor progress = board.attach(new ProgressMonitor().setStepSize(10).dispatchAsync(tasks::add));
+
+        progress.setProgress(10);
+        tasks.remove(0).run();
+        progress.complete();
+
+        assertThat(reader.read(0).get().getProgress()).isEqualTo(10L);
+        assertThat(reader.read(0).get().isDone()).isFalse();
+        assertThat(tasks).hasSize(1);
+
+        tasks.remove(0).run();
+
+        assertThat(reader.read(0).get().isDone()).isTrue();
+    }
+
+    @Test
+    void attach_no_free_slots() {
+        board.attach(new ProgressMonitor());
+        board.attach(new ProgressMonitor());
+
+        final Exception e = assertThrows(IllegalStateException.class, () -> board.attach(new ProgressMonitor()));
+        assertThat(e.getMessage()).isEqualTo("no free slots");
+    }
+
+    @Test
+    void attach_reuses_completed_slot() {
+        final ProgressMonitor first = board.attach(new ProgressMonitor().setName("first"));
+        board.attach(new ProgressMonitor().setName("second"));
+
+        first.setProgress(10).complete();
+        board.attach(new ProgressMonitor().setName("third").setProgress(3));
+
+        assertThat(reader.read(0).get().getName()).isEqualTo("third");
+        assertThat(reader.read(0).get().getProgress()).isEqualTo(3L);
+        assertThat(reader.read(0).get().isDone()).isFalse();
+
+        first.reset().setProgress(20).complete(); // the detached listener no longer writes the slot
+
+        assertThat(reader.read(0).get().getName()).isEqualTo("third");
+    }
+
+    @Test
+    void truncate_at_code_point_boundary() {
+        final StringBuilder name = new StringBuilder("x");
+
+        while (name.length() < StatusBoard.MAX_NAME_BYTES)
+            name.appendCodePoint(0x1F600); // a surrogate pair, 4 bytes in UTF-8
+
+        final byte[] bytes = StatusBoard.truncate(name.toString());
+
+        assertThat(bytes.length).isAtMost(StatusBoard.MAX_NAME_BYTES);
+        assertThat(bytes.length).isGreaterThan(StatusBoard.MAX_NAME_BYTES - 4);
+        assertThat(name.toString()).startsWith(new String(bytes, UTF_8));
+    }
+
+    @Test
+    void read_unassigned() {
+        assertThat(reader.read(1)).isEmpty();
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.read(2));
+    }
+
+    @Test
+    void read_not_a_status_board() throws IOException {
+        final Path other = Files.write(temp.resolve("other"), new byte[100]);
+        assertThrows(IOException.class, () -> StatusBoardReader.open(other));
+    }
+
+    @Test
+    void read_consistent_while_written() throws InterruptedException {
+        final ProgressMonitor progress = board.attach(new ProgressMonitor().setStepSize(1).setMaximum(1).setProgress(1));
+        final AtomicBoolean   stop     = new AtomicBoolean();
+
+        final Thread writer = new Thread(() -> {
+            for (long i = 1; !stop.get(); i++)
+                progress.setMaximum(i).setProgress(i);
+        });
+
+        writer.start();
+
+        try {
+            for (int i = 0; i < 100000; i++) {
+                final ProgressStatus status = reader.read(0).get();
+                assertThat(status.getMaximum()).hasValue(status.getProgress());
+            }
+        } finally {
+            stop.set(true);
+            writer.join();
+        }
+    }
+
+}
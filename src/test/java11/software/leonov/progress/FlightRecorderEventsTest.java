@@ -0,0 +1,66 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/*
+ * Runs against the classes in META-INF/versions/11, see the java11 profile.
+ */
+class FlightRecorderEventsTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void versioned_classes_loaded() {
+        assertThat(FlightRecorderEvents.class.getProtectionDomain().getCodeSource().getLocation().getPath()).endsWith("/META-INF/versions/11/");
+        assertThat(MemoryFences.class.getProtectionDomain().getCodeSource().getLocation().getPath()).endsWith("/META-INF/versions/11/");
+    }
+
+    @Test
+    void memory_fences() {
+        MemoryFences.storeFence();
+        MemoryFences.loadFence();
+    }
+
+    @Test
+    void publish_commits_events() throws IOException {
+        final Path path = temp.resolve("progress.jfr");
+
+        try (final Recording recording = new Recording()) {
+            recording.enable("software.leonov.progress.Publish");
+            recording.enable("software.leonov.progress.Listener");
+            recording.start();
+
+            final ProgressMonitor monitor = new ProgressMonitor().setName("copy").setStepSize(10).addProgressListener(event -> {
+            });
+
+            assertThat(FlightRecorderEvents.isEnabled()).isTrue();
+
+            monitor.setProgress(10).complete();
+
+            recording.stop();
+            recording.dump(path);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(path).stream().filter(event -> "copy".equals(event.getString("monitor"))).collect(Collectors.toList());
+
+        final List<Long> published = events.stream().filter(event -> event.getEventType().getName().equals("software.leonov.progress.Publish")).map(event -> event.getLong("progress")).collect(Collectors.toList());
+        final List<Long> listeners = events.stream().filter(event -> event.getEventType().getName().equals("software.leonov.progress.Listener")).map(event -> event.getLong("progress")).collect(Collectors.toList());
+
+        assertThat(published).containsExactly(10L);
+        assertThat(listeners).containsExactly(10L);
+    }
+
+}
@@ -0,0 +1,229 @@
+package software.leonov.progress;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.Test;
+
+class ProgressPublisherTest {
+
+    final ProgressMonitor monitor = new ProgressMonitor().setStepSize(10);
+
+    @Test
+    void subscribe_conflates_events_until_requested() {
+        final Recorder subscriber = new Recorder();
+
+        ProgressPublisher.of(monitor).subscribe(subscriber);
+
+        monitor.setProgress(10).setProgress(20).setProgress(30);
+
+        assertThat(subscriber.progress).isEmpty();
+
+        subscriber.subscription.request(1);
+        monitor.setProgress(40);
+
+        assertThat(subscriber.progress).containsExactly(30L);
+
+        subscriber.subscription.request(1);
+
+        assertThat(subscriber.progress).containsExactly(30L, 40L).inOrder();
+    }
+
+    @Test
+    void complete_final_event_delivered_before_onComplete() {
+        final Recorder subscriber = new Recorder();
+
+        ProgressPublisher.of(monitor).subscribe(subscriber);
+
+        monitor.setProgress(10).complete();
+
+        assertThat(subscriber.completed).isFalse();
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertThat(subscriber.progress).containsExactly(10L);
+        assertThat(subscriber.done).containsExactly(false);
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    void dispatchAsync_final_event_delivered_before_onComplete() {
+        final List<Runnable> tasks      = new ArrayList<>();
+        final Recorder       subscriber = new Recorder();
+
+        ProgressPublisher.of(monitor.dispatchAsync(tasks::add)).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        monitor.setProgress(10).complete(); // the completion is coalesced with the pending event
+
+        assertThat(subscriber.progress).isEmpty();
+        assertThat(subscriber.completed).isFalse();
+
+        tasks.remove(0).run();
+
+        assertThat(subscriber.progress).containsExactly(10L);
+        assertThat(subscriber.done).containsExactly(true);
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    void dispatchAsync_event_delivered_after_completion_is_not_final() {
+        final List<Runnable> tasks      = new ArrayList<>();
+        final Recorder       subscriber = new Recorder();
+
+        monitor.dispatchAsync(tasks::add).addProgressListener(event -> {
+            if (event.getProgress() == 10) // completes the monitor before the publisher receives the event
+                monitor.setProgress(15).complete();
+        });
+
+        ProgressPublisher.of(monitor).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        monitor.setProgress(10);
+        tasks.remove(0).run();
+
+        assertThat(subscriber.progress).containsExactly(10L, 15L).inOrder();
+        assertThat(subscriber.done).containsExactly(false, true).inOrder();
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    void dispatchAsync_completed_after_last_event_delivered() {
+        final List<Runnable> tasks      = new ArrayList<>();
+        final Recorder       subscriber = new Recorder();
+
+        ProgressPublisher.of(monitor.dispatchAsync(tasks::add)).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        monitor.setProgress(10);
+        tasks.remove(0).run();
+        monitor.complete();
+
+        assertThat(subscriber.completed).isFalse();
+
+        tasks.remove(0).run();
+
+        assertThat(subscriber.progress).containsExactly(10L);
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    void subscribe_after_completion() {
+        final Recorder subscriber = new Recorder();
+
+        monitor.complete();
+        ProgressPublisher.of(monitor).subscribe(subscriber);
+
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    void request_not_positive() {
+        final Recorder subscriber = new Recorder();
+
+        ProgressPublisher.of(monitor).subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+
+        monitor.setProgress(10);
+        subscriber.subscription.request(1);
+
+        assertThat(subscriber.progress).isEmpty();
+    }
+
+    @Test
+    void request_not_positive_error_not_concurrent_with_onNext() {
+        final boolean[] overlapped = new boolean[1];
+        final Recorder  subscriber = new Recorder() {
+                                       boolean delivering = false;
+
+                                       @Override
+                                       public void onNext(final ProgressEvent event) {
+                                           delivering = true;
+                                           subscription.request(-1);
+                                           super.onNext(event);
+                                           delivering = false;
+                                       }
+
+                                       @Override
+                                       public void onError(final Throwable error) {
+                                           overlapped[0] = delivering;
+                                           super.onError(error);
+                                       }
+                                   };
+
+        ProgressPublisher.of(monitor).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        monitor.setProgress(10);
+
+        assertThat(subscriber.progress).containsExactly(10L);
+        assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(overlapped[0]).isFalse();
+    }
+
+    @Test
+    void onNext_throws_cancels_subscription() {
+        final List<Throwable> uncaught   = new ArrayList<>();
+        final Recorder        subscriber = new Recorder() {
+                                             @Override
+                                             public void onNext(final ProgressEvent event) {
+                                                 super.onNext(event);
+                                                 throw new IllegalStateException("subscriber failed");
+                                             }
+                                         };
+
+        final Thread                          thread  = Thread.currentThread();
+        final Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+
+        thread.setUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+
+        try {
+            ProgressPublisher.of(monitor).subscribe(subscriber);
+            subscriber.subscription.request(Long.MAX_VALUE);
+
+            monitor.setProgress(10).setProgress(20).complete();
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+
+        assertThat(subscriber.progress).containsExactly(10L);
+        assertThat(subscriber.completed).isFalse();
+        assertThat(uncaught).hasSize(1);
+        assertThat(uncaught.get(0)).hasMessageThat().isEqualTo("subscriber failed");
+    }
+
+    static class Recorder implements Flow.Subscriber<ProgressEvent> {
+
+        final List<Long>    progress  = new ArrayList<>();
+        final List<Boolean> done      = new ArrayList<>();
+        Flow.Subscription   subscription;
+        Throwable           error;
+        boolean             completed = false;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final ProgressEvent event) {
+            progress.add(event.getProgress());
+            done.add(event.isDone());
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+}